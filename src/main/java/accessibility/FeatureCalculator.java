@@ -40,9 +40,18 @@ public class FeatureCalculator {
                                  Map<Id<Node>,Double> nodeResults, int polygonRadius,
                                  boolean fwd, TravelTime travelTime, TravelDisutility travelDisutility,
                                  Vehicle vehicle, DecayFunction decayFunction) {
+        SpeedyGraph routingGraph = new SpeedyGraph(routingNetwork,travelTime,travelDisutility,PERSON,vehicle);
+        calculate(routingNetwork, routingGraph, collection, endNodes, endWeights, nodeResults, polygonRadius,
+                fwd, travelTime, travelDisutility, vehicle, decayFunction);
+    }
+
+    public static void calculate(Network routingNetwork, SpeedyGraph routingGraph, SimpleFeatureCollection collection,
+                                 Map<String, IdSet<Node>> endNodes, Map<String, Double> endWeights,
+                                 Map<Id<Node>,Double> nodeResults, int polygonRadius,
+                                 boolean fwd, TravelTime travelTime, TravelDisutility travelDisutility,
+                                 Vehicle vehicle, DecayFunction decayFunction) {
 
         int numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
-        SpeedyGraph routingGraph = new SpeedyGraph(routingNetwork,travelTime,travelDisutility,PERSON,vehicle);
 
         // Create set of cells
         Set<SimpleFeature> features = new HashSet<>();
@@ -17,13 +17,11 @@ import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
 import resources.Properties;
 import resources.Resources;
+import routing.graph.BatchLeastCostPathTree;
 import routing.graph.LeastCostPathTree3;
 import routing.graph.SpeedyGraph;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -32,6 +30,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 public final class InterventionCalculator {
 
     private final static Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
+    private final static int BATCH_SIZE = 8;
     final SpeedyGraph routingGraph;
     private final DecayFunction decayFunction;
 
@@ -49,8 +48,9 @@ public final class InterventionCalculator {
         // prepare calculation
         ConcurrentHashMap<Id<Node>,Double> accessibilityResults = new ConcurrentHashMap<>(startNodes.size());
 
-        // do calculation
-        ConcurrentLinkedQueue<Id<Node>> startNodesQueue = new ConcurrentLinkedQueue<>(startNodes);
+        // do calculation (trees of nearby start nodes are built together)
+        ConcurrentLinkedQueue<int[]> startNodesQueue = new ConcurrentLinkedQueue<>(
+                BatchLeastCostPathTree.createBatches(routingGraph, startNodes, BATCH_SIZE));
 
         Counter counter = new Counter("Calculating accessibility node ", " / " + startNodes.size());
         Thread[] threads = new Thread[numberOfThreads];
@@ -72,6 +72,55 @@ public final class InterventionCalculator {
         return Collections.unmodifiableMap(new HashMap<>(accessibilityResults));
     }
 
+    // Decay factors between each start node and all end nodes within the cutoff. Trees are only built once,
+    // subsequent demand calculations only need the (sparse) decay factors and the current weights.
+    // Without a cutoff, the factors would be dense (start nodes x end nodes), so a cutoff is required.
+    public Map<Id<Node>,NodeDecays> calculateDecays(Set<Id<Node>> startNodes, Set<Id<Node>> endNodes) {
+
+        if(!decayFunction.hasCutoff()) {
+            throw new RuntimeException("Caching decay factors requires a decay function with a time or distance cutoff!");
+        }
+
+        int numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
+
+        boolean[] isEndNode = new boolean[routingGraph.getNodeCount()];
+        for (Id<Node> endNode : endNodes) {
+            isEndNode[endNode.index()] = true;
+        }
+
+        ConcurrentHashMap<Id<Node>,NodeDecays> decays = new ConcurrentHashMap<>(startNodes.size());
+        ConcurrentLinkedQueue<int[]> startNodesQueue = new ConcurrentLinkedQueue<>(
+                BatchLeastCostPathTree.createBatches(routingGraph, startNodes, BATCH_SIZE));
+
+        Counter counter = new Counter("Calculating decay factors for node ", " / " + startNodes.size());
+        Thread[] threads = new Thread[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++) {
+            DecayWorker worker = new DecayWorker(startNodesQueue, isEndNode, decays, counter);
+            threads[i] = new Thread(worker, "AccessibilityDecay-" + i);
+            threads[i].start();
+        }
+
+        // wait until all threads have finished
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return Collections.unmodifiableMap(new HashMap<>(decays));
+    }
+
+    // Same result as calculate(), but using cached decay factors and end node weights indexed by node index
+    public Map<Id<Node>,Double> calculate(Collection<Id<Node>> startNodes, Map<Id<Node>,NodeDecays> decays, double[] endWeights) {
+        Map<Id<Node>,Double> result = new HashMap<>(startNodes.size());
+        for (Id<Node> startNode : startNodes) {
+            result.put(startNode, decays.get(startNode).sum(endWeights));
+        }
+        return result;
+    }
+
     public Map<Id<Node>,Double> calculateSingle(Set<Id<Node>> startNodes, Id<Node> newNode, Double wt) {
 
         LeastCostPathTree3 lcpTreeFwd = new LeastCostPathTree3(routingGraph);
@@ -98,13 +147,100 @@ public final class InterventionCalculator {
         return result;
     }
 
+    public static class NodeDecays {
+        private final int[] nodeIndices;
+        private final double[] decays;
+
+        NodeDecays(int[] nodeIndices, double[] decays) {
+            this.nodeIndices = nodeIndices;
+            this.decays = decays;
+        }
+
+        public int[] getNodeIndices() {
+            return nodeIndices;
+        }
+
+        double sum(double[] weights) {
+            double result = 0.;
+            for (int i = 0; i < nodeIndices.length; i++) {
+                result += decays[i] * weights[nodeIndices[i]];
+            }
+            return result;
+        }
+    }
+
+    private class DecayWorker implements Runnable {
+        private final ConcurrentLinkedQueue<int[]> startNodes;
+        private final boolean[] isEndNode;
+        private final ConcurrentHashMap<Id<Node>,NodeDecays> decays;
+        private final Counter counter;
+
+        DecayWorker(ConcurrentLinkedQueue<int[]> startNodes, boolean[] isEndNode,
+                    ConcurrentHashMap<Id<Node>,NodeDecays> decays, Counter counter) {
+            this.startNodes = startNodes;
+            this.isEndNode = isEndNode;
+            this.decays = decays;
+            this.counter = counter;
+        }
+
+        public void run() {
+            BatchLeastCostPathTree lcpTreeFwd = new BatchLeastCostPathTree(routingGraph, BATCH_SIZE);
+            BatchLeastCostPathTree lcpTreeRev = new BatchLeastCostPathTree(routingGraph, BATCH_SIZE);
+            LeastCostPathTree3.StopCriterion stopCriterion = decayFunction.getTreeStopCriterion();
+            int[][] nodes = new int[BATCH_SIZE][16];
+            double[][] nodeDecays = new double[BATCH_SIZE][16];
+            int[] counts = new int[BATCH_SIZE];
+
+            while (true) {
+                int[] fromNodes = this.startNodes.poll();
+                if (fromNodes == null) {
+                    return;
+                }
+
+                lcpTreeFwd.calculate(fromNodes,0.,stopCriterion,true);
+                lcpTreeRev.calculate(fromNodes,0.,stopCriterion,false);
+
+                Arrays.fill(counts, 0);
+
+                // nodes not reached by the forward tree are beyond the cutoff anyway
+                for (int i = 0; i < lcpTreeFwd.getReachedNodeCount(); i++) {
+                    int toNodeIndex = lcpTreeFwd.getReachedNode(i);
+                    if (!isEndNode[toNodeIndex]) {
+                        continue;
+                    }
+                    for (int lane = 0; lane < fromNodes.length; lane++) {
+                        double dist = (lcpTreeFwd.getDistance(lane,toNodeIndex) + lcpTreeRev.getDistance(lane,toNodeIndex))/2;
+                        double time = (lcpTreeFwd.getTime(lane,toNodeIndex) + lcpTreeRev.getTime(lane,toNodeIndex))/2;
+                        if(!decayFunction.beyondCutoff(dist,time)) {
+                            double cost = (lcpTreeFwd.getCost(lane,toNodeIndex) + lcpTreeRev.getCost(lane,toNodeIndex))/2;
+                            int k = counts[lane]++;
+                            if (k == nodes[lane].length) {
+                                nodes[lane] = Arrays.copyOf(nodes[lane], 2 * k);
+                                nodeDecays[lane] = Arrays.copyOf(nodeDecays[lane], 2 * k);
+                            }
+                            nodes[lane][k] = toNodeIndex;
+                            nodeDecays[lane][k] = decayFunction.getDecay(cost);
+                        }
+                    }
+                }
+
+                for (int lane = 0; lane < fromNodes.length; lane++) {
+                    this.counter.incCounter();
+                    NodeDecays laneDecays = new NodeDecays(Arrays.copyOf(nodes[lane], counts[lane]),
+                            Arrays.copyOf(nodeDecays[lane], counts[lane]));
+                    this.decays.put(Id.get(fromNodes[lane], Node.class), laneDecays);
+                }
+            }
+        }
+    }
+
     private class NodeWorker implements Runnable {
-        private final ConcurrentLinkedQueue<Id<Node>> startNodes;
+        private final ConcurrentLinkedQueue<int[]> startNodes;
         private final Map<Id<Node>,Double> endNodes;
         private final ConcurrentHashMap<Id<Node>,Double> accessibilityData;
         private final Counter counter;
 
-        NodeWorker(ConcurrentLinkedQueue<Id<Node>> startNodes, Map<Id<Node>,Double> endNodes,
+        NodeWorker(ConcurrentLinkedQueue<int[]> startNodes, Map<Id<Node>,Double> endNodes,
                    ConcurrentHashMap<Id<Node>,Double> results, Counter counter) {
             this.startNodes = startNodes;
             this.endNodes = endNodes;
@@ -113,33 +249,38 @@ public final class InterventionCalculator {
         }
 
         public void run() {
-            LeastCostPathTree3 lcpTreeFwd = new LeastCostPathTree3(routingGraph);
-            LeastCostPathTree3 lcpTreeRev = new LeastCostPathTree3(routingGraph);
+            BatchLeastCostPathTree lcpTreeFwd = new BatchLeastCostPathTree(routingGraph, BATCH_SIZE);
+            BatchLeastCostPathTree lcpTreeRev = new BatchLeastCostPathTree(routingGraph, BATCH_SIZE);
             LeastCostPathTree3.StopCriterion stopCriterion = decayFunction.getTreeStopCriterion();
+            double[] accessibility = new double[BATCH_SIZE];
 
             while (true) {
-                Id<Node> fromNodeId = this.startNodes.poll();
-                if (fromNodeId == null) {
+                int[] fromNodes = this.startNodes.poll();
+                if (fromNodes == null) {
                     return;
                 }
 
-                this.counter.incCounter();
-                lcpTreeFwd.calculate(fromNodeId.index(),0.,stopCriterion,true);
-                lcpTreeRev.calculate(fromNodeId.index(),0.,stopCriterion,false);
+                lcpTreeFwd.calculate(fromNodes,0.,stopCriterion,true);
+                lcpTreeRev.calculate(fromNodes,0.,stopCriterion,false);
 
-                double accessibility = 0.;
+                Arrays.fill(accessibility, 0.);
 
                 for (Map.Entry<Id<Node>, Double> e : this.endNodes.entrySet()) {
                     int toNodeIndex = e.getKey().index();
-                    double dist = (lcpTreeFwd.getDistance(toNodeIndex) + lcpTreeRev.getDistance(toNodeIndex))/2;
-                    double time = (lcpTreeFwd.getTime(toNodeIndex).orElse(Double.POSITIVE_INFINITY) +
-                            lcpTreeRev.getTime(toNodeIndex).orElse(Double.POSITIVE_INFINITY))/2;
-                    if(!decayFunction.beyondCutoff(dist,time)) {
-                        double cost = (lcpTreeFwd.getCost(toNodeIndex) + lcpTreeRev.getCost(toNodeIndex))/2;
-                        accessibility += decayFunction.getDecay(cost) * e.getValue();
+                    for (int lane = 0; lane < fromNodes.length; lane++) {
+                        double dist = (lcpTreeFwd.getDistance(lane,toNodeIndex) + lcpTreeRev.getDistance(lane,toNodeIndex))/2;
+                        double time = (lcpTreeFwd.getTime(lane,toNodeIndex) + lcpTreeRev.getTime(lane,toNodeIndex))/2;
+                        if(!decayFunction.beyondCutoff(dist,time)) {
+                            double cost = (lcpTreeFwd.getCost(lane,toNodeIndex) + lcpTreeRev.getCost(lane,toNodeIndex))/2;
+                            accessibility[lane] += decayFunction.getDecay(cost) * e.getValue();
+                        }
                     }
                 }
-                this.accessibilityData.put(fromNodeId,accessibility);
+
+                for (int lane = 0; lane < fromNodes.length; lane++) {
+                    this.counter.incCounter();
+                    this.accessibilityData.put(Id.get(fromNodes[lane], Node.class),accessibility[lane]);
+                }
             }
         }
     }
@@ -17,12 +17,17 @@ import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
 import resources.Properties;
 import resources.Resources;
+import routing.graph.BatchLeastCostPathTree;
+import routing.graph.ContractionHierarchy;
 import routing.graph.LeastCostPathTree3;
+import routing.graph.PhastHierarchy;
+import routing.graph.PhastTree;
 import routing.graph.SpeedyGraph;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
 
 
 // Based on the skim matrix calculations from the MATSim SBB Extensions
@@ -33,25 +38,71 @@ public final class NodeCalculator {
 
     private final static Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
 
+    // minimum number of start nodes for which building a hierarchy for PHAST trees pays off
+    private final static int PHAST_MIN_START_NODES = 1000;
+
+    // number of nearby start nodes whose trees are calculated together
+    private final static int BATCH_SIZE = 8;
+
     public static Map<Id<Node>,Double> calculate(Network routingNetwork, Set<Id<Node>> startNodes,
                                                  Map<String, IdSet<Node>> endNodes, Map<String, Double> endWeights,
                                                  boolean fwd, TravelTime travelTime, TravelDisutility travelDisutility,
                                                  Vehicle vehicle, DecayFunction decayFunction) {
+        SpeedyGraph routingGraph = new SpeedyGraph(routingNetwork,travelTime,travelDisutility,PERSON,vehicle);
+        return calculate(routingGraph, startNodes, endNodes, endWeights, fwd, decayFunction);
+    }
+
+    public static Map<Id<Node>,Double> calculate(SpeedyGraph routingGraph, Set<Id<Node>> startNodes,
+                                                 Map<String, IdSet<Node>> endNodes, Map<String, Double> endWeights,
+                                                 boolean fwd, DecayFunction decayFunction) {
 
         int numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
-        SpeedyGraph routingGraph = new SpeedyGraph(routingNetwork,travelTime,travelDisutility,PERSON,vehicle);
+
+        // index destination categories by network node, so each tree only needs to visit the nodes it reached
+        int categoryCount = endWeights.size();
+        double[] weights = new double[categoryCount];
+        List<List<Integer>> categoriesByNode = new ArrayList<>(Collections.nCopies(routingGraph.getNodeCount(), null));
+        int category = 0;
+        for (Map.Entry<String, Double> endWeight : endWeights.entrySet()) {
+            weights[category] = endWeight.getValue();
+            for (Id<Node> endNodeId : endNodes.get(endWeight.getKey())) {
+                List<Integer> categories = categoriesByNode.get(endNodeId.index());
+                if (categories == null) {
+                    categories = new ArrayList<>(1);
+                    categoriesByNode.set(endNodeId.index(), categories);
+                }
+                categories.add(category);
+            }
+            category++;
+        }
+        int[][] nodeCategories = new int[routingGraph.getNodeCount()][];
+        for (int nodeIdx = 0; nodeIdx < nodeCategories.length; nodeIdx++) {
+            List<Integer> categories = categoriesByNode.get(nodeIdx);
+            if (categories != null) {
+                nodeCategories[nodeIdx] = categories.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        int[] endNodeIndices = IntStream.range(0, nodeCategories.length)
+                .filter(nodeIdx -> nodeCategories[nodeIdx] != null).toArray();
+
+        // without cutoff, each tree covers the whole network, which is much faster with PHAST trees
+        PhastHierarchy hierarchy = null;
+        if (!decayFunction.hasCutoff() && startNodes.size() >= PHAST_MIN_START_NODES) {
+            hierarchy = new PhastHierarchy(new ContractionHierarchy(routingGraph));
+        }
 
         // prepare calculation
         ConcurrentHashMap<Id<Node>,Double> accessibilityResults = new ConcurrentHashMap<>(startNodes.size());
 
         // do calculation
-        ConcurrentLinkedQueue<Id<Node>> startNodesQueue = new ConcurrentLinkedQueue<>(startNodes);
+        ConcurrentLinkedQueue<int[]> startNodesQueue = new ConcurrentLinkedQueue<>(
+                BatchLeastCostPathTree.createBatches(routingGraph, startNodes, BATCH_SIZE));
 
         Counter counter = new Counter("Calculating accessibility node ", " / " + startNodes.size());
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
-            NodeWorker worker = new NodeWorker(startNodesQueue, endNodes, endWeights, fwd,
-                    routingGraph, accessibilityResults, decayFunction, counter);
+            NodeWorker worker = new NodeWorker(startNodesQueue, nodeCategories, endNodeIndices, weights, fwd,
+                    routingGraph, hierarchy, accessibilityResults, decayFunction, counter);
             threads[i] = new Thread(worker, "Accessibility-" + i);
             threads[i].start();
         }
@@ -69,66 +120,122 @@ public final class NodeCalculator {
     }
 
     private static class NodeWorker implements Runnable {
-        private final ConcurrentLinkedQueue<Id<Node>> startNodes;
-        private final Map<String, IdSet<Node>> endNodes;
-        private final Map<String, Double> endWeights;
+        private final ConcurrentLinkedQueue<int[]> startNodes;
+        private final int[][] nodeCategories;
+        private final int[] endNodeIndices;
+        private final double[] weights;
         private final boolean fwd;
         private final SpeedyGraph graph;
+        private final PhastHierarchy hierarchy;
         private final ConcurrentHashMap<Id<Node>,Double> accessibilityData;
         private final DecayFunction decayFunction;
         private final Counter counter;
 
-        NodeWorker(ConcurrentLinkedQueue<Id<Node>> startNodes, Map<String, IdSet<Node>> endNodes, Map<String, Double> endWeights,
-                   boolean fwd, SpeedyGraph graph, ConcurrentHashMap<Id<Node>,Double> results,
+        NodeWorker(ConcurrentLinkedQueue<int[]> startNodes, int[][] nodeCategories, int[] endNodeIndices, double[] weights,
+                   boolean fwd, SpeedyGraph graph, PhastHierarchy hierarchy, ConcurrentHashMap<Id<Node>,Double> results,
                    DecayFunction decayFunction, Counter counter) {
             this.startNodes = startNodes;
-            this.endNodes = endNodes;
-            this.endWeights = endWeights;
+            this.nodeCategories = nodeCategories;
+            this.endNodeIndices = endNodeIndices;
+            this.weights = weights;
             this.fwd = fwd;
             this.graph = graph;
+            this.hierarchy = hierarchy;
             this.accessibilityData = results;
             this.decayFunction = decayFunction;
             this.counter = counter;
         }
 
         public void run() {
-            LeastCostPathTree3 lcpTree = new LeastCostPathTree3(this.graph);
+            if (this.hierarchy != null) {
+                runPhast();
+                return;
+            }
+            BatchLeastCostPathTree lcpTree = new BatchLeastCostPathTree(this.graph, BATCH_SIZE);
             LeastCostPathTree3.StopCriterion stopCriterion = decayFunction.getTreeStopCriterion();
+            double[][] costs = new double[BATCH_SIZE][this.weights.length];
 
             while (true) {
-                Id<Node> fromNodeId = this.startNodes.poll();
-                if (fromNodeId == null) {
+                int[] fromNodes = this.startNodes.poll();
+                if (fromNodes == null) {
                     return;
                 }
 
-                this.counter.incCounter();
-                lcpTree.calculate(fromNodeId.index(),0.,stopCriterion,fwd);
-
-                double accessibility = 0.;
+                lcpTree.calculate(fromNodes,0.,stopCriterion,fwd);
 
-                for (Map.Entry<String, Double> endWeight : this.endWeights.entrySet()) {
-
-                    double cost = Double.MAX_VALUE;
-
-                    for (Id<Node> toNodeId : this.endNodes.get(endWeight.getKey())) {
-                        int toNodeIndex = toNodeId.index();
-                        double nodeDist = lcpTree.getDistance(toNodeIndex);
-                        double nodeTime = lcpTree.getTime(toNodeIndex).orElse(Double.POSITIVE_INFINITY);
+                // minimum cost to each destination category, only looking at nodes reached by the trees
+                for (int lane = 0; lane < fromNodes.length; lane++) {
+                    Arrays.fill(costs[lane], Double.MAX_VALUE);
+                }
+                for (int i = 0; i < lcpTree.getReachedNodeCount(); i++) {
+                    int toNodeIndex = lcpTree.getReachedNode(i);
+                    int[] categories = this.nodeCategories[toNodeIndex];
+                    if (categories == null) {
+                        continue;
+                    }
+                    for (int lane = 0; lane < fromNodes.length; lane++) {
+                        double nodeCost = lcpTree.getCost(lane, toNodeIndex);
+                        if (!Double.isFinite(nodeCost)) {
+                            continue;
+                        }
+                        double nodeDist = lcpTree.getDistance(lane, toNodeIndex);
+                        double nodeTime = lcpTree.getTime(lane, toNodeIndex);
                         if(decayFunction.beyondCutoff(nodeDist, nodeTime)) {
                             continue;
                         }
+                        updateCosts(costs[lane], categories, nodeCost);
+                    }
+                }
+                for (int lane = 0; lane < fromNodes.length; lane++) {
+                    this.counter.incCounter();
+                    this.accessibilityData.put(Id.get(fromNodes[lane], Node.class),getAccessibility(costs[lane]));
+                }
+            }
+        }
+
+        // full trees without cutoff, only looking at the destination nodes
+        private void runPhast() {
+            PhastTree lcpTree = new PhastTree(this.hierarchy);
+            double[] costs = new double[this.weights.length];
+
+            while (true) {
+                int[] fromNodes = this.startNodes.poll();
+                if (fromNodes == null) {
+                    return;
+                }
+
+                for (int fromNode : fromNodes) {
+                    this.counter.incCounter();
+                    lcpTree.calculate(fromNode,fwd);
+
+                    Arrays.fill(costs, Double.MAX_VALUE);
+                    for (int toNodeIndex : this.endNodeIndices) {
                         double nodeCost = lcpTree.getCost(toNodeIndex);
-                        if (nodeCost < cost) {
-                            cost = nodeCost;
+                        if (Double.isFinite(nodeCost)) {
+                            updateCosts(costs, this.nodeCategories[toNodeIndex], nodeCost);
                         }
                     }
-                    if(cost != Double.MAX_VALUE) {
-                        double wt = endWeight.getValue();
-                        accessibility += decayFunction.getDecay(cost) * wt;
-                    }
+                    this.accessibilityData.put(Id.get(fromNode, Node.class),getAccessibility(costs));
+                }
+            }
+        }
+
+        private static void updateCosts(double[] costs, int[] categories, double nodeCost) {
+            for (int category : categories) {
+                if (nodeCost < costs[category]) {
+                    costs[category] = nodeCost;
+                }
+            }
+        }
+
+        private double getAccessibility(double[] costs) {
+            double accessibility = 0.;
+            for (int category = 0; category < costs.length; category++) {
+                if(costs[category] != Double.MAX_VALUE) {
+                    accessibility += decayFunction.getDecay(costs[category]) * this.weights[category];
                 }
-                this.accessibilityData.put(fromNodeId,accessibility);
             }
+            return accessibility;
         }
     }
 }
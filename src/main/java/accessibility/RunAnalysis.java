@@ -16,6 +16,8 @@ import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.vehicles.Vehicle;
 import resources.Resources;
+import routing.graph.SpeedyGraph;
+import routing.graph.SpeedyGraphReader;
 
 import org.apache.log4j.Logger;
 
@@ -61,7 +63,7 @@ public class RunAnalysis {
     private static void runAnalysis(String propertiesFilepath) throws IOException {
 
         // Initialise properties file
-        AccessibilityResources.initializeResources(propertiesFilepath);
+        AccessibilityResources.initializeResources(propertiesFilepath, fullNetwork);
 
         // Mode
         String mode = AccessibilityResources.instance.getMode();
@@ -100,6 +102,13 @@ public class RunAnalysis {
             log.warn("No input/output files given. Skipping all accessibility calculations.");
             return;
         }
+        // Routing graph (read from binary image if possible)
+        String graphImageFilename = AccessibilityResources.instance.getString(AccessibilityProperties.GRAPH_IMAGE);
+        SpeedyGraph graph = graphImageFilename != null ?
+                SpeedyGraphReader.readOrBuild(graphImageFilename, network, tt, td, null, veh,
+                        AccessibilityResources.instance.getRoutingFingerprint()) :
+                new SpeedyGraph(network, tt, td, null, veh);
+
         LocationData endData = new LocationData(endLocationsFilename,networkBoundary);
         endData.estimateNetworkNodes(network);
         Map<String, IdSet<Node>> endNodes = endData.getNodes();
@@ -118,7 +127,7 @@ public class RunAnalysis {
             // Run node accessibility calculation
             log.info("Running node accessibility calculation...");
             long startTime = System.currentTimeMillis();
-            nodeResults = NodeCalculator.calculate(network, startNodes, endNodes, endWeights, fwd, tt, td, veh, df);
+            nodeResults = NodeCalculator.calculate(graph, startNodes, endNodes, endWeights, fwd, df);
             long endTime = System.currentTimeMillis();
             log.info("Calculation time: " + (endTime - startTime));
 
@@ -131,7 +140,7 @@ public class RunAnalysis {
         if(inputFilename != null && outputFilename != null) {
 
             log.info("Running accessibility calculation...");
-            FeatureCalculator.calculate(network, features.getCollection(), endNodes, endWeights,
+            FeatureCalculator.calculate(network, graph, features.getCollection(), endNodes, endWeights,
                     nodeResults, features.getRadius(), fwd, tt, td, veh, df);
 
             // Output grid as gpkg
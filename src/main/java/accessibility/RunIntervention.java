@@ -64,7 +64,7 @@ public class RunIntervention {
     private static void runIntervention(String propertiesFilepath) throws IOException {
 
         // Initialise properties file
-        AccessibilityResources.initializeResources(propertiesFilepath);
+        AccessibilityResources.initializeResources(propertiesFilepath, fullNetwork);
 
         // Mode
         String mode = AccessibilityResources.instance.getMode();
@@ -131,8 +131,42 @@ public class RunIntervention {
         // Calculate supply-side accessibility
         supply.add(0,calc.calculate(populationNodes,destinationNodeWtMap));
 
+        // Cache decay factors between candidate and population nodes, so no trees need to be rebuilt in later iterations.
+        // Without a cutoff the cache would be dense (candidates x population nodes), so demand is recalculated instead.
+        Set<Id<Node>> candidateNodes = candidateNodeIdMap.keySet();
+        boolean cacheDecays = df.hasCutoff();
+        Map<Id<Node>,InterventionCalculator.NodeDecays> candidateDecays = null;
+        int[] firstCandidate = null;
+        int[] candidatesByPopulationNode = null;
+        if(cacheDecays) {
+            log.info("Caching decay factors between candidate and population nodes...");
+            candidateDecays = calc.calculateDecays(candidateNodes,populationNodes);
+
+            // Candidate nodes within the cutoff of each population node n, stored as node indices from
+            // candidatesByPopulationNode[firstCandidate[n]] to candidatesByPopulationNode[firstCandidate[n+1] - 1]
+            int nodeCount = Id.getNumberOfIds(Node.class);
+            firstCandidate = new int[nodeCount + 1];
+            for(InterventionCalculator.NodeDecays decays : candidateDecays.values()) {
+                for(int populationNode : decays.getNodeIndices()) {
+                    firstCandidate[populationNode + 1]++;
+                }
+            }
+            for(int n = 0; n < nodeCount; n++) {
+                firstCandidate[n + 1] += firstCandidate[n];
+            }
+            candidatesByPopulationNode = new int[firstCandidate[nodeCount]];
+            int[] next = Arrays.copyOf(firstCandidate, nodeCount);
+            for(Map.Entry<Id<Node>,InterventionCalculator.NodeDecays> e : candidateDecays.entrySet()) {
+                for(int populationNode : e.getValue().getNodeIndices()) {
+                    candidatesByPopulationNode[next[populationNode]++] = e.getKey().index();
+                }
+            }
+        } else {
+            log.warn("Decay function has no cutoff. Demand will be recalculated for all candidate nodes in each iteration.");
+        }
+
         // Initialise
-        Map<Id<Node>,Double> populationWeights = new HashMap<>(populationNodes.size());
+        double[] populationWeights = new double[Id.getNumberOfIds(Node.class)];
 
         int i = 0;
 
@@ -143,14 +177,38 @@ public class RunIntervention {
             Map<Id<Node>,Double> currSupply = supply.get(i);
             double minSupply = currSupply.values().stream().filter(v -> v > 0).min(Double::compare).orElseThrow() / 2;
             log.info("Min supply = " + minSupply);
+            Set<Id<Node>> changedNodes = new HashSet<>();
             for(Id<Node> node : populationNodes) {
                 double supplyValue = Math.max(currSupply.get(node), minSupply);
-                populationWeights.put(node, populationNodeWtMap.get(node) / supplyValue);
+                double weight = populationNodeWtMap.get(node) / supplyValue;
+                if(weight != populationWeights[node.index()]) {
+                    populationWeights[node.index()] = weight;
+                    changedNodes.add(node);
+                }
             }
 
-            // Select candidate with the highest demand
+            // Select candidate with the highest demand (only re-evaluating candidates near population nodes with changed weights)
             log.info("Calculating demand for candidate nodes...");
-            demand.add(i,calc.calculate(candidateNodeIdMap.keySet(),populationWeights));
+            if(!cacheDecays) {
+                Map<Id<Node>,Double> weights = new HashMap<>(populationNodes.size());
+                for(Id<Node> node : populationNodes) {
+                    weights.put(node, populationWeights[node.index()]);
+                }
+                demand.add(i,calc.calculate(candidateNodes,weights));
+            } else if(i == 0) {
+                demand.add(i,calc.calculate(candidateNodes,candidateDecays,populationWeights));
+            } else {
+                Set<Id<Node>> affectedCandidates = new HashSet<>();
+                for(Id<Node> node : changedNodes) {
+                    for(int k = firstCandidate[node.index()]; k < firstCandidate[node.index() + 1]; k++) {
+                        affectedCandidates.add(Id.get(candidatesByPopulationNode[k], Node.class));
+                    }
+                }
+                log.info("Re-evaluating " + affectedCandidates.size() + " / " + candidateNodes.size() + " candidate nodes.");
+                Map<Id<Node>,Double> currDemand = new HashMap<>(demand.get(i-1));
+                currDemand.putAll(calc.calculate(affectedCandidates,candidateDecays,populationWeights));
+                demand.add(i,currDemand);
+            }
 
             Id<Node> selected = null;
             double highest = Double.MIN_VALUE;
@@ -32,6 +32,10 @@ public class DecayFunction {
         return distance > cutoffDist || time > cutoffTime;
     }
 
+    public boolean hasCutoff() {
+        return cutoffDist != Double.MAX_VALUE || cutoffTime != Double.MAX_VALUE;
+    }
+
     public LeastCostPathTree3.StopCriterion getTreeStopCriterion() {
         return stopCriterion;
     }
@@ -6,6 +6,7 @@ public class AccessibilityProperties {
     public static final String IMPEDANCE = "disutility";
     public static final String END_LOCATIONS = "end.coords";
     public static final String FORWARD = "forward"; // todo: check this works
+    public static final String GRAPH_IMAGE = "graph.image";
 
     // Related to decay function
     public static final String DECAY_FUNCTION = "decay.function";
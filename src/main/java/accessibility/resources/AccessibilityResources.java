@@ -1,6 +1,7 @@
 package accessibility.resources;
 
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
@@ -11,6 +12,7 @@ import org.matsim.vehicles.Vehicle;
 import routing.Bicycle;
 import routing.disutility.DistanceDisutility;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
 import routing.travelTime.WalkTravelTime;
 import trip.Purpose;
 
@@ -31,6 +33,7 @@ public class AccessibilityResources {
     private Vehicle veh;
     private TravelTime tt;
     private TravelDisutility td;
+    private String routingFingerprint;
 
 
 
@@ -41,6 +44,11 @@ public class AccessibilityResources {
 
 
     public static void initializeResources(String propertiesFile) {
+        initializeResources(propertiesFile, null);
+    }
+
+    // If a network is given, the link factors of the JIBE disutility are computed once for all its links
+    public static void initializeResources(String propertiesFile, Network network) {
         try (FileInputStream in = new FileInputStream(propertiesFile)) {
             Properties properties = new Properties();
             properties.load(in);
@@ -58,18 +66,19 @@ public class AccessibilityResources {
                     Bicycle bicycle = new Bicycle(instance.config);
                     instance.veh = bicycle.getVehicle();
                     instance.tt = bicycle.getTravelTime();
-                    instance.setActiveDisutility();
+                    instance.setActiveDisutility(network);
                     break;
                 case TransportMode.walk:
                     instance.veh = null;
                     instance.tt = new WalkTravelTime();
-                    instance.setActiveDisutility();
+                    instance.setActiveDisutility(network);
                     break;
                 case TransportMode.car:
                     FreespeedTravelTimeAndDisutility freeSpeed = new FreespeedTravelTimeAndDisutility(instance.config.planCalcScore());
                     instance.veh = null;
                     instance.tt = freeSpeed;
                     instance.td = freeSpeed;
+                    instance.routingFingerprint = instance.mode + "|freespeed";
                     break;
                 default:
                     throw new RuntimeException("Mode " + instance.mode + " not supported for accessibility calculations!");
@@ -79,16 +88,18 @@ public class AccessibilityResources {
         }
     }
 
-    private void setActiveDisutility() {
+    private void setActiveDisutility(Network network) {
         String type = properties.getProperty(AccessibilityProperties.IMPEDANCE);
         switch(type) {
             case "shortest":
             case "short":
                 td = new DistanceDisutility();
+                routingFingerprint = mode + "|short";
                 break;
             case "fastest":
             case "fast":
                 td = new OnlyTimeDependentTravelDisutility(tt);
+                routingFingerprint = mode + "|fast";
                 break;
             case "jibe":
                 double mcTime = getMarginalCostOrDefault(mode, resources.Properties.TIME);
@@ -97,7 +108,9 @@ public class AccessibilityResources {
                 double mcComfort = getMarginalCostOrDefault(mode, resources.Properties.COMFORT);
                 double mcAmbience = getMarginalCostOrDefault(mode, resources.Properties.AMBIENCE);
                 double mcStress = getMarginalCostOrDefault(mode, resources.Properties.STRESS);
-                td = new JibeDisutility(mode,tt,mcTime,mcDist,mcGrad,mcComfort,mcAmbience,mcStress);
+                LinkFactors linkFactors = network != null ? LinkFactors.of(network, mode) : LinkFactors.uncached(mode);
+                td = new JibeDisutility(mode,tt,linkFactors,mcTime,mcDist,mcGrad,mcComfort,mcAmbience,mcStress);
+                routingFingerprint = mode + "|jibe|" + mcTime + "|" + mcDist + "|" + mcGrad + "|" + mcComfort + "|" + mcAmbience + "|" + mcStress;
                 break;
             default:
                 throw new RuntimeException("Disutility type " + type + " not recognised for mode " + mode);
@@ -131,6 +144,11 @@ public class AccessibilityResources {
         return this.td;
     }
 
+    // Identifies the travel time and disutility, e.g. to check whether a stored routing graph was built with them
+    public synchronized String getRoutingFingerprint() {
+        return this.routingFingerprint;
+    }
+
     public synchronized String getString(String key) {
         return properties.getProperty(key);
     }
@@ -1,12 +1,12 @@
 package census;
 
+import network.LinkSnapper;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.FastDijkstraFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
@@ -15,6 +15,11 @@ import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
 import resources.Properties;
 import resources.Resources;
+import routing.graph.BidirectionalDijkstra;
+import routing.graph.ContractionHierarchy;
+import routing.graph.ContractionHierarchyRouter;
+import routing.graph.SpeedyGraph;
+import trads.calculate.RouteIndicatorCalculator.Router;
 import trip.Place;
 import trip.Trip;
 
@@ -27,6 +32,7 @@ public class LinkVolumeCalculator {
     private final Set<Trip> trips;
 
     private final Map<String,int[]> allResults;
+    private final Map<Network,LinkSnapper> snappers = new IdentityHashMap<>();
 
     public LinkVolumeCalculator(Set<Trip> trips) {
         this.trips = trips;
@@ -40,6 +46,17 @@ public class LinkVolumeCalculator {
     public int[] calculate(String route, Place origin, Place destination, Vehicle vehicle,
                            Network network, Network xy2lNetwork,
                            TravelDisutility travelDisutility, TravelTime travelTime) {
+        return calculate(route, origin, destination, vehicle, network, xy2lNetwork, travelDisutility, travelTime, Router.DIJKSTRA);
+    }
+
+    // Routers other than DIJKSTRA evaluate link costs at time 0 (see RouteIndicatorCalculator.Router)
+    public int[] calculate(String route, Place origin, Place destination, Vehicle vehicle,
+                           Network network, Network xy2lNetwork,
+                           TravelDisutility travelDisutility, TravelTime travelTime, Router router) {
+
+        if(router == Router.ALT) {
+            throw new RuntimeException("ALT routing is not supported for link volumes!");
+        }
 
         logger.info("Calculating network volumes for route " + route);
 
@@ -49,12 +66,26 @@ public class LinkVolumeCalculator {
         ConcurrentLinkedQueue<Trip> tripsQueue = new ConcurrentLinkedQueue<>(trips);
 
         Counter counter = new Counter(route + ": Route ", " / " + trips.size());
+        // Snapped origins and destinations are shared by all routes using the same xy2l network
+        LinkSnapper snapper = snappers.computeIfAbsent(xy2lNetwork, LinkSnapper::new);
+        // The same disutility is used for all trips, so the graph (and hierarchy) is only built once per route
+        SpeedyGraph graph = router == Router.DIJKSTRA ? null : new SpeedyGraph(network, travelTime, travelDisutility, null, vehicle);
+        ContractionHierarchy ch = router == Router.CONTRACTION_HIERARCHY ? new ContractionHierarchy(graph) : null;
         TripWorker[] workers = new TripWorker[numberOfThreads];
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
-            LeastCostPathCalculator dijkstra = new FastDijkstraFactory(false).
-                    createPathCalculator(network, travelDisutility, travelTime);
-            workers[i] = new TripWorker(tripsQueue, counter, origin, destination, vehicle, network, xy2lNetwork, dijkstra);
+            LeastCostPathCalculator dijkstra;
+            switch (router) {
+                case DIJKSTRA:
+                    dijkstra = new FastDijkstraFactory(false).createPathCalculator(network, travelDisutility, travelTime);
+                    break;
+                case CONTRACTION_HIERARCHY:
+                    dijkstra = new ContractionHierarchyRouter(ch);
+                    break;
+                default:
+                    dijkstra = new BidirectionalDijkstra(graph);
+            }
+            workers[i] = new TripWorker(tripsQueue, counter, origin, destination, vehicle, network, snapper, dijkstra);
             threads[i] = new Thread(workers[i], "LinkVolumeCalculator-" + route + "-" + i);
             threads[i].start();
         }
@@ -92,12 +123,12 @@ public class LinkVolumeCalculator {
         private final Place destination;
         private final LeastCostPathCalculator pathCalculator;
         private final Network routingNetwork;
-        private final Network xy2lNetwork;
+        private final LinkSnapper snapper;
         private final int[] results;
 
         public TripWorker(ConcurrentLinkedQueue<Trip> trips, Counter counter,
                           Place origin, Place destination, Vehicle vehicle,
-                          Network routingNetwork, Network xy2lNetwork,
+                          Network routingNetwork, LinkSnapper snapper,
                           LeastCostPathCalculator pathCalculator) {
             this.trips = trips;
             this.counter = counter;
@@ -105,7 +136,7 @@ public class LinkVolumeCalculator {
             this.destination = destination;
             this.vehicle = vehicle;
             this.routingNetwork = routingNetwork;
-            this.xy2lNetwork = xy2lNetwork;
+            this.snapper = snapper;
             this.pathCalculator = pathCalculator;
             this.results = new int[Id.getNumberOfIds(Link.class)];
         }
@@ -123,8 +154,8 @@ public class LinkVolumeCalculator {
                 if(trip.routable(origin, destination)) {
                     Coord cOrig = trip.getCoord(origin);
                     Coord cDest = trip.getCoord(destination);
-                    Node nOrig = routingNetwork.getNodes().get(NetworkUtils.getNearestLinkExactly(xy2lNetwork, cOrig).getToNode().getId());
-                    Node nDest = routingNetwork.getNodes().get(NetworkUtils.getNearestLinkExactly(xy2lNetwork, cDest).getToNode().getId());
+                    Node nOrig = routingNetwork.getNodes().get(snapper.getNearestLink(cOrig).getToNode().getId());
+                    Node nDest = routingNetwork.getNodes().get(snapper.getNearestLink(cDest).getToNode().getId());
 
                     for(Link link : pathCalculator.calcLeastCostPath(nOrig, nDest, 0., null, vehicle).links) {
                         results[link.getId().index()]++;
@@ -15,6 +15,9 @@ import resources.Resources;
 import routing.Bicycle;
 import routing.disutility.DistanceDisutility;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
+import routing.graph.Landmarks;
+import routing.graph.SpeedyGraph;
 import routing.travelTime.WalkTravelTime;
 import trads.calculate.RouteIndicatorCalculator;
 import trip.Trip;
@@ -24,6 +27,8 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
+import static trads.calculate.RouteIndicatorCalculator.Router.ALT;
+import static trads.calculate.RouteIndicatorCalculator.Router.BIDIRECTIONAL;
 import static trip.Place.*;
 
 public class RunCensusMcRouter {
@@ -33,6 +38,7 @@ public class RunCensusMcRouter {
     // Parameters for MC Simulation
     private final static double MAX_MC_AMBIENCE = 5e-3; // based on avg travel time and rounded up
     private final static double MAX_MC_STRESS = 5e-3; // based on average travel time and rounded up
+    private final static int LANDMARKS = 16;
 
     public static void main(String[] args) throws IOException, FactoryException {
         if (args.length != 5) {
@@ -80,8 +86,19 @@ public class RunCensusMcRouter {
         RouteIndicatorCalculator calc = new RouteIndicatorCalculator(trips);
 
         // Run short and fast routing (for reference)
-        calc.network(mode + "_short", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new DistanceDisutility(), tt, null, false);
-        calc.network(mode + "_fast", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new OnlyTimeDependentTravelDisutility(tt), tt, null, false);
+        calc.network(mode + "_short", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new DistanceDisutility(), tt, null, false, BIDIRECTIONAL);
+        calc.network(mode + "_fast", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new OnlyTimeDependentTravelDisutility(tt), tt, null, false, BIDIRECTIONAL);
+
+        // Per-link components of the jibe disutility, recombined into the graph for each sampled ambience/stress value
+        LinkFactors linkFactors = LinkFactors.of(modeSpecificNetwork, mode);
+        JibeDisutility baseJibe = new JibeDisutility(mode,tt,linkFactors,0.,0.);
+        double[][] components = baseJibe.getLinkComponents(modeSpecificNetwork, 0., null, veh);
+        SpeedyGraph topology = new SpeedyGraph(modeSpecificNetwork, tt, null, null, veh);
+
+        // Landmarks for the jibe routes, based on the jibe disutility without ambience and stress costs,
+        // which is a lower bound for all sampled ambience/stress values
+        SpeedyGraph baseGraph = topology.reweight(components, JibeDisutility.getComponentWeights(0.,0.));
+        calc.setLandmarks(new Landmarks(baseGraph, LANDMARKS));
 
         Random r = new Random();
 
@@ -92,9 +109,10 @@ public class RunCensusMcRouter {
             double mcAttr = r.nextDouble() * MAX_MC_AMBIENCE;
             double mcStress = r.nextDouble() * MAX_MC_STRESS;
 
-            JibeDisutility disutilty = new JibeDisutility(mode, tt, mcAttr, mcStress);
+            JibeDisutility disutilty = baseJibe.withAmbienceAndStress(mcAttr, mcStress);
 
-            calc.network(mode + "_jibe_" + i,HOME,DESTINATION,veh,modeSpecificNetwork,modeSpecificNetwork,disutilty,tt,null,false);
+            SpeedyGraph graph = topology.reweight(components, JibeDisutility.getComponentWeights(mcAttr,mcStress));
+            calc.network(mode + "_jibe_" + i,HOME,DESTINATION,veh,modeSpecificNetwork,modeSpecificNetwork,disutilty,tt,null,false,ALT,graph);
         }
 
         // Write results
@@ -16,6 +16,7 @@ import resources.Resources;
 import routing.Bicycle;
 import routing.disutility.DistanceDisutility;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
 import routing.travelTime.WalkTravelTime;
 import trip.Trip;
 
@@ -23,6 +24,7 @@ import java.io.*;
 import java.util.Map;
 import java.util.Set;
 
+import static trads.calculate.RouteIndicatorCalculator.Router.CONTRACTION_HIERARCHY;
 import static trip.Place.DESTINATION;
 import static trip.Place.HOME;
 
@@ -76,9 +78,9 @@ public class RunCensusVolumeRouter {
         LinkVolumeCalculator calc = new LinkVolumeCalculator(trips);
 
         // Run short and fast routing (for reference)
-        calc.calculate(mode + "_short", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new DistanceDisutility(), tt);
-        calc.calculate(mode + "_fast", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new OnlyTimeDependentTravelDisutility(tt), tt);
-        calc.calculate(mode + "_jibe", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new JibeDisutility(mode,tt), tt);
+        calc.calculate(mode + "_short", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new DistanceDisutility(), tt, CONTRACTION_HIERARCHY);
+        calc.calculate(mode + "_fast", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new OnlyTimeDependentTravelDisutility(tt), tt, CONTRACTION_HIERARCHY);
+        calc.calculate(mode + "_jibe", HOME, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new JibeDisutility(mode,tt,LinkFactors.of(modeSpecificNetwork,mode)), tt, CONTRACTION_HIERARCHY);
 
 
         // Write results
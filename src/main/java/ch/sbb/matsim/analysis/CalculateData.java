@@ -19,6 +19,7 @@ import ch.sbb.matsim.analysis.calc.PtCalculator;
 import ch.sbb.matsim.analysis.data.GeometryData;
 import ch.sbb.matsim.analysis.data.IndicatorData;
 import ch.sbb.matsim.analysis.data.PtData;
+import ch.sbb.matsim.analysis.data.StopAccessData;
 import ch.sbb.matsim.analysis.io.GeometryWriter;
 import ch.sbb.matsim.analysis.io.IndicatorWriter;
 import ch.sbb.matsim.analysis.io.PtWriter;
@@ -57,6 +58,7 @@ import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.referencing.FactoryException;
 import routing.TravelAttribute;
+import routing.graph.PhastHierarchy;
 
 /**
  * Main class to calculate skim matrices.
@@ -77,8 +79,15 @@ public class CalculateData {
     private final String outputDirectory;
     private final int numberOfThreads;
     private Integer batchSize;
+    private boolean binaryOutput = false;
     private Map<String, Coord> zoneCoordMap = null;
 
+    // raptor data and zone access/egress stops of the last pt calculation, re-used for further time windows
+    private String ptInputFiles = null;
+    private Config ptConfig = null;
+    private SwissRailRaptorData ptRaptorData = null;
+    private StopAccessData<String> ptStopAccess = null;
+
     public CalculateData(String outputDirectory, int numberOfThreads, Integer batchSize) {
         this.outputDirectory = outputDirectory;
         File outputDir = new File(outputDirectory);
@@ -98,6 +107,14 @@ public class CalculateData {
         this.batchSize = batchSize;
     }
 
+    /**
+     * If set, route and pt indicators are written as memory-mappable binary files (see {@link ch.sbb.matsim.analysis.io.BinaryMatrixWriter})
+     * instead of gzipped csv files.
+     */
+    public void setBinaryOutput(boolean binaryOutput) {
+        this.binaryOutput = binaryOutput;
+    }
+
     public void writeSamplingPointsToFile(File file) throws IOException {
         log.info("write chosen coordinates to file " + file.getAbsolutePath());
         try (BufferedWriter writer = IOUtils.getBufferedWriter(file.getAbsolutePath())) {
@@ -115,6 +132,7 @@ public class CalculateData {
     public final void loadSamplingPointsFromFile(String filename) throws IOException {
         log.info("loading sampling points from " + filename);
         this.zoneCoordMap = buildZoneCoordMap(filename);
+        this.ptStopAccess = null;
         if (batchSize == null) {
             batchSize = zoneCoordMap.size();
         }
@@ -146,6 +164,9 @@ public class CalculateData {
         long numberOfBatches = StreamSupport.stream(batches.spliterator(), false).count();
         log.info("created " + numberOfBatches + " batches");
 
+        log.info("building routing hierarchy");
+        PhastHierarchy hierarchy = IndicatorCalculator.buildHierarchy(modeSpecificNetwork, tt, td, null, null);
+
         int counter = 0;
         Set<String> destinations = zoneCoordMap.keySet();
         for(List<String> originBatch : batches) {
@@ -154,13 +175,17 @@ public class CalculateData {
             log.info("INITIATING BATCH " + counter + " OF " + numberOfBatches);
             long startTime = System.currentTimeMillis();
             IndicatorData<String> netIndicators = IndicatorCalculator.calculate(
-                    modeSpecificNetwork, origins, destinations, zoneNodeMap, tt, td, null,null, this.numberOfThreads);
+                    hierarchy, origins, destinations, zoneNodeMap, null, this.numberOfThreads);
             long endTime = System.currentTimeMillis();
             log.info("Batch " + counter + " calculation time: " + (endTime - startTime));
 
             log.info("Writing batch " + counter + " data to " + outputDirectory + (prefix.isEmpty() ? "" : (" with prefix " + prefix)));
             startTime = System.currentTimeMillis();
-            IndicatorWriter.writeAsCsv(netIndicators,outputDirectory + "/" + prefix + "batch_" + counter + ".csv.gz");
+            if(binaryOutput) {
+                IndicatorWriter.writeAsBinary(netIndicators,outputDirectory + "/" + prefix + "batch_" + counter + ".bin");
+            } else {
+                IndicatorWriter.writeAsCsv(netIndicators,outputDirectory + "/" + prefix + "batch_" + counter + ".csv.gz");
+            }
             endTime = System.currentTimeMillis();
             log.info("Batch " + counter + " writing time: " + (endTime - startTime));
             // break; // break for debugging only
@@ -200,6 +225,9 @@ public class CalculateData {
         long numberOfBatches = StreamSupport.stream(batches.spliterator(), false).count();
         log.info("created " + numberOfBatches + " batches");
 
+        log.info("building routing hierarchy");
+        PhastHierarchy hierarchy = IndicatorCalculator.buildHierarchy(modeSpecificNetwork, tt, td, null, null);
+
         int counter = 0;
         Set<String> destinations = zoneCoordMap.keySet();
         for(List<String> originBatch : batches) {
@@ -208,7 +236,7 @@ public class CalculateData {
             log.info("INITIATING BATCH " + counter + " OF " + numberOfBatches);
             long startTime = System.currentTimeMillis();
             GeometryData<String> geometries = GeometryCalculator.calculate(
-                    modeSpecificNetwork, origins, destinations, zoneNodeMap, tt, td, null,null, this.numberOfThreads);
+                    hierarchy, origins, destinations, zoneNodeMap, null, this.numberOfThreads);
             long endTime = System.currentTimeMillis();
             log.info("Batch " + counter + " calculation time: " + (endTime - startTime));
 
@@ -223,16 +251,29 @@ public class CalculateData {
 
     public final void calculatePtIndicators(String networkFilename, String transitScheduleFilename, double startTime, double endTime, Config config, String outputPrefix, BiPredicate<TransitLine, TransitRoute> trainDetector) throws IOException {
         String prefix = outputPrefix == null ? "" : outputPrefix;
-        Scenario scenario = ScenarioUtils.createScenario(config);
-        log.info("loading schedule from " + transitScheduleFilename);
-        new TransitScheduleReader(scenario).readFile(transitScheduleFilename);
-        new MatsimNetworkReader(scenario.getNetwork()).readFile(networkFilename);
-
-        log.info("prepare PT Matrix calculation");
-        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(config);
-        raptorConfig.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
-        SwissRailRaptorData raptorData = SwissRailRaptorData.create(scenario.getTransitSchedule(), scenario.getTransitVehicles(), raptorConfig, scenario.getNetwork(), null);
+        String inputFiles = networkFilename + ";" + transitScheduleFilename;
         RaptorParameters raptorParameters = RaptorUtils.createParameters(config);
+        if (inputFiles.equals(this.ptInputFiles) && config == this.ptConfig) {
+            log.info("re-using PT schedule and access/egress stops of previous calculation");
+        } else {
+            Scenario scenario = ScenarioUtils.createScenario(config);
+            log.info("loading schedule from " + transitScheduleFilename);
+            new TransitScheduleReader(scenario).readFile(transitScheduleFilename);
+            new MatsimNetworkReader(scenario.getNetwork()).readFile(networkFilename);
+
+            log.info("prepare PT Matrix calculation");
+            RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(config);
+            raptorConfig.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+            this.ptRaptorData = SwissRailRaptorData.create(scenario.getTransitSchedule(), scenario.getTransitVehicles(), raptorConfig, scenario.getNetwork(), null);
+            this.ptStopAccess = null;
+            this.ptInputFiles = inputFiles;
+            this.ptConfig = config;
+        }
+        SwissRailRaptorData raptorData = this.ptRaptorData;
+        if (this.ptStopAccess == null || !this.ptStopAccess.isValidFor(raptorParameters)) {
+            log.info("calculating access/egress stops of all zones");
+            this.ptStopAccess = new StopAccessData<>(raptorData, this.zoneCoordMap, raptorParameters);
+        }
 
         log.info("splitting into batches of size " + batchSize);
         Iterable<List<String>> batches = Iterables.partition(zoneCoordMap.keySet(), batchSize);
@@ -246,10 +287,14 @@ public class CalculateData {
             Set<String> origins = Sets.newHashSet(originBatch);
             log.info("BATCH " + counter + ": calc PT matrices for " + Time.writeTime(startTime) + " - " + Time.writeTime(endTime));
             PtData<String> matrices = PtCalculator.calculatePtIndicators(
-                    raptorData, origins, destinations, this.zoneCoordMap, startTime, endTime, 120, raptorParameters, this.numberOfThreads, trainDetector);
+                    raptorData, origins, destinations, this.ptStopAccess, startTime, endTime, raptorParameters, this.numberOfThreads, trainDetector);
 
             log.info("BATCH " + counter + ": write PT matrices to " + outputDirectory + (prefix.isEmpty() ? "" : (" with prefix " + prefix)));
-            PtWriter.writeAsCsv(matrices,outputDirectory + "/" + prefix + "_" + "batch" + counter + ".csv.gz");
+            if(binaryOutput) {
+                PtWriter.writeAsBinary(matrices,outputDirectory + "/" + prefix + "_" + "batch" + counter + ".bin");
+            } else {
+                PtWriter.writeAsCsv(matrices,outputDirectory + "/" + prefix + "_" + "batch" + counter + ".csv.gz");
+            }
             // break; // for debugging only
         }
     }
@@ -1,13 +1,14 @@
 package ch.sbb.matsim.analysis;
 
 import ch.sbb.matsim.analysis.calc.PtCalculator;
-import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.TravelInfo;
+import ch.sbb.matsim.routing.pt.raptor.RaptorRoute;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Various static methods and a data structure to calculate
@@ -218,15 +219,15 @@ public class RooftopUtils {
         public final double accessTime;
         public final double egressTime;
         public final double transferCount;
-        public final TravelInfo travelInfo;
+        public final Supplier<RaptorRoute> route;
 
-        public ODConnection(double departureTime, double travelTime, double accessTime, double egressTime, double transferCount, TravelInfo info) {
+        public ODConnection(double departureTime, double travelTime, double accessTime, double egressTime, double transferCount, Supplier<RaptorRoute> route) {
             this.departureTime = departureTime;
             this.travelTime = travelTime;
             this.accessTime = accessTime;
             this.egressTime = egressTime;
             this.transferCount = transferCount;
-            this.travelInfo = info;
+            this.route = route;
         }
 
         public double totalTravelTime() {
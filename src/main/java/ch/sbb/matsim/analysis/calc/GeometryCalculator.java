@@ -6,18 +6,14 @@ package ch.sbb.matsim.analysis.calc;
 
 import routing.TravelAttribute;
 import ch.sbb.matsim.analysis.data.GeometryData;
-import ch.sbb.matsim.graph.Graph;
-import ch.sbb.matsim.graph.LeastCostPathTree2;
-import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
-import org.matsim.vehicles.VehicleUtils;
+import routing.graph.PhastHierarchy;
+import routing.graph.PhastTree;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -37,6 +33,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * - this results in n x n travel times per zone-to-zone combination.
  * - average the n x n travel times and store this value as the zone-to-zone travel time.
  *
+ * Trees are calculated with PHAST, see {@link IndicatorCalculator}.
+ *
  * @author mrieser / SBB
  */
 public final class GeometryCalculator {
@@ -48,10 +46,17 @@ public final class GeometryCalculator {
                                                 TravelTime travelTime, TravelDisutility travelDisutility,
                                                 LinkedHashMap<String, TravelAttribute> travelAttributes,
                                                 Vehicle vehicle, int numberOfThreads) {
-        Graph routingGraph = new Graph(routingNetwork);
+        PhastHierarchy hierarchy = IndicatorCalculator.buildHierarchy(routingNetwork, travelTime, travelDisutility,
+                travelAttributes, vehicle);
+        return calculate(hierarchy, origins, destinations, zoneNodeMap,
+                travelAttributes == null ? null : travelAttributes.keySet(), numberOfThreads);
+    }
+
+    public static <T> GeometryData<T> calculate(PhastHierarchy hierarchy, Set<T> origins, Set<T> destinations, Map<T, Node> zoneNodeMap,
+                                                Set<String> attributeNames, int numberOfThreads) {
 
         // prepare calculation
-        GeometryData<T> geometryData = new GeometryData<>(origins, destinations, travelAttributes.keySet());
+        GeometryData<T> geometryData = new GeometryData<>(origins, destinations, attributeNames);
 
         // do calculation
         ConcurrentLinkedQueue<T> originZones = new ConcurrentLinkedQueue<>(origins);
@@ -59,8 +64,8 @@ public final class GeometryCalculator {
         Counter counter = new Counter("PathGeometries zone ", " / " + origins.size());
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
-            RowWorker<T> worker = new RowWorker<>(originZones, destinations, routingGraph, zoneNodeMap,
-                    geometryData, travelTime, travelDisutility, travelAttributes, vehicle, counter);
+            RowWorker<T> worker = new RowWorker<>(originZones, destinations, hierarchy, zoneNodeMap,
+                    geometryData, attributeNames, counter);
             threads[i] = new Thread(worker, "PathGeometries-" + i);
             threads[i].start();
         }
@@ -80,36 +85,22 @@ public final class GeometryCalculator {
     private static class RowWorker<T> implements Runnable {
         private final ConcurrentLinkedQueue<T> originZones;
         private final Set<T> destinationZones;
-        private final Graph graph;
+        private final PhastHierarchy hierarchy;
         private final Map<T, Node> zoneNodeMap;
         private final GeometryData<T> geometryData;
-        private final TravelTime travelTime;
-        private final TravelDisutility travelDisutility;
-        private final TravelAttribute[] travelAttributes;
         private final String[] attributeNames;
         private final int attributeCount;
-        private final Vehicle vehicle;
         private final Counter counter;
 
-        private final static Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
-
-        RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, Graph graph, Map<T, Node> zoneNodeMap, GeometryData<T> geometryData,
-                  TravelTime travelTime, TravelDisutility travelDisutility, LinkedHashMap<String, TravelAttribute> travelAttributes, Vehicle vehicle, Counter counter) {
+        RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, PhastHierarchy hierarchy, Map<T, Node> zoneNodeMap, GeometryData<T> geometryData,
+                  Set<String> attributeNames, Counter counter) {
             this.originZones = originZones;
             this.destinationZones = destinationZones;
-            this.graph = graph;
+            this.hierarchy = hierarchy;
             this.zoneNodeMap = zoneNodeMap;
             this.geometryData = geometryData;
-            this.travelTime = travelTime;
-            this.travelDisutility = travelDisutility;
-            this.attributeCount = travelAttributes == null ? 0 : travelAttributes.size();
-            this.travelAttributes = travelAttributes == null ? null : travelAttributes.values().toArray(new TravelAttribute[attributeCount]);
-            this.attributeNames = travelAttributes == null ? null : travelAttributes.keySet().toArray(new String[attributeCount]);
-            if(vehicle != null) {
-                this.vehicle = vehicle;
-            } else {
-                this.vehicle = VehicleUtils.getFactory().createVehicle(Id.create("theVehicle", Vehicle.class), VehicleUtils.getDefaultVehicleType());
-            }
+            this.attributeCount = attributeNames == null ? 0 : attributeNames.size();
+            this.attributeNames = attributeNames == null ? null : attributeNames.toArray(new String[attributeCount]);
 
 
             this.counter = counter;
@@ -118,7 +109,7 @@ public final class GeometryCalculator {
 
         public void run() {
 
-            LeastCostPathTree2 lcpTree = new LeastCostPathTree2(this.graph, this.travelTime, this.travelDisutility, this.travelAttributes);
+            PhastTree lcpTree = new PhastTree(this.hierarchy);
 
             while (true) {
                 T fromZoneId = this.originZones.poll();
@@ -129,14 +120,15 @@ public final class GeometryCalculator {
                 this.counter.incCounter();
                 Node fromNode = this.zoneNodeMap.get(fromZoneId);
                 if (fromNode != null) {
-                    lcpTree.calculate(fromNode.getId().index(), 0, PERSON, vehicle);
+                    lcpTree.calculate(fromNode.getId().index(), true);
 
                     for (T toZoneId : this.destinationZones) {
                         Node toNode = this.zoneNodeMap.get(toZoneId);
                         if (toNode != null) {
                             int nodeIndex = toNode.getId().index();
 
-                            int[] linksTravelled = lcpTree.getLinkArray(nodeIndex);
+                            int[] linksTravelled = lcpTree.getLinks(nodeIndex).stream()
+                                    .mapToInt(l -> (int) l.getAttributes().getAttribute("edgeID")).toArray();
                             double tt = lcpTree.getTime(nodeIndex);
                             double dist = lcpTree.getDistance(nodeIndex);
                             double cost = lcpTree.getCost(nodeIndex);
@@ -147,7 +139,7 @@ public final class GeometryCalculator {
                             this.geometryData.costMatrix.set(fromZoneId, toZoneId, (float) cost);
 
                             for(int i = 0 ; i < attributeCount ; i++) {
-                                double attr = lcpTree.getAttribute(nodeIndex,i);
+                                double attr = lcpTree.getValue(nodeIndex,i);
                                 this.geometryData.attributeMatrices.get(attributeNames[i]).add(fromZoneId, toZoneId, (float) attr);
                             }
                         }
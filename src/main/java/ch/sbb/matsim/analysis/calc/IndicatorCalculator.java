@@ -6,13 +6,13 @@ package ch.sbb.matsim.analysis.calc;
 
 import routing.TravelAttribute;
 import ch.sbb.matsim.analysis.data.IndicatorData;
-import ch.sbb.matsim.graph.Graph;
+import ch.sbb.matsim.analysis.matrix.FloatMatrix;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-import ch.sbb.matsim.graph.LeastCostPathTree2;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
@@ -22,6 +22,10 @@ import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleUtils;
+import routing.graph.ContractionHierarchy;
+import routing.graph.PhastHierarchy;
+import routing.graph.PhastTree;
+import routing.graph.SpeedyGraph;
 
 /**
  * Calculates zone-to-zone matrices containing a number of performance indicators related to modes routed on a network.
@@ -36,6 +40,9 @@ import org.matsim.vehicles.VehicleUtils;
  * - this results in n x n travel times per zone-to-zone combination.
  * - average the n x n travel times and store this value as the zone-to-zone travel time.
  *
+ * Trees are calculated with PHAST upon a contraction hierarchy of the network, which is built once per travel
+ * disutility and can be re-used for several batches of origins (see {@link #buildHierarchy}).
+ *
  * @author mrieser / SBB
  */
 public final class IndicatorCalculator {
@@ -47,10 +54,41 @@ public final class IndicatorCalculator {
                                                  TravelTime travelTime, TravelDisutility travelDisutility,
                                                  LinkedHashMap<String, TravelAttribute> travelAttributes,
                                                  Vehicle vehicle, int numberOfThreads) {
-        Graph routingGraph = new Graph(routingNetwork);
+        PhastHierarchy hierarchy = buildHierarchy(routingNetwork, travelTime, travelDisutility, travelAttributes, vehicle);
+        return calculate(hierarchy, origins, destinations, zoneNodeMap,
+                travelAttributes == null ? null : travelAttributes.keySet(), numberOfThreads);
+    }
+
+    /**
+     * Builds the contraction hierarchy for the given travel disutility, with the travel attributes summed along each
+     * edge in the order of the given map.
+     */
+    public static PhastHierarchy buildHierarchy(Network routingNetwork, TravelTime travelTime, TravelDisutility travelDisutility,
+                                                LinkedHashMap<String, TravelAttribute> travelAttributes, Vehicle vehicle) {
+        if(vehicle == null) {
+            vehicle = VehicleUtils.getFactory().createVehicle(Id.create("theVehicle", Vehicle.class), VehicleUtils.getDefaultVehicleType());
+        }
+        Person person = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
+        SpeedyGraph routingGraph = new SpeedyGraph(routingNetwork, travelTime, travelDisutility, person, vehicle);
+
+        double[][] attributeValues = null;
+        if(travelAttributes != null) {
+            TravelAttribute[] attributes = travelAttributes.values().toArray(new TravelAttribute[0]);
+            attributeValues = new double[attributes.length][Id.getNumberOfIds(Link.class)];
+            for(Link link : routingNetwork.getLinks().values()) {
+                for(int i = 0 ; i < attributes.length ; i++) {
+                    attributeValues[i][link.getId().index()] = attributes[i].getTravelAttribute(link, travelDisutility);
+                }
+            }
+        }
+        return new PhastHierarchy(new ContractionHierarchy(routingGraph), attributeValues);
+    }
+
+    public static <T> IndicatorData<T> calculate(PhastHierarchy hierarchy, Set<T> origins, Set<T> destinations, Map<T, Node> zoneNodeMap,
+                                                 Set<String> attributeNames, int numberOfThreads) {
 
         // prepare calculation
-        IndicatorData<T> networkIndicators = new IndicatorData<>(origins, destinations, travelAttributes.keySet());
+        IndicatorData<T> networkIndicators = new IndicatorData<>(origins, destinations, attributeNames);
 
         // do calculation
         ConcurrentLinkedQueue<T> originZones = new ConcurrentLinkedQueue<>(origins);
@@ -58,8 +96,8 @@ public final class IndicatorCalculator {
         Counter counter = new Counter("NetworkRouting zone ", " / " + origins.size());
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
-            RowWorker<T> worker = new RowWorker<>(originZones, destinations, routingGraph, zoneNodeMap, networkIndicators,
-                    travelTime, travelDisutility, travelAttributes, vehicle, counter);
+            RowWorker<T> worker = new RowWorker<>(originZones, destinations, hierarchy, zoneNodeMap, networkIndicators,
+                    attributeNames, counter);
             threads[i] = new Thread(worker, "NetworkRouting-" + i);
             threads[i].start();
         }
@@ -79,42 +117,46 @@ public final class IndicatorCalculator {
     private static class RowWorker<T> implements Runnable {
         private final ConcurrentLinkedQueue<T> originZones;
         private final Set<T> destinationZones;
-        private final Graph graph;
+        private final PhastHierarchy hierarchy;
         private final Map<T, Node> zoneNodeMap;
         private final IndicatorData<T> indicatorData;
-        private final TravelTime travelTime;
-        private final TravelDisutility travelDisutility;
-        private final TravelAttribute[] travelAttributes;
-        private final String[] attributeNames;
+        private final FloatMatrix[] attributeMatrices;
         private final int attributeCount;
-        private final Vehicle vehicle;
+        private final int[] destIndices;
+        private final int[] destNodeIndices;
         private final Counter counter;
 
-        private final static Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
-
-        RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, Graph graph, Map<T, Node> zoneNodeMap,
-                  IndicatorData<T> indicatorData, TravelTime travelTime, TravelDisutility travelDisutility,
-                  LinkedHashMap<String, TravelAttribute> travelAttributes, Vehicle vehicle, Counter counter) {
+        RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, PhastHierarchy hierarchy, Map<T, Node> zoneNodeMap,
+                  IndicatorData<T> indicatorData, Set<String> attributeNames, Counter counter) {
             this.originZones = originZones;
             this.destinationZones = destinationZones;
-            this.graph = graph;
+            this.hierarchy = hierarchy;
             this.zoneNodeMap = zoneNodeMap;
             this.indicatorData = indicatorData;
-            this.travelTime = travelTime;
-            this.travelDisutility = travelDisutility;
-            this.attributeCount = travelAttributes == null ? 0 : travelAttributes.size();
-            this.travelAttributes = travelAttributes == null ? null : travelAttributes.values().toArray(new TravelAttribute[attributeCount]);
-            this.attributeNames = travelAttributes == null ? null : travelAttributes.keySet().toArray(new String[attributeCount]);
-            if(vehicle != null) {
-                this.vehicle = vehicle;
-            } else {
-                this.vehicle = VehicleUtils.getFactory().createVehicle(Id.create("theVehicle", Vehicle.class), VehicleUtils.getDefaultVehicleType());
+            this.attributeCount = attributeNames == null ? 0 : attributeNames.size();
+            this.attributeMatrices = new FloatMatrix[attributeCount];
+            int a = 0;
+            if (attributeNames != null) {
+                for (String attributeName : attributeNames) {
+                    this.attributeMatrices[a++] = indicatorData.attributeMatrices.get(attributeName);
+                }
+            }
+
+            // resolve matrix indices and nodes once, in the iteration order of destinationZones
+            this.destIndices = new int[destinationZones.size()];
+            this.destNodeIndices = new int[destinationZones.size()];
+            int d = 0;
+            for (T toZoneId : destinationZones) {
+                Node toNode = zoneNodeMap.get(toZoneId);
+                this.destIndices[d] = indicatorData.dest2index.get(toZoneId);
+                this.destNodeIndices[d] = toNode != null ? toNode.getId().index() : -1;
+                d++;
             }
             this.counter = counter;
         }
 
         public void run() {
-            LeastCostPathTree2 lcpTree = new LeastCostPathTree2(this.graph, this.travelTime, this.travelDisutility, this.travelAttributes);
+            PhastTree lcpTree = new PhastTree(this.hierarchy);
             while (true) {
                 T fromZoneId = this.originZones.poll();
                 if (fromZoneId == null) {
@@ -124,31 +166,34 @@ public final class IndicatorCalculator {
                 this.counter.incCounter();
                 Node fromNode = this.zoneNodeMap.get(fromZoneId);
                 if (fromNode != null) {
-                    lcpTree.calculate(fromNode.getId().index(), 0, PERSON, vehicle);
+                    lcpTree.calculate(fromNode.getId().index(), true);
+                    int fromIndex = this.indicatorData.orig2index.get(fromZoneId);
 
+                    int d = 0;
                     for (T toZoneId : this.destinationZones) {
-                        Node toNode = this.zoneNodeMap.get(toZoneId);
-                        if (toNode != null) {
-                            int nodeIndex = toNode.getId().index();
+                        int toIndex = this.destIndices[d];
+                        int nodeIndex = this.destNodeIndices[d];
+                        d++;
+                        if (nodeIndex >= 0) {
                             double tt = lcpTree.getTime(nodeIndex);
                             double dist = lcpTree.getDistance(nodeIndex);
                             double cost = lcpTree.getCost(nodeIndex);
                             int nodeCount = lcpTree.getLinksUsed(nodeIndex);
 
-                            this.indicatorData.travelTimeMatrix.add(fromZoneId, toZoneId, (float) tt);
-                            this.indicatorData.distanceMatrix.add(fromZoneId, toZoneId, (float) dist);
-                            this.indicatorData.costMatrix.set(fromZoneId, toZoneId, (float) cost);
-                            this.indicatorData.linkCountMatrix.add(fromZoneId, toZoneId, (short) nodeCount);
+                            this.indicatorData.travelTimeMatrix.addByIndex(fromIndex, toIndex, (float) tt);
+                            this.indicatorData.distanceMatrix.addByIndex(fromIndex, toIndex, (float) dist);
+                            this.indicatorData.costMatrix.setByIndex(fromIndex, toIndex, (float) cost);
+                            this.indicatorData.linkCountMatrix.addByIndex(fromIndex, toIndex, (short) nodeCount);
 
                             for(int i = 0 ; i < attributeCount ; i++) {
-                                double attr = lcpTree.getAttribute(nodeIndex, i);
-                                this.indicatorData.attributeMatrices.get(attributeNames[i]).add(fromZoneId, toZoneId, (float) attr);
+                                double attr = lcpTree.getValue(nodeIndex, i);
+                                this.attributeMatrices[i].addByIndex(fromIndex, toIndex, (float) attr);
                             }
                         } else {
                             // this might happen if a zone has no geometry, for whatever reason...
                             System.out.println("Entry " + fromZoneId + "-" + toZoneId + " has no geometry.");
-                            this.indicatorData.travelTimeMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                            this.indicatorData.distanceMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
+                            this.indicatorData.travelTimeMatrix.setByIndex(fromIndex, toIndex, Float.POSITIVE_INFINITY);
+                            this.indicatorData.distanceMatrix.setByIndex(fromIndex, toIndex, Float.POSITIVE_INFINITY);
                         }
                     }
                 } else {
@@ -2,27 +2,24 @@ package ch.sbb.matsim.analysis.calc;
 
 import ch.sbb.matsim.analysis.RooftopUtils;
 import ch.sbb.matsim.analysis.data.PtData;
+import ch.sbb.matsim.analysis.data.StopAccessData;
 import ch.sbb.matsim.routing.pt.raptor.*;
-import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.TravelInfo;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.BiPredicate;
+import java.util.function.Supplier;
 import org.matsim.api.core.v01.Coord;
-import org.matsim.api.core.v01.Id;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
-import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
-import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 /**
  * Calculates zone-to-zone matrices containing a number of performance indicators related to public transport.
@@ -57,6 +54,11 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
  * to the calculation of m*n LeastCostPathTrees. In addition, it supports running the calculation in parallel to reduce the time
  * required to compute one matrix.
  *
+ * The trees are calculated as range queries (profile queries) per access stop: a single raptor run over the (extended) time
+ * window reports every useful departure together with its arrival at each stop, re-using the labels of later departures
+ * for earlier ones. Arrivals that are not improved by an earlier departure are not reported, so the connections passed to
+ * the rooftop algorithm are already mostly filtered. Arrivals without any pt part (walking from the access stop) are dropped.
+ *
  * If no connection can be found between two zones (can happen when there is no transit stop in a zone),
  * the corresponding matrix cells contain the value "0" for the perceived frequency, and "Infinity" for all other skim matrices.
  *
@@ -68,7 +70,19 @@ public class PtCalculator {
     }
 
     public static <T> PtData<T> calculatePtIndicators(SwissRailRaptorData raptorData, Set<T> origins, Set<T> destinations, Map<T, Coord> zoneCoordMap, double minDepartureTime,
-                                                      double maxDepartureTime, double stepSize_seconds, RaptorParameters parameters,
+                                                      double maxDepartureTime, RaptorParameters parameters,
+                                                      int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector) {
+        StopAccessData<T> stopAccess = new StopAccessData<>(raptorData, zoneCoordMap, parameters);
+        return calculatePtIndicators(raptorData, origins, destinations, stopAccess, minDepartureTime, maxDepartureTime,
+                parameters, numberOfThreads, trainDetector);
+    }
+
+    /**
+     * Same as above, but with access and egress stops of all zones calculated beforehand. The table must have been built
+     * upon the same raptor data and stop search parameters, and can be re-used for multiple calls.
+     */
+    public static <T> PtData<T> calculatePtIndicators(SwissRailRaptorData raptorData, Set<T> origins, Set<T> destinations, StopAccessData<T> stopAccess, double minDepartureTime,
+                                                      double maxDepartureTime, RaptorParameters parameters,
                                                       int numberOfThreads, BiPredicate<TransitLine, TransitRoute> trainDetector) {
         // prepare calculation
         PtData<T> pti = new PtData<>(origins, destinations);
@@ -77,11 +91,11 @@ public class PtCalculator {
         // do calculation
         ConcurrentLinkedQueue<T> originZones = new ConcurrentLinkedQueue<>(origins);
 
-        Counter counter = new Counter("PT-FrequencyMatrix-" + Time.writeTime(minDepartureTime) + "-" + Time.writeTime(maxDepartureTime) + " zone ", " / " + zoneCoordMap.size());
+        Counter counter = new Counter("PT-FrequencyMatrix-" + Time.writeTime(minDepartureTime) + "-" + Time.writeTime(maxDepartureTime) + " zone ", " / " + origins.size());
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
             SwissRailRaptor raptor = new SwissRailRaptor.Builder(raptorData, config).build();
-            RowWorker<T> worker = new RowWorker<>(originZones, destinations, zoneCoordMap, pti, raptor, parameters, minDepartureTime, maxDepartureTime, stepSize_seconds, counter, trainDetector);
+            RowWorker<T> worker = new RowWorker<>(originZones, destinations, stopAccess, pti, raptor, parameters, minDepartureTime, maxDepartureTime, counter, trainDetector);
             threads[i] = new Thread(worker, "PT-FrequencyMatrix-" + Time.writeTime(minDepartureTime) + "-" + Time.writeTime(maxDepartureTime) + "-" + i);
             threads[i].start();
         }
@@ -96,30 +110,32 @@ public class PtCalculator {
         }
 
         for (T fromZoneId : origins) {
+            int i = pti.orig2index.get(fromZoneId);
             for (T toZoneId : destinations) {
-                float count = pti.dataCountMatrix.get(fromZoneId, toZoneId);
+                int j = pti.dest2index.get(toZoneId);
+                float count = pti.dataCountMatrix.getByIndex(i, j);
                 if (count == 0) {
-                    pti.adaptionTimeMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.frequencyMatrix.set(fromZoneId, toZoneId, 0);
-                    pti.distanceMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.travelTimeMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.accessTimeMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.egressTimeMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.transferCountMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.trainDistanceShareMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
-                    pti.trainTravelTimeShareMatrix.set(fromZoneId, toZoneId, Float.POSITIVE_INFINITY);
+                    pti.adaptionTimeMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.frequencyMatrix.setByIndex(i, j, 0);
+                    pti.distanceMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.travelTimeMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.accessTimeMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.egressTimeMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.transferCountMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.trainDistanceShareMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
+                    pti.trainTravelTimeShareMatrix.setByIndex(i, j, Float.POSITIVE_INFINITY);
                 } else {
                     float avgFactor = 1.0f / count;
-                    float adaptionTime = pti.adaptionTimeMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.distanceMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.travelTimeMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.accessTimeMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.egressTimeMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.trainDistanceShareMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.trainTravelTimeShareMatrix.multiply(fromZoneId, toZoneId, avgFactor);
-                    pti.transferCountMatrix.multiply(fromZoneId, toZoneId, avgFactor);
+                    float adaptionTime = pti.adaptionTimeMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.distanceMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.travelTimeMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.accessTimeMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.egressTimeMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.trainDistanceShareMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.trainTravelTimeShareMatrix.multiplyByIndex(i, j, avgFactor);
+                    pti.transferCountMatrix.multiplyByIndex(i, j, avgFactor);
                     float frequency = (float) ((maxDepartureTime - minDepartureTime) / adaptionTime / 4.0);
-                    pti.frequencyMatrix.set(fromZoneId, toZoneId, frequency);
+                    pti.frequencyMatrix.setByIndex(i, j, frequency);
                 }
             }
         }
@@ -130,26 +146,25 @@ public class PtCalculator {
     static class RowWorker<T> implements Runnable {
         private final ConcurrentLinkedQueue<T> originZones;
         private final Set<T> destinationZones;
-        private final Map<T, Coord> zoneCoordMap;
+        private final StopAccessData<T> stopAccess;
         private final PtData<T> pti;
         private final SwissRailRaptor raptor;
         private final RaptorParameters parameters;
         private final double minDepartureTime;
         private final double maxDepartureTime;
-        private final double stepSize;
         private final Counter counter;
         private final BiPredicate<TransitLine, TransitRoute> trainDetector;
+        private final StopConnections stopConnections = new StopConnections();
 
-        RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, Map<T, Coord> zoneCoordMap, PtData<T> pti, SwissRailRaptor raptor, RaptorParameters parameters, double minDepartureTime, double maxDepartureTime, double stepSize, Counter counter, BiPredicate<TransitLine, TransitRoute> trainDetector) {
+        RowWorker(ConcurrentLinkedQueue<T> originZones, Set<T> destinationZones, StopAccessData<T> stopAccess, PtData<T> pti, SwissRailRaptor raptor, RaptorParameters parameters, double minDepartureTime, double maxDepartureTime, Counter counter, BiPredicate<TransitLine, TransitRoute> trainDetector) {
             this.originZones = originZones;
             this.destinationZones = destinationZones;
-            this.zoneCoordMap = zoneCoordMap;
+            this.stopAccess = stopAccess;
             this.pti = pti;
             this.raptor = raptor;
             this.parameters = parameters;
             this.minDepartureTime = minDepartureTime;
             this.maxDepartureTime = maxDepartureTime;
-            this.stepSize = stepSize;
             this.counter = counter;
             this.trainDetector = trainDetector;
         }
@@ -162,54 +177,41 @@ public class PtCalculator {
                 }
 
                 this.counter.incCounter();
-                Coord fromCoord = this.zoneCoordMap.get(fromZoneId);
-                if (fromCoord != null)  {
-                    calcForRow(fromZoneId, fromCoord);
+                int fromZoneIndex = this.stopAccess.getZoneIndex(fromZoneId);
+                if (fromZoneIndex >= 0)  {
+                    calcForRow(fromZoneId, fromZoneIndex);
                 }
             }
         }
 
-        private void calcForRow(T fromZoneId, Coord fromCoord) {
-            double walkSpeed = this.parameters.getBeelineWalkSpeed();
-
-            Collection<TransitStopFacility> fromStops = findStopCandidates(fromCoord, this.raptor, this.parameters);
-            Map<Id<TransitStopFacility>, Double> accessTimes = new HashMap<>();
-            for (TransitStopFacility stop : fromStops) {
-                double distance = CoordUtils.calcEuclideanDistance(fromCoord, stop.getCoord());
-                double accessTime = distance / walkSpeed;
-                accessTimes.put(stop.getId(), accessTime);
-            }
-
-            List<Map<Id<TransitStopFacility>, TravelInfo>> trees = new ArrayList<>();
+        private void calcForRow(T fromZoneId, int fromZoneIndex) {
+            // connections to each stop reached from any of the access stops, without egress time
+            StopConnections stopConnections = this.stopConnections;
+            stopConnections.clear();
 
             double timeWindow = this.maxDepartureTime - this.minDepartureTime;
-            double endTime = this.maxDepartureTime + timeWindow;
-            for (double time = this.minDepartureTime - timeWindow; time < endTime; time += this.stepSize) {
-                Map<Id<TransitStopFacility>, TravelInfo> tree = this.raptor.calcTree(fromStops, time, this.parameters, null);
-                trees.add(tree);
+            double earliestDepartureTime = this.minDepartureTime - timeWindow;
+            double latestDepartureTime = this.maxDepartureTime + timeWindow;
+            for (int i = this.stopAccess.getFirst(fromZoneIndex); i < this.stopAccess.getEnd(fromZoneIndex); i++) {
+                double accessTime = this.stopAccess.getWalkTime(i);
+                this.raptor.calcTreesObservable(this.stopAccess.getStop(i), earliestDepartureTime, latestDepartureTime, this.parameters, null,
+                        (departureTime, arrivalStop, arrivalTime, transferCount, route) -> {
+                            if (arrivalTime > departureTime) {
+                                stopConnections.add(arrivalStop.getId().index(), departureTime, arrivalTime, accessTime, transferCount, route);
+                            }
+                        });
             }
 
             for (T toZoneId : this.destinationZones) {
-                Coord toCoord = this.zoneCoordMap.get(toZoneId);
-                if (toCoord != null) {
-                        calcForOD(fromZoneId, toZoneId, toCoord, accessTimes, trees);
+                int toZoneIndex = this.stopAccess.getZoneIndex(toZoneId);
+                if (toZoneIndex >= 0) {
+                        calcForOD(fromZoneId, toZoneId, toZoneIndex, stopConnections);
                 }
             }
         }
 
-        private void calcForOD(T fromZoneId, T toZoneId, Coord toCoord, Map<Id<TransitStopFacility>, Double> accessTimes,
-                               List<Map<Id<TransitStopFacility>, TravelInfo>> trees) {
-            double walkSpeed = this.parameters.getBeelineWalkSpeed();
-
-            Collection<TransitStopFacility> toStops = findStopCandidates(toCoord, this.raptor, this.parameters);
-            Map<Id<TransitStopFacility>, Double> egressTimes = new HashMap<>();
-            for (TransitStopFacility stop : toStops) {
-                double distance = CoordUtils.calcEuclideanDistance(stop.getCoord(), toCoord);
-                double egressTime = distance / walkSpeed;
-                egressTimes.put(stop.getId(), egressTime);
-            }
-
-            List<RooftopUtils.ODConnection> connections = buildODConnections(trees, accessTimes, egressTimes);
+        private void calcForOD(T fromZoneId, T toZoneId, int toZoneIndex, StopConnections stopConnections) {
+            List<RooftopUtils.ODConnection> connections = buildODConnections(stopConnections, toZoneIndex);
             if (connections.isEmpty()) {
                 return;
             }
@@ -218,7 +220,9 @@ public class PtCalculator {
 
             double avgAdaptionTime = RooftopUtils.calcAverageAdaptionTime(connections, minDepartureTime, maxDepartureTime);
 
-            this.pti.adaptionTimeMatrix.add(fromZoneId, toZoneId, (float) avgAdaptionTime);
+            int fromIndex = this.pti.orig2index.get(fromZoneId);
+            int toIndex = this.pti.dest2index.get(toZoneId);
+            this.pti.adaptionTimeMatrix.addByIndex(fromIndex, toIndex, (float) avgAdaptionTime);
 
             Map<RooftopUtils.ODConnection, Double> connectionShares = RooftopUtils.calcConnectionShares(connections, minDepartureTime, maxDepartureTime);
 
@@ -236,7 +240,7 @@ public class PtCalculator {
                 RooftopUtils.ODConnection connection = e.getKey();
                 double share = e.getValue();
 
-                accessTime += share * accessTimes.get(connection.travelInfo.departureStop).floatValue();
+                accessTime += share * (float) connection.accessTime;
                 egressTime += share * (float) connection.egressTime;
                 transferCount += share * (float) connection.transferCount;
                 travelTime += share * (float) connection.totalTravelTime();
@@ -246,7 +250,7 @@ public class PtCalculator {
                 double connTotalInVehTime = 0;
                 double connTrainInVehTime = 0;
 
-                RaptorRoute route = connection.travelInfo.getRaptorRoute();
+                RaptorRoute route = connection.route.get();
                 for (RaptorRoute.RoutePart part : route.getParts()) {
                     if (part.line != null) {
                         // it's a non-transfer part, an actual pt stage
@@ -273,44 +277,120 @@ public class PtCalculator {
             float trainShareByTravelTime = (float) (trainInVehTime / totalInVehTime);
             float trainShareByDistance = (float) (trainDistance / totalDistance);
 
-            this.pti.accessTimeMatrix.add(fromZoneId, toZoneId, accessTime);
-            this.pti.egressTimeMatrix.add(fromZoneId, toZoneId, egressTime);
-            this.pti.transferCountMatrix.add(fromZoneId, toZoneId, transferCount);
-            this.pti.travelTimeMatrix.add(fromZoneId, toZoneId, travelTime);
-            this.pti.distanceMatrix.add(fromZoneId, toZoneId, (float) totalDistance);
-            this.pti.trainDistanceShareMatrix.add(fromZoneId, toZoneId, trainShareByDistance);
-            this.pti.trainTravelTimeShareMatrix.add(fromZoneId, toZoneId, trainShareByTravelTime);
+            this.pti.accessTimeMatrix.addByIndex(fromIndex, toIndex, accessTime);
+            this.pti.egressTimeMatrix.addByIndex(fromIndex, toIndex, egressTime);
+            this.pti.transferCountMatrix.addByIndex(fromIndex, toIndex, transferCount);
+            this.pti.travelTimeMatrix.addByIndex(fromIndex, toIndex, travelTime);
+            this.pti.distanceMatrix.addByIndex(fromIndex, toIndex, (float) totalDistance);
+            this.pti.trainDistanceShareMatrix.addByIndex(fromIndex, toIndex, trainShareByDistance);
+            this.pti.trainTravelTimeShareMatrix.addByIndex(fromIndex, toIndex, trainShareByTravelTime);
 
-            this.pti.dataCountMatrix.add(fromZoneId, toZoneId, 1);
+            this.pti.dataCountMatrix.addByIndex(fromIndex, toIndex, 1);
         }
 
-        private List<RooftopUtils.ODConnection> buildODConnections(List<Map<Id<TransitStopFacility>, TravelInfo>> trees, Map<Id<TransitStopFacility>, Double> accessTimes, Map<Id<TransitStopFacility>, Double> egressTimes) {
+        private List<RooftopUtils.ODConnection> buildODConnections(StopConnections stopConnections, int toZoneIndex) {
             List<RooftopUtils.ODConnection> connections = new ArrayList<>();
 
-            for (Map<Id<TransitStopFacility>, TravelInfo> tree : trees) {
-                for (Map.Entry<Id<TransitStopFacility>, Double> egressEntry : egressTimes.entrySet()) {
-                    Id<TransitStopFacility> egressStopId = egressEntry.getKey();
-                    Double egressTime = egressEntry.getValue();
-                    TravelInfo info = tree.get(egressStopId);
-                    if (info != null && !info.isWalkOnly()) {
-                        Double accessTime = accessTimes.get(info.departureStop);
-                        RooftopUtils.ODConnection connection = new RooftopUtils.ODConnection(info.ptDepartureTime, info.ptTravelTime, accessTime, egressTime, info.transferCount, info);
-                        connections.add(connection);
+            for (int i = this.stopAccess.getFirst(toZoneIndex); i < this.stopAccess.getEnd(toZoneIndex); i++) {
+                double egressTime = this.stopAccess.getWalkTime(i);
+                for (int c = stopConnections.first(this.stopAccess.getStopIndex(i)); c >= 0; c = stopConnections.next[c]) {
+                    if (stopConnections.usesPt(c)) {
+                        connections.add(stopConnections.toODConnection(c, egressTime));
                     }
                 }
             }
 
             return connections;
         }
+    }
+
+    /**
+     * Connections of one origin to all reached stops, stored in primitive arrays that are re-used for all origins of a
+     * worker. The connections arriving at the same stop are chained by index, starting from {@link #first(int)}.
+     */
+    static class StopConnections {
+        private static final byte PT_UNKNOWN = 0;
+        private static final byte PT_USED = 1;
+        private static final byte PT_NOT_USED = 2;
+
+        private int[] head = new int[0];
+        private int size = 0;
+        private int[] next = new int[1024];
+        private double[] departureTime = new double[1024];
+        private double[] arrivalTime = new double[1024];
+        private double[] accessTime = new double[1024];
+        private int[] transferCount = new int[1024];
+        private Supplier<RaptorRoute>[] route = newRouteArray(1024);
+        private byte[] ptState = new byte[1024];
+
+        void clear() {
+            Arrays.fill(this.head, -1);
+            Arrays.fill(this.route, 0, this.size, null);
+            Arrays.fill(this.ptState, 0, this.size, PT_UNKNOWN);
+            this.size = 0;
+        }
 
-        private static Collection<TransitStopFacility> findStopCandidates(Coord coord, SwissRailRaptor raptor, RaptorParameters parameters) {
-            Collection<TransitStopFacility> stops = raptor.getUnderlyingData().findNearbyStops(coord.getX(), coord.getY(), parameters.getSearchRadius());
-            if (stops.isEmpty()) {
-                TransitStopFacility nearest = raptor.getUnderlyingData().findNearestStop(coord.getX(), coord.getY());
-                double nearestStopDistance = CoordUtils.calcEuclideanDistance(coord, nearest.getCoord());
-                stops = raptor.getUnderlyingData().findNearbyStops(coord.getX(), coord.getY(), nearestStopDistance + parameters.getExtensionRadius());
+        void add(int stopIndex, double departureTime, double arrivalTime, double accessTime, int transferCount, Supplier<RaptorRoute> route) {
+            if (stopIndex >= this.head.length) {
+                int oldLength = this.head.length;
+                this.head = Arrays.copyOf(this.head, Math.max(stopIndex + 1, oldLength * 2));
+                Arrays.fill(this.head, oldLength, this.head.length, -1);
             }
-            return stops;
+            if (this.size == this.next.length) {
+                int newLength = this.size * 2;
+                this.next = Arrays.copyOf(this.next, newLength);
+                this.departureTime = Arrays.copyOf(this.departureTime, newLength);
+                this.arrivalTime = Arrays.copyOf(this.arrivalTime, newLength);
+                this.accessTime = Arrays.copyOf(this.accessTime, newLength);
+                this.transferCount = Arrays.copyOf(this.transferCount, newLength);
+                this.route = Arrays.copyOf(this.route, newLength);
+                this.ptState = Arrays.copyOf(this.ptState, newLength);
+            }
+            int c = this.size++;
+            this.departureTime[c] = departureTime;
+            this.arrivalTime[c] = arrivalTime;
+            this.accessTime[c] = accessTime;
+            this.transferCount[c] = transferCount;
+            this.route[c] = route;
+            this.next[c] = this.head[stopIndex];
+            this.head[stopIndex] = c;
+        }
+
+        /**
+         * @return index of the last connection added for the given stop, or -1 if the stop was not reached
+         */
+        int first(int stopIndex) {
+            return stopIndex < this.head.length ? this.head[stopIndex] : -1;
+        }
+
+        /**
+         * @return false if the connection only walks from the access stop (e.g. a transfer to a nearby stop), which must not
+         * be counted as a pt connection. The route is extracted on the first call and kept for the connection.
+         */
+        boolean usesPt(int c) {
+            if (this.ptState[c] == PT_UNKNOWN) {
+                RaptorRoute raptorRoute = this.route[c].get();
+                boolean usesPt = false;
+                for (RaptorRoute.RoutePart part : raptorRoute.getParts()) {
+                    if (part.line != null) {
+                        usesPt = true;
+                        break;
+                    }
+                }
+                this.route[c] = () -> raptorRoute;
+                this.ptState[c] = usesPt ? PT_USED : PT_NOT_USED;
+            }
+            return this.ptState[c] == PT_USED;
+        }
+
+        RooftopUtils.ODConnection toODConnection(int c, double egressTime) {
+            return new RooftopUtils.ODConnection(this.departureTime[c], this.arrivalTime[c] - this.departureTime[c],
+                    this.accessTime[c], egressTime, this.transferCount[c], this.route[c]);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Supplier<RaptorRoute>[] newRouteArray(int length) {
+            return new Supplier[length];
         }
     }
 }
@@ -0,0 +1,118 @@
+package ch.sbb.matsim.analysis.data;
+
+import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Walk access and egress between each zone and its candidate stops, stored as a compact table (the stops of zone i are
+ * the entries getFirst(i) to getEnd(i) - 1). Beeline walk times are symmetric, so the same entries are used for access
+ * and egress.
+ *
+ * The table only depends on the stop locations, the zone coordinates and the stop search parameters, so it can be
+ * shared by all time windows calculated on the same schedule.
+ */
+public class StopAccessData<T> {
+
+    private final static Logger log = Logger.getLogger(StopAccessData.class);
+
+    private final Map<T, Integer> zone2index;
+    private final int[] first;
+    private final TransitStopFacility[] stops;
+    private final int[] stopIndices;
+    private final double[] walkTimes;
+
+    private final double searchRadius;
+    private final double extensionRadius;
+    private final double walkSpeed;
+
+    public StopAccessData(SwissRailRaptorData raptorData, Map<T, Coord> zoneCoordMap, RaptorParameters parameters) {
+        this.searchRadius = parameters.getSearchRadius();
+        this.extensionRadius = parameters.getExtensionRadius();
+        this.walkSpeed = parameters.getBeelineWalkSpeed();
+
+        this.zone2index = new HashMap<>((int) (zoneCoordMap.size() * 1.5));
+        this.first = new int[zoneCoordMap.size() + 1];
+        List<TransitStopFacility> stopList = new ArrayList<>();
+        List<Double> walkTimeList = new ArrayList<>();
+        int zoneIndex = 0;
+        for (Map.Entry<T, Coord> e : zoneCoordMap.entrySet()) {
+            Coord coord = e.getValue();
+            this.zone2index.put(e.getKey(), zoneIndex);
+            if (coord != null) {
+                for (TransitStopFacility stop : findStopCandidates(coord, raptorData)) {
+                    double distance = CoordUtils.calcEuclideanDistance(coord, stop.getCoord());
+                    stopList.add(stop);
+                    walkTimeList.add(distance / this.walkSpeed);
+                }
+            }
+            zoneIndex++;
+            this.first[zoneIndex] = stopList.size();
+        }
+
+        this.stops = stopList.toArray(new TransitStopFacility[0]);
+        this.stopIndices = new int[this.stops.length];
+        this.walkTimes = new double[this.stops.length];
+        for (int i = 0; i < this.stops.length; i++) {
+            this.stopIndices[i] = this.stops[i].getId().index();
+            this.walkTimes[i] = walkTimeList.get(i);
+        }
+        log.info("Found " + this.stops.length + " access/egress stops for " + zoneCoordMap.size() + " zones.");
+    }
+
+    private Collection<TransitStopFacility> findStopCandidates(Coord coord, SwissRailRaptorData raptorData) {
+        Collection<TransitStopFacility> stops = raptorData.findNearbyStops(coord.getX(), coord.getY(), this.searchRadius);
+        if (stops.isEmpty()) {
+            TransitStopFacility nearest = raptorData.findNearestStop(coord.getX(), coord.getY());
+            double nearestStopDistance = CoordUtils.calcEuclideanDistance(coord, nearest.getCoord());
+            stops = raptorData.findNearbyStops(coord.getX(), coord.getY(), nearestStopDistance + this.extensionRadius);
+        }
+        return stops;
+    }
+
+    /**
+     * @return true if the table was built with the same stop search parameters
+     */
+    public boolean isValidFor(RaptorParameters parameters) {
+        return this.searchRadius == parameters.getSearchRadius() &&
+                this.extensionRadius == parameters.getExtensionRadius() &&
+                this.walkSpeed == parameters.getBeelineWalkSpeed();
+    }
+
+    /**
+     * @return index of the zone in this table, or -1 if the zone is unknown
+     */
+    public int getZoneIndex(T zone) {
+        Integer index = this.zone2index.get(zone);
+        return index == null ? -1 : index;
+    }
+
+    public int getFirst(int zoneIndex) {
+        return this.first[zoneIndex];
+    }
+
+    public int getEnd(int zoneIndex) {
+        return this.first[zoneIndex + 1];
+    }
+
+    public TransitStopFacility getStop(int i) {
+        return this.stops[i];
+    }
+
+    public int getStopIndex(int i) {
+        return this.stopIndices[i];
+    }
+
+    public double getWalkTime(int i) {
+        return this.walkTimes[i];
+    }
+}
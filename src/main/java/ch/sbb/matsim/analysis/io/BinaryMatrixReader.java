@@ -0,0 +1,111 @@
+package ch.sbb.matsim.analysis.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads matrices written by {@link BinaryMatrixWriter}. Only the header is parsed, the matrix values
+ * themselves are memory-mapped and thus loaded lazily by the operating system.
+ *
+ * The mapped buffers stay valid after construction, no file handle is kept open.
+ */
+public final class BinaryMatrixReader {
+
+    private final String[] origIds;
+    private final String[] destIds;
+    private final Map<String, Integer> orig2index = new LinkedHashMap<>();
+    private final Map<String, Integer> dest2index = new LinkedHashMap<>();
+    private final Map<String, FloatBuffer> matrices = new LinkedHashMap<>();
+
+    public BinaryMatrixReader(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(16);
+            while (start.hasRemaining()) {
+                if (channel.read(start) < 0) {
+                    throw new IOException("Unexpected end of file " + filename);
+                }
+            }
+            start.flip();
+            if (start.getInt() != BinaryMatrixWriter.MAGIC) {
+                throw new IOException("File " + filename + " is not a binary matrix file.");
+            }
+            int version = start.getInt();
+            if (version != BinaryMatrixWriter.VERSION) {
+                throw new IOException("Unsupported binary matrix version " + version + " in " + filename);
+            }
+            long dataOffset = start.getLong();
+
+            // the stream must not be closed, as this would close the channel as well. Reading ahead into the matrix
+            // data is fine, as it is mapped at absolute offsets
+            DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int origCount = header.readInt();
+            int destCount = header.readInt();
+            int matrixCount = header.readInt();
+            this.origIds = new String[origCount];
+            this.destIds = new String[destCount];
+            for (int i = 0; i < origCount; i++) {
+                this.origIds[i] = header.readUTF();
+                this.orig2index.put(this.origIds[i], i);
+            }
+            for (int i = 0; i < destCount; i++) {
+                this.destIds[i] = header.readUTF();
+                this.dest2index.put(this.destIds[i], i);
+            }
+            String[] names = new String[matrixCount];
+            for (int m = 0; m < matrixCount; m++) {
+                names[m] = header.readUTF();
+            }
+
+            long matrixBytes = (long) origCount * destCount * Float.BYTES;
+            if (matrixBytes > Integer.MAX_VALUE) {
+                throw new IOException("Matrices in " + filename + " are too large to be memory-mapped.");
+            }
+            for (int m = 0; m < matrixCount; m++) {
+                long offset = dataOffset + m * matrixBytes;
+                FloatBuffer matrix = channel.map(FileChannel.MapMode.READ_ONLY, offset, matrixBytes).asFloatBuffer();
+                this.matrices.put(names[m], matrix);
+            }
+        }
+    }
+
+    public String[] getOrigIds() {
+        return this.origIds;
+    }
+
+    public String[] getDestIds() {
+        return this.destIds;
+    }
+
+    public Set<String> getMatrixNames() {
+        return this.matrices.keySet();
+    }
+
+    /**
+     * @return the values of the requested matrix, in row-major order
+     */
+    public FloatBuffer getMatrix(String name) {
+        FloatBuffer matrix = this.matrices.get(name);
+        if (matrix == null) {
+            throw new IllegalArgumentException("No matrix named " + name);
+        }
+        return matrix.duplicate();
+    }
+
+    public float getByIndex(String name, int fromIndex, int toIndex) {
+        return this.matrices.get(name).get(fromIndex * this.destIds.length + toIndex);
+    }
+
+    public float get(String name, String fromZoneId, String toZoneId) {
+        return getByIndex(name, this.orig2index.get(fromZoneId), this.dest2index.get(toZoneId));
+    }
+}
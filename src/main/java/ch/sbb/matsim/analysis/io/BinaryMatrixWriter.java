@@ -0,0 +1,114 @@
+package ch.sbb.matsim.analysis.io;
+
+import com.google.common.math.LongMath;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes one or more origin-destination matrices of the same dimensions into a single binary file
+ * that can be memory-mapped by {@link BinaryMatrixReader}.
+ *
+ * File layout (all values big-endian, as used by {@link java.io.DataOutputStream} and {@link ByteBuffer}):
+ * - int: magic number (0x534B494D, "SKIM")
+ * - int: format version
+ * - long: byte offset of the first matrix
+ * - int: number of origins, int: number of destinations, int: number of matrices
+ * - origin ids, destination ids and matrix names, each written with {@link DataOutputStream#writeUTF(String)}
+ * - zero padding up to the offset of the first matrix (a multiple of 8 bytes)
+ * - for each matrix: origins x destinations floats, in row-major order
+ *
+ * Compared to the csv output, every cell uses exactly 4 bytes per matrix and no zone ids are repeated.
+ */
+public final class BinaryMatrixWriter {
+
+    private final static Logger log = Logger.getLogger(BinaryMatrixWriter.class);
+
+    final static int MAGIC = 0x534B494D;
+    final static int VERSION = 1;
+
+    private BinaryMatrixWriter() {
+    }
+
+    @FunctionalInterface
+    public interface CellValue {
+        float get(int fromIndex, int toIndex);
+    }
+
+    public static <T> void write(String filename, Map<T, Integer> orig2index, Map<T, Integer> dest2index,
+                                 LinkedHashMap<String, CellValue> matrices) throws IOException {
+        String[] fromZoneIds = getSortedIds(orig2index);
+        String[] toZoneIds = getSortedIds(dest2index);
+
+        ByteArrayOutputStream idBytes = new ByteArrayOutputStream();
+        DataOutputStream ids = new DataOutputStream(idBytes);
+        ids.writeInt(fromZoneIds.length);
+        ids.writeInt(toZoneIds.length);
+        ids.writeInt(matrices.size());
+        for (String id : fromZoneIds) {
+            ids.writeUTF(id);
+        }
+        for (String id : toZoneIds) {
+            ids.writeUTF(id);
+        }
+        for (String name : matrices.keySet()) {
+            ids.writeUTF(name);
+        }
+        ids.flush();
+
+        long dataOffset = 16 + idBytes.size();
+        dataOffset = (dataOffset + 7) / 8 * 8;
+
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(dataOffset);
+        header.put(idBytes.toByteArray());
+        header.position(0);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+
+            ByteBuffer row = ByteBuffer.allocate(toZoneIds.length * Float.BYTES);
+            for (Map.Entry<String, CellValue> e : matrices.entrySet()) {
+                log.info("Writing matrix " + e.getKey());
+                CellValue matrix = e.getValue();
+                for (int i = 0; i < fromZoneIds.length; i++) {
+                    if (LongMath.isPowerOfTwo(i + 1)) {
+                        log.info("Writing zone " + (i + 1) + " / " + fromZoneIds.length);
+                    }
+                    row.clear();
+                    for (int j = 0; j < toZoneIds.length; j++) {
+                        row.putFloat(matrix.get(i, j));
+                    }
+                    row.flip();
+                    writeFully(channel, row);
+                }
+            }
+        }
+        log.info("Finished writing " + filename);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static <T> String[] getSortedIds(Map<T, Integer> id2index) {
+        String[] ids = new String[id2index.size()];
+        for (Map.Entry<T, Integer> e : id2index.entrySet()) {
+            ids[e.getValue()] = e.getKey().toString();
+        }
+        return ids;
+    }
+}
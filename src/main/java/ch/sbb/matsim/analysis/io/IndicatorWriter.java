@@ -6,6 +6,7 @@ package ch.sbb.matsim.analysis.io;
 
 import ch.sbb.matsim.analysis.data.GeometryData;
 import ch.sbb.matsim.analysis.data.IndicatorData;
+import ch.sbb.matsim.analysis.matrix.FloatMatrix;
 import com.google.common.math.LongMath;
 import org.apache.log4j.Logger;
 import org.locationtech.jts.geom.LineString;
@@ -13,6 +14,7 @@ import org.matsim.core.utils.io.IOUtils;
 
 import java.io.*;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -57,41 +59,55 @@ public final class IndicatorWriter {
                 // Prep
                 T[] fromZoneIds = getSortedIds(indicatorData.orig2index);
                 T[] toZoneIds = getSortedIds(indicatorData.dest2index);
+                FloatMatrix[] attributeMatrices = new FloatMatrix[attributes.size()];
+                boolean[] perMetre = new boolean[attributes.size()];
+                int a = 0;
+                for(String attribute : attributes) {
+                    attributeMatrices[a] = indicatorData.attributeMatrices.get(attribute);
+                    perMetre[a] = !attribute.startsWith("c_");
+                    a++;
+                }
+                int[] shortestDistanceOrig = shortestDistanceData != null ? getIndices(fromZoneIds, shortestDistanceData.orig2index) : null;
+                int[] shortestDistanceDest = shortestDistanceData != null ? getIndices(toZoneIds, shortestDistanceData.dest2index) : null;
+                int[] leastTimeOrig = leastTimeData != null ? getIndices(fromZoneIds, leastTimeData.orig2index) : null;
+                int[] leastTimeDest = leastTimeData != null ? getIndices(toZoneIds, leastTimeData.dest2index) : null;
 
                 // Loop through zone IDs
                 int counter = 0;
-                for (T fromZoneId : fromZoneIds) {
+                for (int i = 0; i < fromZoneIds.length; i++) {
                     counter++;
                     if (LongMath.isPowerOfTwo(counter)) {
                         log.info("Processing zone " + counter + " / " + fromZoneIds.length);
                     }
-                    for (T toZoneId : toZoneIds) {
-                        if(indicatorData.linkCountMatrix.get(fromZoneId,toZoneId) > 0) {
-                            double distanceM = indicatorData.distanceMatrix.get(fromZoneId,toZoneId);
-                            double timeS = indicatorData.travelTimeMatrix.get(fromZoneId,toZoneId);
+                    String fromZoneId = fromZoneIds[i].toString();
+                    for (int j = 0; j < toZoneIds.length; j++) {
+                        short linkCount = indicatorData.linkCountMatrix.getByIndex(i, j);
+                        if(linkCount > 0) {
+                            double distanceM = indicatorData.distanceMatrix.getByIndex(i, j);
+                            double timeS = indicatorData.travelTimeMatrix.getByIndex(i, j);
                             Double distanceDetour = null;
                             if(shortestDistanceData != null) {
-                                double shortestDistanceM = shortestDistanceData.distanceMatrix.get(fromZoneId,toZoneId);
+                                double shortestDistanceM = shortestDistanceData.distanceMatrix.getByIndex(shortestDistanceOrig[i], shortestDistanceDest[j]);
                                 distanceDetour = distanceM / shortestDistanceM;
                             }
                             Double timeDetour = null;
                             if(leastTimeData != null) {
-                                double leastTimeS = leastTimeData.travelTimeMatrix.get(fromZoneId,toZoneId);
+                                double leastTimeS = leastTimeData.travelTimeMatrix.getByIndex(leastTimeOrig[i], leastTimeDest[j]);
                                 timeDetour = timeS / leastTimeS;
                             }
                             writer.write(entry.getKey());
-                            writer.write(SEP + fromZoneId.toString());
-                            writer.write(SEP + toZoneId.toString());
-                            writer.write(SEP + indicatorData.costMatrix.get(fromZoneId,toZoneId));
-                            writer.write(SEP + indicatorData.linkCountMatrix.get(fromZoneId,toZoneId));
+                            writer.write(SEP + fromZoneId);
+                            writer.write(SEP + toZoneIds[j].toString());
+                            writer.write(SEP + indicatorData.costMatrix.getByIndex(i, j));
+                            writer.write(SEP + linkCount);
                             writer.write(SEP + distanceM);
                             writer.write(SEP + timeS);
                             writer.write(SEP + 3.6 * distanceM / timeS);
                             writer.write(SEP + distanceDetour);
                             writer.write(SEP + timeDetour);
-                            for(String attribute : attributes) {
-                                double attr = indicatorData.attributeMatrices.get(attribute).get(fromZoneId,toZoneId);
-                                if(!attribute.startsWith("c_")) {
+                            for(int k = 0 ; k < attributeMatrices.length ; k++) {
+                                double attr = attributeMatrices[k].getByIndex(i, j);
+                                if(perMetre[k]) {
                                     attr /= distanceM;
                                 }
                                 writer.write(SEP + attr);
@@ -105,6 +121,22 @@ public final class IndicatorWriter {
         log.info("Finished writing.");
     }
 
+    /**
+     * Writes the indicators of a single route as a binary file, see {@link BinaryMatrixWriter}.
+     * Unlike the csv output, travel attributes are stored as route totals (not divided by distance).
+     */
+    public static <T> void writeAsBinary(IndicatorData<T> indicatorData, String filename) throws IOException {
+        LinkedHashMap<String, BinaryMatrixWriter.CellValue> matrices = new LinkedHashMap<>();
+        matrices.put("cost", indicatorData.costMatrix::getByIndex);
+        matrices.put("links", indicatorData.linkCountMatrix::getByIndex);
+        matrices.put("distance_m", indicatorData.distanceMatrix::getByIndex);
+        matrices.put("tt_s", indicatorData.travelTimeMatrix::getByIndex);
+        for (Map.Entry<String, FloatMatrix> e : indicatorData.attributeMatrices.entrySet()) {
+            matrices.put(e.getKey(), e.getValue()::getByIndex);
+        }
+        BinaryMatrixWriter.write(filename, indicatorData.orig2index, indicatorData.dest2index, matrices);
+    }
+
     private static String createHeader(Set<String> attributes) {
         StringBuilder builder = new StringBuilder();
         builder.append("Route");
@@ -134,6 +166,14 @@ public final class IndicatorWriter {
         return ids;
     }
 
+    private static <T> int[] getIndices(T[] ids, Map<T, Integer> id2index) {
+        int[] indices = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            indices[i] = id2index.get(ids[i]);
+        }
+        return indices;
+    }
+
     @FunctionalInterface
     public interface IdConverter<T> {
         T parse(String id);
@@ -7,6 +7,7 @@ import org.matsim.core.utils.io.IOUtils;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class PtWriter {
@@ -26,35 +27,37 @@ public class PtWriter {
             T[] fromZoneIds = getSortedIds(ptData.orig2index);
             T[] toZoneIds = getSortedIds(ptData.dest2index);
             int counter = 0;
-            for (T fromZoneId : fromZoneIds) {
+            for (int i = 0; i < fromZoneIds.length; i++) {
+                T fromZoneId = fromZoneIds[i];
                 counter++;
                 if(LongMath.isPowerOfTwo(counter)) {
                     log.info("Writing zone " + counter + " / " + fromZoneIds.length);
                 }
-                for (T toZoneId : toZoneIds) {
+                for (int j = 0; j < toZoneIds.length; j++) {
+                    T toZoneId = toZoneIds[j];
                     writer.write(fromZoneId.toString());
                     writer.append(SEP);
                     writer.write(toZoneId.toString());
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.dataCountMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.dataCountMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.adaptionTimeMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.adaptionTimeMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.frequencyMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.frequencyMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.distanceMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.distanceMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.travelTimeMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.travelTimeMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.accessTimeMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.accessTimeMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.egressTimeMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.egressTimeMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.transferCountMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.transferCountMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.trainTravelTimeShareMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.trainTravelTimeShareMatrix.getByIndex(i, j)));
                     writer.append(SEP);
-                    writer.write(Float.toString(ptData.trainDistanceShareMatrix.get(fromZoneId, toZoneId)));
+                    writer.write(Float.toString(ptData.trainDistanceShareMatrix.getByIndex(i, j)));
                     writer.append(NL);
                 }
             }
@@ -62,6 +65,24 @@ public class PtWriter {
         }
     }
 
+    /**
+     * Writes the pt matrices as a binary file, see {@link BinaryMatrixWriter}.
+     */
+    public static <T> void writeAsBinary(PtData<T> ptData, String filename) throws IOException {
+        LinkedHashMap<String, BinaryMatrixWriter.CellValue> matrices = new LinkedHashMap<>();
+        matrices.put("RouteCount", ptData.dataCountMatrix::getByIndex);
+        matrices.put("AdaptionTime", ptData.adaptionTimeMatrix::getByIndex);
+        matrices.put("Frequency", ptData.frequencyMatrix::getByIndex);
+        matrices.put("Distance", ptData.distanceMatrix::getByIndex);
+        matrices.put("TravelTime", ptData.travelTimeMatrix::getByIndex);
+        matrices.put("AccessTime", ptData.accessTimeMatrix::getByIndex);
+        matrices.put("EgressTime", ptData.egressTimeMatrix::getByIndex);
+        matrices.put("TransferCount", ptData.transferCountMatrix::getByIndex);
+        matrices.put("TrainTravelTimeShare", ptData.trainTravelTimeShareMatrix::getByIndex);
+        matrices.put("TrainDistance", ptData.trainDistanceShareMatrix::getByIndex);
+        BinaryMatrixWriter.write(filename, ptData.orig2index, ptData.dest2index, matrices);
+    }
+
     private static <T> T[] getSortedIds(Map<T, Integer> id2index) {
         // the array-creation is only safe as long as the generated array is only within this class!
         @SuppressWarnings("unchecked")
@@ -114,6 +114,52 @@ public class FloatMatrix<T> {
         }
     }
 
+    /**
+     * Index-based access, bypassing the lookup of the row and column identifiers.
+     * Use {@link #getOrigIndex(Object)} and {@link #getDestIndex(Object)} to obtain the indices.
+     */
+    public float setByIndex(int fromIndex, int toIndex, float value) {
+        int index = fromIndex * this.destSize + toIndex;
+        float oldValue = this.data[index];
+        this.data[index] = value;
+        return oldValue;
+    }
+
+    public float getByIndex(int fromIndex, int toIndex) {
+        return this.data[fromIndex * this.destSize + toIndex];
+    }
+
+    public float addByIndex(int fromIndex, int toIndex, float value) {
+        int index = fromIndex * this.destSize + toIndex;
+        float oldValue = this.data[index];
+        float newValue = oldValue + value;
+        this.data[index] = newValue;
+        return newValue;
+    }
+
+    public float multiplyByIndex(int fromIndex, int toIndex, float factor) {
+        int index = fromIndex * this.destSize + toIndex;
+        float newValue = this.data[index] * factor;
+        this.data[index] = newValue;
+        return newValue;
+    }
+
+    public int getOrigIndex(T from) {
+        return this.orig2index.get(from);
+    }
+
+    public int getDestIndex(T to) {
+        return this.dest2index.get(to);
+    }
+
+    public int getOrigSize() {
+        return this.origSize;
+    }
+
+    public int getDestSize() {
+        return this.destSize;
+    }
+
     private int getIndex(T from, T to) {
         int fromIndex = this.orig2index.get(from);
         int toIndex = this.dest2index.get(to);
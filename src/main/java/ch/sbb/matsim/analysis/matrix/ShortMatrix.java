@@ -64,6 +64,45 @@ public class ShortMatrix<T> {
         return newValue;
     }
 
+    /**
+     * Index-based access, bypassing the lookup of the row and column identifiers.
+     * Use {@link #getOrigIndex(Object)} and {@link #getDestIndex(Object)} to obtain the indices.
+     */
+    public short setByIndex(int fromIndex, int toIndex, short value) {
+        int index = fromIndex * this.destSize + toIndex;
+        short oldValue = this.data[index];
+        this.data[index] = value;
+        return oldValue;
+    }
+
+    public short getByIndex(int fromIndex, int toIndex) {
+        return this.data[fromIndex * this.destSize + toIndex];
+    }
+
+    public short addByIndex(int fromIndex, int toIndex, short value) {
+        int index = fromIndex * this.destSize + toIndex;
+        short oldValue = this.data[index];
+        short newValue = (short) (oldValue + value);
+        this.data[index] = newValue;
+        return newValue;
+    }
+
+    public int getOrigIndex(T from) {
+        return this.orig2index.get(from);
+    }
+
+    public int getDestIndex(T to) {
+        return this.dest2index.get(to);
+    }
+
+    public int getOrigSize() {
+        return this.origSize;
+    }
+
+    public int getDestSize() {
+        return this.destSize;
+    }
+
     private int getIndex(T from, T to) {
         int fromIndex = this.orig2index.get(from);
         int toIndex = this.dest2index.get(to);
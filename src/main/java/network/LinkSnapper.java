@@ -0,0 +1,83 @@
+package network;
+
+import org.apache.log4j.Logger;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snaps coordinates to the nearest link of a network, measured to the straight segment between the link's end nodes
+ * (as NetworkUtils.getNearestLinkExactly). Links are indexed in an STRtree built once, and results are cached per
+ * coordinate, as many trips share the same points (e.g. zone centroids or sampled census locations). Links at the same
+ * distance are resolved by the smallest id index, i.e. the first of them in the network's link order, which is the link
+ * NetworkUtils.getNearestLinkExactly returns.
+ *
+ * The index is read-only after construction, so one instance can be shared by multiple threads.
+ */
+public class LinkSnapper {
+
+    private final static Logger log = Logger.getLogger(LinkSnapper.class);
+
+    private final STRtree index = new STRtree();
+    private final ConcurrentHashMap<Coord, Link> cache = new ConcurrentHashMap<>();
+
+    public LinkSnapper(Network network) {
+        for (Link link : network.getLinks().values()) {
+            Coord from = link.getFromNode().getCoord();
+            Coord to = link.getToNode().getCoord();
+            this.index.insert(new Envelope(from.getX(), to.getX(), from.getY(), to.getY()), link);
+        }
+        this.index.build();
+        log.info("Built snapping index over " + network.getLinks().size() + " links.");
+    }
+
+    public Link getNearestLink(Coord coord) {
+        Link link = this.cache.get(coord);
+        if (link == null) {
+            link = findNearestLink(coord);
+            if (link != null) {
+                this.cache.putIfAbsent(coord, link);
+            }
+        }
+        return link;
+    }
+
+    private Link findNearestLink(Coord coord) {
+        double x = coord.getX();
+        double y = coord.getY();
+        Link nearest = (Link) this.index.nearestNeighbour(new Envelope(x, x, y, y), coord, LinkSnapper::itemDistance);
+        if (nearest == null) {
+            return null;
+        }
+
+        // resolve ties
+        double distance = distance(nearest, coord);
+        @SuppressWarnings("unchecked")
+        List<Link> candidates = this.index.query(new Envelope(x - distance, x + distance, y - distance, y + distance));
+        for (Link link : candidates) {
+            if (distance(link, coord) == distance && link.getId().index() < nearest.getId().index()) {
+                nearest = link;
+            }
+        }
+        return nearest;
+    }
+
+    private static double itemDistance(ItemBoundable item1, ItemBoundable item2) {
+        if (item1.getItem() instanceof Link) {
+            return distance((Link) item1.getItem(), (Coord) item2.getItem());
+        } else {
+            return distance((Link) item2.getItem(), (Coord) item1.getItem());
+        }
+    }
+
+    private static double distance(Link link, Coord coord) {
+        return CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord);
+    }
+}
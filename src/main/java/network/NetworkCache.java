@@ -0,0 +1,341 @@
+package network;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Stores a parsed MATSim network, including all node, link and network attributes, in a compact binary file next to
+ * the network file it was read from. Each cache file records the size and CRC32 checksum of its source file and is
+ * ignored as soon as the source file changes.
+ * <p>
+ * Strings (attribute names and values, allowed modes) are written once and then referred to by index. Nodes and links
+ * are written in the order of their id index. Caches of a network extracted from another one (e.g. a mode-specific
+ * network) also store all node and link ids of the source network in index order, and create these ids first when
+ * read. Reading a cache therefore creates ids in the same order as reading the network file, whether or not the source
+ * network is read as well.
+ * <p>
+ * Supported attribute types are Boolean, Integer, Long, Float, Double and String. Networks with other attribute types
+ * are not cached.
+ */
+public final class NetworkCache {
+
+    private final static Logger log = Logger.getLogger(NetworkCache.class);
+
+    private final static int MAGIC = 0x4D4E4554; // "MNET"
+    private final static int VERSION = 2;
+
+    private final static byte TYPE_BOOLEAN = 0;
+    private final static byte TYPE_INTEGER = 1;
+    private final static byte TYPE_LONG = 2;
+    private final static byte TYPE_FLOAT = 3;
+    private final static byte TYPE_DOUBLE = 4;
+    private final static byte TYPE_STRING = 5;
+
+    private NetworkCache() {
+    }
+
+    static String getCachePath(String networkPath, String transportMode) {
+        return transportMode == null ? networkPath + ".bin" : networkPath + "." + transportMode + ".bin";
+    }
+
+    static long checksum(String filePath) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return the cached network, or null if there is no cache file or it was written for a different source file
+     */
+    static Network read(String cachePath, long sourceSize, long sourceChecksum) {
+        if (!new File(cachePath).exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cachePath), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignoring network cache " + cachePath + " with unknown format.");
+                return null;
+            }
+            if (in.readLong() != sourceSize || in.readLong() != sourceChecksum) {
+                log.info("Network cache " + cachePath + " is outdated.");
+                return null;
+            }
+            log.info("Reading network cache " + cachePath);
+            Reader reader = new Reader(in);
+            reader.readIds();
+            return reader.readNetwork();
+        } catch (IOException e) {
+            log.warn("Could not read network cache " + cachePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the network to a temporary file first, so that concurrent runs never see an incomplete cache. Failures
+     * are logged only, as the cache is optional.
+     *
+     * @param idSource network whose ids are created before reading the cached network (null if it is not extracted
+     *                 from another network)
+     */
+    static void write(Network network, Network idSource, String cachePath, long sourceSize, long sourceChecksum) {
+        Path target = Paths.get(cachePath);
+        Path tmp = Paths.get(cachePath + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp.toFile()), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sourceSize);
+                out.writeLong(sourceChecksum);
+                Writer writer = new Writer(out);
+                writer.writeIds(idSource);
+                writer.writeNetwork(network);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote network cache " + cachePath);
+        } catch (IOException e) {
+            log.warn("Could not write network cache " + cachePath + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeIds(Network idSource) throws IOException {
+            out.writeBoolean(idSource != null);
+            if (idSource != null) {
+                List<Id<Node>> nodeIds = new ArrayList<>(idSource.getNodes().keySet());
+                nodeIds.sort(Comparator.comparingInt(Id::index));
+                out.writeInt(nodeIds.size());
+                for (Id<Node> id : nodeIds) {
+                    out.writeUTF(id.toString());
+                }
+                List<Id<Link>> linkIds = new ArrayList<>(idSource.getLinks().keySet());
+                linkIds.sort(Comparator.comparingInt(Id::index));
+                out.writeInt(linkIds.size());
+                for (Id<Link> id : linkIds) {
+                    out.writeUTF(id.toString());
+                }
+            }
+        }
+
+        void writeNetwork(Network network) throws IOException {
+            out.writeDouble(network.getCapacityPeriod());
+            out.writeDouble(network.getEffectiveLaneWidth());
+            out.writeDouble(network.getEffectiveCellSize());
+            writeAttributes(network.getAttributes());
+
+            List<Node> nodes = new ArrayList<>(network.getNodes().values());
+            nodes.sort(Comparator.comparingInt(node -> node.getId().index()));
+            Map<Id<Node>, Integer> nodePositions = new HashMap<>(nodes.size() * 2);
+            out.writeInt(nodes.size());
+            for (Node node : nodes) {
+                nodePositions.put(node.getId(), nodePositions.size());
+                out.writeUTF(node.getId().toString());
+                Coord coord = node.getCoord();
+                out.writeDouble(coord.getX());
+                out.writeDouble(coord.getY());
+                out.writeBoolean(coord.hasZ());
+                if (coord.hasZ()) {
+                    out.writeDouble(coord.getZ());
+                }
+                writeAttributes(node.getAttributes());
+            }
+
+            List<Link> links = new ArrayList<>(network.getLinks().values());
+            links.sort(Comparator.comparingInt(link -> link.getId().index()));
+            out.writeInt(links.size());
+            for (Link link : links) {
+                out.writeUTF(link.getId().toString());
+                out.writeInt(nodePositions.get(link.getFromNode().getId()));
+                out.writeInt(nodePositions.get(link.getToNode().getId()));
+                out.writeDouble(link.getLength());
+                out.writeDouble(link.getFreespeed());
+                out.writeDouble(link.getCapacity());
+                out.writeDouble(link.getNumberOfLanes());
+                writeString(String.join(",", link.getAllowedModes()));
+                writeAttributes(link.getAttributes());
+            }
+        }
+
+        private void writeAttributes(Attributes attributes) throws IOException {
+            Map<String, Object> map = attributes.getAsMap();
+            out.writeInt(map.size());
+            for (Map.Entry<String, Object> e : map.entrySet()) {
+                writeString(e.getKey());
+                Object value = e.getValue();
+                if (value instanceof Boolean) {
+                    out.writeByte(TYPE_BOOLEAN);
+                    out.writeBoolean((Boolean) value);
+                } else if (value instanceof Integer) {
+                    out.writeByte(TYPE_INTEGER);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Long) {
+                    out.writeByte(TYPE_LONG);
+                    out.writeLong((Long) value);
+                } else if (value instanceof Float) {
+                    out.writeByte(TYPE_FLOAT);
+                    out.writeFloat((Float) value);
+                } else if (value instanceof Double) {
+                    out.writeByte(TYPE_DOUBLE);
+                    out.writeDouble((Double) value);
+                } else if (value instanceof String) {
+                    out.writeByte(TYPE_STRING);
+                    writeString((String) value);
+                } else {
+                    throw new IOException("Unsupported attribute type " + (value == null ? null : value.getClass().getName())
+                            + " of attribute " + e.getKey());
+                }
+            }
+        }
+
+        // writes the index of a known string, or -1 followed by the string itself
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                strings.put(s, strings.size());
+                out.writeInt(-1);
+                out.writeUTF(s);
+            }
+        }
+    }
+
+    private static class Reader {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Set<String>> modes = new HashMap<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        // creates the ids of the source network, in their original order
+        void readIds() throws IOException {
+            if (in.readBoolean()) {
+                int nodeCount = in.readInt();
+                for (int i = 0; i < nodeCount; i++) {
+                    Id.createNodeId(in.readUTF());
+                }
+                int linkCount = in.readInt();
+                for (int i = 0; i < linkCount; i++) {
+                    Id.createLinkId(in.readUTF());
+                }
+            }
+        }
+
+        Network readNetwork() throws IOException {
+            Network network = NetworkUtils.createNetwork();
+            NetworkFactory nf = network.getFactory();
+            network.setCapacityPeriod(in.readDouble());
+            network.setEffectiveLaneWidth(in.readDouble());
+            network.setEffectiveCellSize(in.readDouble());
+            readAttributes(network.getAttributes());
+
+            int nodeCount = in.readInt();
+            Node[] nodes = new Node[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                Id<Node> id = Id.createNodeId(in.readUTF());
+                double x = in.readDouble();
+                double y = in.readDouble();
+                Coord coord = in.readBoolean() ? new Coord(x, y, in.readDouble()) : new Coord(x, y);
+                Node node = nf.createNode(id, coord);
+                readAttributes(node.getAttributes());
+                network.addNode(node);
+                nodes[i] = node;
+            }
+
+            int linkCount = in.readInt();
+            for (int i = 0; i < linkCount; i++) {
+                Id<Link> id = Id.createLinkId(in.readUTF());
+                Link link = nf.createLink(id, nodes[in.readInt()], nodes[in.readInt()]);
+                link.setLength(in.readDouble());
+                link.setFreespeed(in.readDouble());
+                link.setCapacity(in.readDouble());
+                link.setNumberOfLanes(in.readDouble());
+                link.setAllowedModes(modes.computeIfAbsent(readString(), NetworkCache::parseModes));
+                readAttributes(link.getAttributes());
+                network.addLink(link);
+            }
+            return network;
+        }
+
+        private void readAttributes(Attributes attributes) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                byte type = in.readByte();
+                switch (type) {
+                    case TYPE_BOOLEAN:
+                        attributes.putAttribute(name, in.readBoolean());
+                        break;
+                    case TYPE_INTEGER:
+                        attributes.putAttribute(name, in.readInt());
+                        break;
+                    case TYPE_LONG:
+                        attributes.putAttribute(name, in.readLong());
+                        break;
+                    case TYPE_FLOAT:
+                        attributes.putAttribute(name, in.readFloat());
+                        break;
+                    case TYPE_DOUBLE:
+                        attributes.putAttribute(name, in.readDouble());
+                        break;
+                    case TYPE_STRING:
+                        attributes.putAttribute(name, readString());
+                        break;
+                    default:
+                        throw new IOException("Unknown attribute type " + type + " of attribute " + name);
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index >= 0) {
+                return strings.get(index);
+            }
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+    }
+
+    private static Set<String> parseModes(String modes) {
+        return modes.isEmpty() ? Collections.emptySet() : Set.of(modes.split(","));
+    }
+}
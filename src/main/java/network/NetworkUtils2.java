@@ -25,6 +25,8 @@ import resources.Properties;
 import resources.Resources;
 import routing.disutility.JibeDisutility;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -35,18 +37,50 @@ public class NetworkUtils2 {
     private final static Logger log = Logger.getLogger(NetworkUtils2.class);
 
     public static Network readFullNetwork() {
-        // Read network
-        log.info("Reading MATSim network...");
+        return readNetwork(null);
+    }
+
+    public static Network readModeSpecificNetwork(String transportMode) {
+        return readNetwork(transportMode);
+    }
+
+    private static Network readNetwork(String transportMode) {
         String networkPath = Resources.instance.getString(Properties.MATSIM_ROAD_NETWORK);
+        long size = new File(networkPath).length();
+        long checksum;
+        try {
+            checksum = NetworkCache.checksum(networkPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read network file " + networkPath, e);
+        }
+        return readNetwork(transportMode, networkPath, size, checksum);
+    }
+
+    // Reads the (full or mode-specific) network from its binary cache if this is up-to-date, otherwise from xml.
+    // Mode-specific caches also store the ids of the full network, so ids get the same index in either case.
+    private static Network readNetwork(String transportMode, String networkPath, long size, long checksum) {
+        String cachePath = NetworkCache.getCachePath(networkPath, transportMode);
+        Network network = NetworkCache.read(cachePath, size, checksum);
+        if (network == null) {
+            if (transportMode == null) {
+                network = readNetworkXml(networkPath);
+                NetworkCache.write(network, null, cachePath, size, checksum);
+            } else {
+                Network fullNetwork = readNetwork(null, networkPath, size, checksum);
+                network = extractModeSpecificNetwork(fullNetwork, transportMode);
+                NetworkCache.write(network, fullNetwork, cachePath, size, checksum);
+            }
+        }
+        return network;
+    }
+
+    private static Network readNetworkXml(String networkPath) {
+        log.info("Reading MATSim network...");
         Network fullNetwork = NetworkUtils.createNetwork();
         new MatsimNetworkReader(fullNetwork).readFile(networkPath);
         return fullNetwork;
     }
 
-    public static Network readModeSpecificNetwork(String transportMode) {
-        return extractModeSpecificNetwork(readFullNetwork(),transportMode);
-    }
-
     // Extracts mode-specific network  (e.g. walk network, car network, cycle network)
     public static Network extractModeSpecificNetwork(Network network, String transportMode) {
         Network modeSpecificNetwork = NetworkUtils.createNetwork();
@@ -15,6 +15,7 @@ import org.opengis.referencing.FactoryException;
 import resources.Resources;
 import routing.disutility.DistanceDisutility;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
 import routing.travelTime.WalkTravelTime;
 import trads.calculate.RouteIndicatorCalculator;
 import trads.io.TradsRouteWriter;
@@ -26,6 +27,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
 
+import static trads.calculate.RouteIndicatorCalculator.Router.BIDIRECTIONAL;
 import static trip.Place.*;
 
 // Router in which disutility functions remain constant for all trips
@@ -96,9 +98,9 @@ public class RunNodeRouter {
 
         // Route results
         RouteIndicatorCalculator calc = new RouteIndicatorCalculator(trips);
-        calc.network(mode + "_short", ORIGIN, DESTINATION, veh, modeNetwork, modeNetwork, new DistanceDisutility(), tt, null, true);
-        calc.network(mode + "_fast", ORIGIN, DESTINATION, veh, modeNetwork, modeNetwork, new OnlyTimeDependentTravelDisutility(tt), tt, null, true);
-        calc.network(mode + "_jibe", ORIGIN, DESTINATION, veh, modeNetwork, modeNetwork, new JibeDisutility(mode,tt,0.,0.), tt, null, true);
+        calc.network(mode + "_short", ORIGIN, DESTINATION, veh, modeNetwork, modeNetwork, new DistanceDisutility(), tt, null, true, BIDIRECTIONAL);
+        calc.network(mode + "_fast", ORIGIN, DESTINATION, veh, modeNetwork, modeNetwork, new OnlyTimeDependentTravelDisutility(tt), tt, null, true, BIDIRECTIONAL);
+        calc.network(mode + "_jibe", ORIGIN, DESTINATION, veh, modeNetwork, modeNetwork, new JibeDisutility(mode,tt,LinkFactors.of(modeNetwork,mode),0.,0.), tt, null, true, BIDIRECTIONAL);
 
         TradsRouteWriter.write(trips, outputFile, calc.getAllAttributeNames());
 
@@ -8,16 +8,20 @@ import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.router.FastDijkstraFactory;
 import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.vehicles.Vehicle;
 import org.opengis.referencing.FactoryException;
+import resources.Properties;
 import resources.Resources;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
+import routing.graph.BidirectionalDijkstra;
+import routing.graph.SpeedyGraph;
 import routing.travelTime.WalkTravelTime;
 import trads.io.TradsRouteWriter;
 import trip.Place;
@@ -27,6 +31,7 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static trip.Place.DESTINATION;
 import static trip.Place.ORIGIN;
@@ -39,6 +44,7 @@ public class RunNodeRouter2 {
     private static final String MC_STRESS = "mcStress";
     private static final String ORIGIN_NODE = "originNode";
     private static final String DESTINATION_NODE = "destinationNode";
+    private static final int CHUNK_SIZE = 100;
 
     // Router in which disutility function is different for different trips
 
@@ -74,13 +80,9 @@ public class RunNodeRouter2 {
             throw new RuntimeException("Routing not set up for mode " + mode);
         }
 
-        // Shortest dijkstra algorithm
-        TravelDisutility tdFast = new OnlyTimeDependentTravelDisutility(tt);
-        LeastCostPathCalculator dijkstraFast = new FastDijkstraFactory(false).
-                createPathCalculator(modeNetwork, tdFast, tt);
-
         // Read OD nodes
         Set<Trip> trips = new LinkedHashSet<>();
+        Map<List<Double>,List<NodeTrip>> tripsByMarginalCosts = new LinkedHashMap<>();
         Counter counter = new Counter("Read " + " OD pairs.");
         BufferedReader in = new BufferedReader(new FileReader(inputODPairs));
         String recString = in.readLine();
@@ -101,9 +103,10 @@ public class RunNodeRouter2 {
             Id<Node> destination = Id.createNodeId(lineElements[posDestination]);
 
             Map<Place,Coord> coords = new HashMap<>(2);
-            Coord originCoord = modeNetwork.getNodes().get(origin).getCoord();
-            coords.put(ORIGIN,originCoord);
-            coords.put(DESTINATION,modeNetwork.getNodes().get(destination).getCoord());
+            Node originNode = modeNetwork.getNodes().get(origin);
+            Node destinationNode = modeNetwork.getNodes().get(destination);
+            coords.put(ORIGIN,originNode.getCoord());
+            coords.put(DESTINATION,destinationNode.getCoord());
 
             Map<Place,Boolean> coordsInBoundary = new HashMap<>(2);
             coordsInBoundary.put(ORIGIN,true);
@@ -112,15 +115,46 @@ public class RunNodeRouter2 {
             Trip trip = new Trip("na",(int) counter.getCounter(),0,0,mode,null,null,null,coords,coordsInBoundary);
             trips.add(trip);
 
-            JibeDisutility tdJibe = new JibeDisutility(mode,tt,mcAmbience,mcStress);
-            LeastCostPathCalculator dijkstraJibe = new FastDijkstraFactory(false).
-                    createPathCalculator(modeNetwork, tdJibe, tt);
+            // Group trips sharing the same marginal costs so they can be routed with the same disutility
+            tripsByMarginalCosts.computeIfAbsent(List.of(mcAmbience,mcStress),k -> new ArrayList<>()).add(new NodeTrip(trip,originNode,destinationNode));
+        }
+        in.close();
+        log.info("Read " + trips.size() + " OD pairs with " + tripsByMarginalCosts.size() + " different sets of marginal costs.");
 
-            LeastCostPathCalculator.Path pathFast = dijkstraFast.calcLeastCostPath(modeNetwork.getNodes().get(origin), modeNetwork.getNodes().get(destination), 0., null, veh);
-            LeastCostPathCalculator.Path pathJibe = dijkstraJibe.calcLeastCostPath(modeNetwork.getNodes().get(origin), modeNetwork.getNodes().get(destination), 0., null, veh);
+        // Graph with fast (time-based) link costs, jibe costs are evaluated on the fly for each group
+        TravelDisutility tdFast = new OnlyTimeDependentTravelDisutility(tt);
+        SpeedyGraph graph = new SpeedyGraph(modeNetwork, tt, tdFast, null, veh);
+        LinkFactors linkFactors = LinkFactors.of(modeNetwork, mode);
 
-            storeResults("fast",trip,pathFast,tdFast,originCoord);
-            storeResults("jibe",trip,pathJibe,tdJibe,originCoord);
+        // Queue trips in chunks ordered by group, so threads are balanced even with few groups and mostly keep
+        // the disutility of their previous chunk
+        JibeDisutility baseJibe = new JibeDisutility(mode,tt,linkFactors,0.,0.);
+        ConcurrentLinkedQueue<TripChunk> chunks = new ConcurrentLinkedQueue<>();
+        for(Map.Entry<List<Double>,List<NodeTrip>> group : tripsByMarginalCosts.entrySet()) {
+            JibeDisutility jibe = baseJibe.withAmbienceAndStress(group.getKey().get(0),group.getKey().get(1));
+            List<NodeTrip> groupTrips = group.getValue();
+            for(int start = 0 ; start < groupTrips.size() ; start += CHUNK_SIZE) {
+                chunks.add(new TripChunk(jibe,groupTrips.subList(start,Math.min(start + CHUNK_SIZE,groupTrips.size()))));
+            }
+        }
+
+        // Route trips
+        int numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
+        Counter routeCounter = new Counter("Routed "," / " + trips.size() + " OD pairs.");
+        Thread[] threads = new Thread[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++) {
+            NodeRouteWorker worker = new NodeRouteWorker(chunks, routeCounter, graph, tdFast, veh);
+            threads[i] = new Thread(worker, "NodeRouter-" + i);
+            threads[i].start();
+        }
+
+        // wait until all threads have finished
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
         }
 
         TradsRouteWriter.write(trips, outputFile, Set.of("mc_ambience","mc_stress","cost","time","dist"));
@@ -164,4 +198,97 @@ public class RunNodeRouter2 {
         trip.setAttributes(route,results);
 
     }
+
+    private static class NodeTrip {
+        private final Trip trip;
+        private final Node origin;
+        private final Node destination;
+
+        NodeTrip(Trip trip, Node origin, Node destination) {
+            this.trip = trip;
+            this.origin = origin;
+            this.destination = destination;
+        }
+    }
+
+    private static class TripChunk {
+        private final JibeDisutility jibe;
+        private final List<NodeTrip> trips;
+
+        TripChunk(JibeDisutility jibe, List<NodeTrip> trips) {
+            this.jibe = jibe;
+            this.trips = trips;
+        }
+    }
+
+    private static class NodeRouteWorker implements Runnable {
+
+        private final ConcurrentLinkedQueue<TripChunk> chunks;
+        private final Counter counter;
+        private final Vehicle veh;
+
+        private final TravelDisutility tdFast;
+        private final LeastCostPathCalculator dijkstraFast;
+        private final CurrentDisutility tdJibe;
+        private final LeastCostPathCalculator dijkstraJibe;
+
+        NodeRouteWorker(ConcurrentLinkedQueue<TripChunk> chunks, Counter counter,
+                        SpeedyGraph graph, TravelDisutility tdFast, Vehicle veh) {
+            this.chunks = chunks;
+            this.counter = counter;
+            this.veh = veh;
+
+            // Path calculators are created once per thread, the jibe disutility is switched when the group changes
+            this.tdFast = tdFast;
+            this.dijkstraFast = new BidirectionalDijkstra(graph);
+            this.tdJibe = new CurrentDisutility();
+            this.dijkstraJibe = new BidirectionalDijkstra(graph, tdJibe);
+        }
+
+        public void run() {
+            JibeDisutility jibe = null;
+            while(true) {
+                TripChunk chunk = this.chunks.poll();
+                if(chunk == null) {
+                    return;
+                }
+
+                if(chunk.jibe != jibe) {
+                    jibe = chunk.jibe;
+                    this.tdJibe.set(jibe);
+                }
+
+                for(NodeTrip nodeTrip : chunk.trips) {
+                    this.counter.incCounter();
+                    Coord originCoord = nodeTrip.origin.getCoord();
+
+                    LeastCostPathCalculator.Path pathFast = dijkstraFast.calcLeastCostPath(nodeTrip.origin, nodeTrip.destination, 0., null, veh);
+                    LeastCostPathCalculator.Path pathJibe = dijkstraJibe.calcLeastCostPath(nodeTrip.origin, nodeTrip.destination, 0., null, veh);
+
+                    storeResults("fast",nodeTrip.trip,pathFast,tdFast,originCoord);
+                    storeResults("jibe",nodeTrip.trip,pathJibe,jibe,originCoord);
+                }
+            }
+        }
+    }
+
+    // Delegates to the disutility of the group currently being routed, so that a path calculator can be reused
+    private static class CurrentDisutility implements TravelDisutility {
+
+        private TravelDisutility delegate;
+
+        void set(TravelDisutility delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+            return delegate.getLinkTravelDisutility(link, time, person, vehicle);
+        }
+
+        @Override
+        public double getLinkMinimumTravelDisutility(Link link) {
+            return delegate.getLinkMinimumTravelDisutility(link);
+        }
+    }
 }
@@ -10,6 +10,7 @@ import ch.sbb.matsim.analysis.calc.IndicatorCalculator;
 import ch.sbb.matsim.analysis.data.IndicatorData;
 import ch.sbb.matsim.analysis.io.IndicatorWriter;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
 import ch.sbb.matsim.analysis.CalculateData;
 import ch.sbb.matsim.analysis.calc.GeometryCalculator;
 import ch.sbb.matsim.analysis.data.GeometryData;
@@ -39,7 +40,7 @@ public class RunZoneRouter {
             throw new RuntimeException("Program requires at least 4 arguments: \n" +
                     "(0) Properties file \n" +
                     "(1) Zone coordinates file (.csv) \n" +
-                    "(2) Output file path (.gpkg) \n" +
+                    "(2) Output file path (.gpkg, .csv or .bin) \n" +
                     "(3) Mode (walk or bike) \n" +
                     "(4+) OPTIONAL: Names of zones to be used for routing");
         }
@@ -99,7 +100,7 @@ public class RunZoneRouter {
         Map<String,TravelDisutility> travelDisutilities = new LinkedHashMap<>();
         travelDisutilities.put("short", new DistanceDisutility());
         travelDisutilities.put("fast", new OnlyTimeDependentTravelDisutility(tt));
-        travelDisutilities.put("jibe", new JibeDisutility(mode,tt));
+        travelDisutilities.put("jibe", new JibeDisutility(mode,tt,LinkFactors.of(modeNetwork,mode)));
 
 
         // Run for testing multiple ambience/stress/junction costs
@@ -116,9 +117,9 @@ public class RunZoneRouter {
         LinkedHashMap<String,TravelAttribute> attributes = ActiveAttributes.getJibe(mode,veh);
 
         // OUTPUT RESULTS
-        if(outputFile.endsWith(".csv")) {
+        if(outputFile.endsWith(".csv") || outputFile.endsWith(".bin")) {
 
-            // IF .CSV, CALCULATE ATTRIBUTES ONLY, DO NOT INCLUDE GEOMETRIES
+            // IF .CSV OR .BIN, CALCULATE ATTRIBUTES ONLY, DO NOT INCLUDE GEOMETRIES
             HashMap<String, IndicatorData> indicators = new HashMap<>(travelDisutilities.size());
             for(Map.Entry<String,TravelDisutility> e : travelDisutilities.entrySet()) {
                 log.info("Calculating attributes for route " + e.getKey());
@@ -126,7 +127,15 @@ public class RunZoneRouter {
                         zoneNodeMap,tt,e.getValue(),attributes, veh,14);
                 indicators.put(e.getKey(),indicatorData);
             }
-            IndicatorWriter.writeAsCsv(indicators,outputFile);
+            if(outputFile.endsWith(".bin")) {
+                // ONE MEMORY-MAPPABLE MATRIX FILE PER ROUTE (e.g. skims_short.bin)
+                String outputPrefix = outputFile.substring(0, outputFile.length() - ".bin".length());
+                for(Map.Entry<String,IndicatorData> e : indicators.entrySet()) {
+                    IndicatorWriter.writeAsBinary(e.getValue(),outputPrefix + "_" + e.getKey() + ".bin");
+                }
+            } else {
+                IndicatorWriter.writeAsCsv(indicators,outputFile);
+            }
         } else if(outputFile.endsWith(".gpkg")) {
 
             // IF .GPKG, CALCULATE ATTRIBUTES AND GEOMETRIES
@@ -139,7 +148,7 @@ public class RunZoneRouter {
             }
             GeometryWriter.writeGpkg(geometries,zoneNodeMap,outputFile);
         } else {
-            log.error("Unable to output results: please specify output file as .gpkg or .csv");
+            log.error("Unable to output results: please specify output file as .gpkg, .csv or .bin");
         }
     }
 }
@@ -14,11 +14,10 @@ import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.misc.Counter;
-import org.matsim.core.utils.misc.OptionalTime;
 import org.matsim.vehicles.Vehicle;
 import resources.Properties;
 import resources.Resources;
-import routing.graph.LeastCostPathTree3;
+import routing.graph.BatchLeastCostPathTree;
 import routing.graph.SpeedyGraph;
 
 import java.util.Set;
@@ -33,20 +32,25 @@ public final class NodeDetourCalculator {
 
     public static final Logger log = Logger.getLogger(NodeDetourCalculator.class);
     private static final Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
+    private static final int BATCH_SIZE = 8;
     private final ConcurrentHashMap<String,double[]> largeDetourData = new ConcurrentHashMap<>();
 
     private double maxDetour;
 
     public long[] calculate(Network routingNetwork, Set<Id<Node>> nodes,
                             TravelTime travelTime, TravelDisutility travelDisutility, Vehicle vehicle) {
-
-        int numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
-
         SpeedyGraph graphFast = new SpeedyGraph(routingNetwork,travelTime,new OnlyTimeDependentTravelDisutility(travelTime),PERSON,vehicle);
         SpeedyGraph graphJibe = new SpeedyGraph(routingNetwork,travelTime,travelDisutility,PERSON,vehicle);
+        return calculate(nodes, graphFast, graphJibe);
+    }
+
+    public long[] calculate(Set<Id<Node>> nodes, SpeedyGraph graphFast, SpeedyGraph graphJibe) {
+
+        int numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
 
         // do calculation
-        ConcurrentLinkedQueue<Id<Node>> originNodes = new ConcurrentLinkedQueue<>(nodes);
+        ConcurrentLinkedQueue<int[]> originNodes = new ConcurrentLinkedQueue<>(
+                BatchLeastCostPathTree.createBatches(graphFast, nodes, BATCH_SIZE));
 
         Counter counter = new Counter("Calculating accessibility node ", " / " + nodes.size());
         NodeWorker[] workers = new NodeWorker[numberOfThreads];
@@ -91,7 +95,7 @@ public final class NodeDetourCalculator {
     }
 
     private static class NodeWorker implements Runnable {
-        private final ConcurrentLinkedQueue<Id<Node>> originNodes;
+        private final ConcurrentLinkedQueue<int[]> originNodes;
         private final Set<Id<Node>> destinationNodes;
         private final SpeedyGraph graphFast;
         private final SpeedyGraph graphJibe;
@@ -101,7 +105,7 @@ public final class NodeDetourCalculator {
 
         private double maxDetour = 1.;
 
-        NodeWorker(ConcurrentLinkedQueue<Id<Node>> originNodes, Set<Id<Node>> destinationNodes,
+        NodeWorker(ConcurrentLinkedQueue<int[]> originNodes, Set<Id<Node>> destinationNodes,
                    SpeedyGraph graphFast, SpeedyGraph graphJibe, Counter counter, ConcurrentHashMap<String,double[]> largeDetourData) {
             this.originNodes = originNodes;
             this.destinationNodes = destinationNodes;
@@ -112,54 +116,53 @@ public final class NodeDetourCalculator {
         }
 
         public void run() {
-            LeastCostPathTree3 lcpTreeFast;
-            LeastCostPathTree3 lcpTreeJibe;
+            BatchLeastCostPathTree lcpTreeFast = new BatchLeastCostPathTree(this.graphFast, BATCH_SIZE);
+            BatchLeastCostPathTree lcpTreeJibe = new BatchLeastCostPathTree(this.graphJibe, BATCH_SIZE);
 
             while (true) {
-                Id<Node> fromNodeId = this.originNodes.poll();
-                if (fromNodeId == null) {
+                int[] fromNodes = this.originNodes.poll();
+                if (fromNodes == null) {
                     return;
                 }
 
-                this.counter.incCounter();
-
-                lcpTreeFast = new LeastCostPathTree3(this.graphFast);
-                lcpTreeJibe = new LeastCostPathTree3(this.graphJibe);
-
-                lcpTreeFast.calculate(fromNodeId.index(),0.,true);
-                lcpTreeJibe.calculate(fromNodeId.index(),0.,true);
-
-                for (Id<Node> toNodeId : destinationNodes) {
-
-                    // Check if node is in JIBE tree
-                    OptionalTime timeJibe = lcpTreeJibe.getTime(toNodeId.index());
-                    if(timeJibe.isUndefined()) {
-                        continue;
-                    }
-
-                    // Check if node is included in fastest tree
-                    OptionalTime timeFast = lcpTreeFast.getTime(toNodeId.index());
-                    if(timeFast.isUndefined()) {
-                        throw new RuntimeException("Node included in JIBE tree but not fastest tree");
-                    }
-
-                    // Set maximum detour
-                    double detour = timeJibe.seconds() / timeFast.seconds();
-                    if(detour > maxDetour) {
-                        maxDetour = detour;
+                lcpTreeFast.calculate(fromNodes,0.,true);
+                lcpTreeJibe.calculate(fromNodes,0.,true);
+
+                for (int lane = 0 ; lane < fromNodes.length ; lane++) {
+                    this.counter.incCounter();
+                    Id<Node> fromNodeId = Id.get(fromNodes[lane], Node.class);
+
+                    for (Id<Node> toNodeId : destinationNodes) {
+
+                        // Check if node is in JIBE tree
+                        double timeJibe = lcpTreeJibe.getTime(lane, toNodeId.index());
+                        if(Double.isInfinite(timeJibe)) {
+                            continue;
+                        }
+
+                        // Check if node is included in fastest tree
+                        double timeFast = lcpTreeFast.getTime(lane, toNodeId.index());
+                        if(Double.isInfinite(timeFast)) {
+                            throw new RuntimeException("Node included in JIBE tree but not fastest tree");
+                        }
+
+                        // Set maximum detour
+                        double detour = timeJibe / timeFast;
+                        if(detour > maxDetour) {
+                            maxDetour = detour;
+                        }
+
+                        int index = (int) ((detour - 1)*100);
+                        if(index > 499) {
+                            index = 499;
+                        }
+                        threadDensities[index]++;
+
+                        // Capture really large detours and figure out what's going on
+                        if(detour > 6.) {
+                            largeDetourData.put(fromNodeId + "," + toNodeId,new double[] {timeFast,timeJibe});
+                        }
                     }
-
-                    int index = (int) ((detour - 1)*100);
-                    if(index > 499) {
-                        index = 499;
-                    }
-                    threadDensities[index]++;
-
-                    // Capture really large detours and figure out what's going on
-                    if(detour > 6.) {
-                        largeDetourData.put(fromNodeId + "," + toNodeId,new double[] {timeFast.seconds(),timeJibe.seconds()});
-                    }
-
                 }
             }
         }
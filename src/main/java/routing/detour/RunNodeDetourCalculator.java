@@ -9,12 +9,14 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.vehicles.Vehicle;
 import resources.Resources;
 import routing.Bicycle;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
+import routing.graph.SpeedyGraph;
 import routing.travelTime.WalkTravelTime;
 
 import java.io.*;
@@ -82,6 +84,10 @@ public class RunNodeDetourCalculator {
         out2.close();
         log.info("Closing file: " + largeDetoursOutputFile);
 
+        // Graph for fastest routes, and per-link components of the jibe disutility (recombined for each value below)
+        SpeedyGraph graphFast = new SpeedyGraph(network,tt,new OnlyTimeDependentTravelDisutility(tt),null,veh);
+        double[][] components = new JibeDisutility(mode,tt,LinkFactors.of(network,mode),0.,0.).getLinkComponents(network,0.,null,veh);
+
         // Loop through possible ambience and stress values
         double intervalAmbience = MAX_MC_AMBIENCE / AMBIENCE_SAMPLES;
         double intervalStress = MAX_MC_STRESS / STRESS_SAMPLES;
@@ -90,11 +96,11 @@ public class RunNodeDetourCalculator {
             double mcAmbience = intervalAmbience * i;
             for(int j = 0 ; j <= STRESS_SAMPLES ; j++) {
                 double mcStress = intervalStress * j;
-                TravelDisutility td = new JibeDisutility(mode,tt,mcAmbience,mcStress);
+                SpeedyGraph graphJibe = graphFast.reweight(components, JibeDisutility.getComponentWeights(mcAmbience,mcStress));
 
                 // Run calculation
                 calc = new NodeDetourCalculator();
-                long[] detourDensities = calc.calculate(network,nodes,tt,td,veh);
+                long[] detourDensities = calc.calculate(nodes,graphFast,graphJibe);
                 ConcurrentHashMap<String,double[]> largeDetours = calc.getLargeDetourData();
                 log.info("Completed calculation for mcAmbience: " + mcAmbience + " mcStress: " + mcStress + ".");
 
@@ -5,12 +5,10 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.TransportMode;
 import resources.Properties;
 import resources.Resources;
-import routing.Gradient;
-import routing.disutility.components.LinkAmbience;
-import routing.disutility.components.JctStress;
-import routing.disutility.components.LinkComfort;
-import routing.disutility.components.LinkStress;
+import routing.disutility.components.LinkFactors;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
@@ -31,9 +29,14 @@ public class JibeDisutility implements TravelDisutility {
     private final double marginalCostAmbience_m;
     private final double marginalCostStress_m;
     private final TravelTime timeCalculator;
+    private final LinkFactors linkFactors;
 
     // Default parameters
     public JibeDisutility(String mode, TravelTime tt) {
+        this(mode, tt, LinkFactors.uncached(mode));
+    }
+
+    public JibeDisutility(String mode, TravelTime tt, LinkFactors linkFactors) {
 
         if(!mode.equals(TransportMode.bike) && !mode.equals(TransportMode.walk)) {
             throw new RuntimeException("Mode " + mode + " not suported for JIBE disutility.");
@@ -41,6 +44,7 @@ public class JibeDisutility implements TravelDisutility {
 
         this.mode = mode;
         this.timeCalculator = tt;
+        this.linkFactors = linkFactors;
         this.marginalCostOfTime_s = Resources.instance.getMarginalCost(mode,Properties.TIME);
         this.marginalCostOfDistance_m = Resources.instance.getMarginalCost(mode,Properties.DISTANCE);
         this.marginalCostOfGradient_m_100m = Resources.instance.getMarginalCost(mode,Properties.GRADIENT);
@@ -55,6 +59,14 @@ public class JibeDisutility implements TravelDisutility {
                           double marginalCostOfTime_s, double marginalCostOfDistance_m,
                           double marginalCostOfGradient_m_100m, double marginalCostOfComfort_m,
                           double marginalCostAmbience_m, double marginalCostStress_m) {
+        this(mode, tt, LinkFactors.uncached(mode), marginalCostOfTime_s, marginalCostOfDistance_m,
+                marginalCostOfGradient_m_100m, marginalCostOfComfort_m, marginalCostAmbience_m, marginalCostStress_m);
+    }
+
+    public JibeDisutility(String mode, TravelTime tt, LinkFactors linkFactors,
+                          double marginalCostOfTime_s, double marginalCostOfDistance_m,
+                          double marginalCostOfGradient_m_100m, double marginalCostOfComfort_m,
+                          double marginalCostAmbience_m, double marginalCostStress_m) {
 
         if(!mode.equals(TransportMode.bike) && !mode.equals(TransportMode.walk)) {
             throw new RuntimeException("Mode " + mode + " not supported for JIBE disutility.");
@@ -62,6 +74,7 @@ public class JibeDisutility implements TravelDisutility {
 
         this.mode = mode;
         this.timeCalculator = tt;
+        this.linkFactors = linkFactors;
         this.marginalCostOfTime_s = marginalCostOfTime_s;
         this.marginalCostOfDistance_m = marginalCostOfDistance_m;
         this.marginalCostOfGradient_m_100m = marginalCostOfGradient_m_100m;
@@ -72,6 +85,11 @@ public class JibeDisutility implements TravelDisutility {
     }
 
     public JibeDisutility(String mode, TravelTime tt, double marginalCostAmbience_m, double marginalCostStress_m) {
+        this(mode, tt, LinkFactors.uncached(mode), marginalCostAmbience_m, marginalCostStress_m);
+    }
+
+    // Link factors can be shared by disutilities with different ambience and stress costs (see LinkFactors.of)
+    public JibeDisutility(String mode, TravelTime tt, LinkFactors linkFactors, double marginalCostAmbience_m, double marginalCostStress_m) {
 
         if(!mode.equals(TransportMode.bike) && !mode.equals(TransportMode.walk)) {
             throw new RuntimeException("Mode " + mode + " not supported for JIBE disutility.");
@@ -79,6 +97,7 @@ public class JibeDisutility implements TravelDisutility {
 
         this.mode = mode;
         this.timeCalculator = tt;
+        this.linkFactors = linkFactors;
         this.marginalCostOfTime_s = Resources.instance.getMarginalCost(mode,Properties.TIME);
         this.marginalCostOfDistance_m = Resources.instance.getMarginalCost(mode,Properties.DISTANCE);
         this.marginalCostOfGradient_m_100m = Resources.instance.getMarginalCost(mode,Properties.GRADIENT);
@@ -88,6 +107,23 @@ public class JibeDisutility implements TravelDisutility {
         printMarginalCosts();
     }
 
+    // Copy with other marginal costs of ambience and stress (without printing the marginal costs again)
+    private JibeDisutility(JibeDisutility other, double marginalCostAmbience_m, double marginalCostStress_m) {
+        this.mode = other.mode;
+        this.timeCalculator = other.timeCalculator;
+        this.linkFactors = other.linkFactors;
+        this.marginalCostOfTime_s = other.marginalCostOfTime_s;
+        this.marginalCostOfDistance_m = other.marginalCostOfDistance_m;
+        this.marginalCostOfGradient_m_100m = other.marginalCostOfGradient_m_100m;
+        this.marginalCostOfComfort_m = other.marginalCostOfComfort_m;
+        this.marginalCostAmbience_m = marginalCostAmbience_m;
+        this.marginalCostStress_m = marginalCostStress_m;
+    }
+
+    public JibeDisutility withAmbienceAndStress(double marginalCostAmbience_m, double marginalCostStress_m) {
+        return new JibeDisutility(this, marginalCostAmbience_m, marginalCostStress_m);
+    }
+
     private void printMarginalCosts() {
         logger.info("Initialised JIBE disutility with the following parameters:" +
                 "\nMode: " + this.mode +
@@ -115,24 +151,24 @@ public class JibeDisutility implements TravelDisutility {
             disutility += marginalCostOfDistance_m * distance;
 
             // Gradient factor
-            double gradient = Gradient.getGradient(link);
+            double gradient = linkFactors.getGradient(link);
             if(gradient < 0.) gradient = 0.;
             disutility += marginalCostOfGradient_m_100m * gradient * distance;
 
             // Comfort of surface
-            double comfortFactor = LinkComfort.getComfortFactor(link);
+            double comfortFactor = linkFactors.getComfortFactor(link);
             disutility += marginalCostOfComfort_m * comfortFactor * distance;
 
             // Ambience factors
-            double ambience = LinkAmbience.getDayAmbience(link);
+            double ambience = linkFactors.getDayAmbience(link);
             disutility += marginalCostAmbience_m * ambience * distance;
 
             // Stress factors
-            double linkStress = LinkStress.getStress(link,mode);
+            double linkStress = linkFactors.getLinkStress(link);
             disutility += marginalCostStress_m * linkStress * distance;
 
             // Junction stress factor
-            double junctionStress = JctStress.getStress(link,mode);
+            double junctionStress = linkFactors.getJctStress(link);
             disutility += marginalCostStress_m * junctionStress;
 
             if(Double.isNaN(disutility)) {
@@ -159,6 +195,42 @@ public class JibeDisutility implements TravelDisutility {
         return marginalCostStress_m;
     }
 
+    /**
+     * Per-link components of this disutility, indexed by component and link index. For each link allowing the mode,
+     * the disutility equals base + marginalCostAmbience_m * ambience + marginalCostStress_m * stress, where base
+     * contains the time, distance, gradient and surface comfort components. These can be combined into the disutility
+     * for other ambience and stress costs with {@link routing.graph.SpeedyGraph#reweight} and
+     * {@link #getComponentWeights}. Components are NaN for links not allowing the mode.
+     */
+    public double[][] getLinkComponents(Network network, double time, Person person, Vehicle vehicle) {
+        int linkCount = Id.getNumberOfIds(Link.class);
+        double[] base = new double[linkCount];
+        double[] ambience = new double[linkCount];
+        double[] stress = new double[linkCount];
+        for (Link link : network.getLinks().values()) {
+            int linkIdx = link.getId().index();
+            if(link.getAllowedModes().contains(this.mode)) {
+                base[linkIdx] = getTimeComponent(link, time, person, vehicle) + getDistanceComponent(link) +
+                        getGradientComponent(link) + getSurfaceComponent(link);
+                ambience[linkIdx] = linkFactors.getDayAmbience(link) * link.getLength();
+                stress[linkIdx] = linkFactors.getLinkStress(link) * link.getLength() + linkFactors.getJctStress(link);
+                if(Double.isNaN(base[linkIdx] + ambience[linkIdx] + stress[linkIdx])) {
+                    throw new RuntimeException("Null JIBE disutility for link " + link.getId().toString());
+                }
+            } else {
+                base[linkIdx] = Double.NaN;
+                ambience[linkIdx] = Double.NaN;
+                stress[linkIdx] = Double.NaN;
+            }
+        }
+        return new double[][] {base, ambience, stress};
+    }
+
+    // Weights of the components returned by getLinkComponents for the given marginal costs of ambience and stress
+    public static double[] getComponentWeights(double marginalCostAmbience_m, double marginalCostStress_m) {
+        return new double[] {1., marginalCostAmbience_m, marginalCostStress_m};
+    }
+
     public double getTimeComponent(Link link, double time, Person person, Vehicle vehicle) {
         double travelTime = timeCalculator.getLinkTravelTime(link, time, person, vehicle);
         return marginalCostOfTime_s * travelTime;
@@ -169,28 +241,28 @@ public class JibeDisutility implements TravelDisutility {
     }
 
     public double getGradientComponent(Link link) {
-        double gradient = Gradient.getGradient(link);
+        double gradient = linkFactors.getGradient(link);
         if(gradient < 0.) gradient = 0.;
         return marginalCostOfGradient_m_100m * gradient * link.getLength();
     }
 
     public double getSurfaceComponent(Link link) {
-        double comfortFactor = LinkComfort.getComfortFactor(link);
+        double comfortFactor = linkFactors.getComfortFactor(link);
         return marginalCostOfComfort_m * comfortFactor * link.getLength();
     }
 
     public double getAmbienceComponent(Link link) {
-        double ambience = LinkAmbience.getDayAmbience(link);
+        double ambience = linkFactors.getDayAmbience(link);
         return marginalCostAmbience_m * ambience * link.getLength();
     }
 
     public double getStressComponent(Link link) {
-        double stress = LinkStress.getStress(link, mode);
+        double stress = linkFactors.getLinkStress(link);
         return marginalCostStress_m * stress * link.getLength();
     }
 
     public double getJunctionComponent(Link link) {
-        double jctStress = JctStress.getStress(link, mode);
+        double jctStress = linkFactors.getJctStress(link);
         return marginalCostStress_m * jctStress;
     }
 }
@@ -0,0 +1,87 @@
+package routing.disutility.components;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import routing.Gradient;
+
+/**
+ * Columnar store of the link factors used by the JIBE disutility (gradient, surface comfort, day ambience, link stress
+ * and junction stress), with one primitive array per factor indexed by link index.
+ * <p>
+ * Factors are computed once for all links of the given network allowing the mode, so disutilities sharing an instance
+ * only recombine the stored factors when the marginal costs change. Links outside the network (or not allowing the
+ * mode) are computed from their attributes on each call. Link attributes must not be changed after creation.
+ * <p>
+ * Instances are read-only after creation and can be shared by multiple threads.
+ */
+public final class LinkFactors {
+
+    private final String mode;
+    private final boolean[] stored;
+    private final double[] gradient;
+    private final double[] comfort;
+    private final double[] ambience;
+    private final double[] stress;
+    private final double[] jctStress;
+
+    private LinkFactors(String mode, int size) {
+        this.mode = mode;
+        this.stored = new boolean[size];
+        this.gradient = new double[size];
+        this.comfort = new double[size];
+        this.ambience = new double[size];
+        this.stress = new double[size];
+        this.jctStress = new double[size];
+    }
+
+    public static LinkFactors of(Network network, String mode) {
+        LinkFactors factors = new LinkFactors(mode, Id.getNumberOfIds(Link.class));
+        for (Link link : network.getLinks().values()) {
+            if (link.getAllowedModes().contains(mode)) {
+                int linkIdx = link.getId().index();
+                factors.gradient[linkIdx] = Gradient.getGradient(link);
+                factors.comfort[linkIdx] = LinkComfort.getComfortFactor(link);
+                factors.ambience[linkIdx] = LinkAmbience.getDayAmbience(link);
+                factors.stress[linkIdx] = LinkStress.getStress(link, mode);
+                factors.jctStress[linkIdx] = JctStress.getStress(link, mode);
+                factors.stored[linkIdx] = true;
+            }
+        }
+        return factors;
+    }
+
+    // Computes all factors from the link attributes on each call
+    public static LinkFactors uncached(String mode) {
+        return new LinkFactors(mode, 0);
+    }
+
+    private boolean isStored(int linkIdx) {
+        return linkIdx < this.stored.length && this.stored[linkIdx];
+    }
+
+    public double getGradient(Link link) {
+        int linkIdx = link.getId().index();
+        return isStored(linkIdx) ? this.gradient[linkIdx] : Gradient.getGradient(link);
+    }
+
+    public double getComfortFactor(Link link) {
+        int linkIdx = link.getId().index();
+        return isStored(linkIdx) ? this.comfort[linkIdx] : LinkComfort.getComfortFactor(link);
+    }
+
+    public double getDayAmbience(Link link) {
+        int linkIdx = link.getId().index();
+        return isStored(linkIdx) ? this.ambience[linkIdx] : LinkAmbience.getDayAmbience(link);
+    }
+
+    public double getLinkStress(Link link) {
+        int linkIdx = link.getId().index();
+        return isStored(linkIdx) ? this.stress[linkIdx] : LinkStress.getStress(link, this.mode);
+    }
+
+    public double getJctStress(Link link) {
+        int linkIdx = link.getId().index();
+        return isStored(linkIdx) ? this.jctStress[linkIdx] : JctStress.getStress(link, this.mode);
+    }
+}
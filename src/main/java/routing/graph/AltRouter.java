@@ -0,0 +1,152 @@
+package routing.graph;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A* point-to-point search upon a {@link SpeedyGraph}, using the lower bounds of precomputed {@link Landmarks}
+ * (ALT: A*, landmarks, triangle inequality). Nodes are expanded in the order of their cost plus the lower bound of
+ * the remaining cost to the destination, so the search is directed towards the destination.
+ * <p>
+ * The landmarks may have been computed on a graph with a different disutility, as long as it is, for every link, not
+ * larger than the disutility used for routing (see {@link Landmarks}).
+ * <p>
+ * As in {@link BidirectionalDijkstra}, either the link disutilities stored in the graph or a given
+ * {@link TravelDisutility} (evaluated for each visited link) are used, and travel times are taken from the graph.
+ * <p>
+ * All required memory is pre-allocated in the constructor. This makes the implementation NOT thread-safe.
+ */
+public class AltRouter implements LeastCostPathCalculator {
+
+    private final SpeedyGraph graph;
+    private final Landmarks landmarks;
+    private final TravelDisutility td;
+    private final double[] cost;
+    private final double[] key; // cost + lower bound to destination
+    private final int[] comingFromLink;
+    private final int[] iterationIds;
+    private final int[] closedIterationIds;
+    private int currentIteration = Integer.MIN_VALUE;
+    private final SpeedyGraph.LinkIterator outLI;
+    private final NodeMinHeap pq;
+
+    public AltRouter(SpeedyGraph graph, Landmarks landmarks) {
+        this(graph, landmarks, null);
+    }
+
+    public AltRouter(SpeedyGraph graph, Landmarks landmarks, TravelDisutility td) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.td = td;
+        this.cost = new double[graph.nodeCount];
+        this.key = new double[graph.nodeCount];
+        this.comingFromLink = new int[graph.nodeCount];
+        this.iterationIds = new int[graph.nodeCount];
+        this.closedIterationIds = new int[graph.nodeCount];
+        Arrays.fill(this.iterationIds, this.currentIteration);
+        Arrays.fill(this.closedIterationIds, this.currentIteration);
+        this.pq = new NodeMinHeap(graph.nodeCount, node -> this.key[node], (node, k) -> this.key[node] = k);
+        this.outLI = graph.getOutLinkIterator();
+    }
+
+    @Override
+    public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+        int startNode = fromNode.getId().index();
+        int endNode = toNode.getId().index();
+
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.iterationIds, this.currentIteration);
+            Arrays.fill(this.closedIterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+
+        this.pq.clear();
+        setData(startNode, 0., this.landmarks.getLowerBound(startNode, endNode), -1);
+        this.pq.insert(startNode);
+
+        boolean found = false;
+        while (!this.pq.isEmpty()) {
+            final int nodeIdx = this.pq.poll();
+            if (nodeIdx == endNode) {
+                found = true;
+                break;
+            }
+            this.closedIterationIds[nodeIdx] = this.currentIteration;
+            double currCost = this.cost[nodeIdx];
+
+            this.outLI.reset(nodeIdx);
+            while (this.outLI.next()) {
+                int linkIdx = this.outLI.getLinkIndex();
+                int nextNode = this.outLI.getToNodeIndex();
+                double newCost = currCost + getLinkDisutility(linkIdx, starttime, person, vehicle);
+
+                if (this.iterationIds[nextNode] == this.currentIteration) {
+                    if (newCost < this.cost[nextNode]) {
+                        double bound = this.key[nextNode] - this.cost[nextNode];
+                        this.cost[nextNode] = newCost;
+                        this.comingFromLink[nextNode] = linkIdx;
+                        if (this.closedIterationIds[nextNode] == this.currentIteration) {
+                            // only possible due to rounding of the bounds, re-open the node
+                            this.closedIterationIds[nextNode] = this.currentIteration - 1;
+                            this.key[nextNode] = newCost + bound;
+                            this.pq.insert(nextNode);
+                        } else {
+                            this.pq.decreaseKey(nextNode, newCost + bound);
+                        }
+                    }
+                } else {
+                    setData(nextNode, newCost, newCost + this.landmarks.getLowerBound(nextNode, endNode), linkIdx);
+                    this.pq.insert(nextNode);
+                }
+            }
+        }
+
+        if (!found) {
+            return null;
+        }
+
+        List<Link> links = new ArrayList<>();
+        double travelTime = 0.;
+        for (int nodeIdx = endNode; nodeIdx != startNode; ) {
+            int linkIdx = this.comingFromLink[nodeIdx];
+            Link link = this.graph.getLink(linkIdx);
+            links.add(link);
+            travelTime += this.graph.getLinkTime(linkIdx);
+            nodeIdx = link.getFromNode().getId().index();
+        }
+        Collections.reverse(links);
+
+        List<Node> nodes = new ArrayList<>(links.size() + 1);
+        nodes.add(fromNode);
+        for (Link link : links) {
+            nodes.add(link.getToNode());
+        }
+
+        return new Path(nodes, links, travelTime, this.cost[endNode]);
+    }
+
+    private double getLinkDisutility(int linkIdx, double time, Person person, Vehicle vehicle) {
+        if (this.td == null) {
+            return this.graph.getLinkDisutility(linkIdx);
+        }
+        return this.td.getLinkTravelDisutility(this.graph.getLink(linkIdx), time, person, vehicle);
+    }
+
+    private void setData(int nodeIndex, double cost, double key, int linkIdx) {
+        this.cost[nodeIndex] = cost;
+        this.key[nodeIndex] = key;
+        this.comingFromLink[nodeIndex] = linkIdx;
+        this.iterationIds[nodeIndex] = this.currentIteration;
+    }
+}
@@ -0,0 +1,381 @@
+package routing.graph;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Calculates the least-cost-path trees of a batch of start nodes at once upon a {@link SpeedyGraph}.
+ * <p>
+ * Each node stores one cost, time and distance per start node ("lane"), next to each other in memory. A node is
+ * scanned whenever at least one of its lanes improved, and each link is then relaxed for all lanes in a single loop.
+ * Trees of nearby start nodes settle nearly the same nodes, so most nodes are only scanned a few times per batch
+ * instead of once per tree (see {@link #createBatches} for grouping start nodes by proximity).
+ * <p>
+ * The search is label-correcting: nodes are processed in the order of the minimum cost of their improved lanes, and
+ * re-scanned if a lane improves later on. Results are the same as for one {@link LeastCostPathTree3} per start node
+ * (up to paths of equal cost), also with a stop criterion: a single tree stops at the first settled node meeting the
+ * criterion. While searching, a lane is not expanded beyond labels meeting the criterion, and not at all beyond the
+ * cost of a final label meeting it. As labels are not settled in cost order, this can still reach more nodes than a
+ * single tree, so each lane is trimmed afterwards to the nodes a single tree settles before stopping, plus the
+ * tentative costs of their neighbours.
+ * <p>
+ * All required memory is pre-allocated in the constructor. This makes the implementation NOT thread-safe.
+ */
+public class BatchLeastCostPathTree {
+
+    private final static LeastCostPathTree3.StopCriterion NO_STOP = (node, arrTime, cost, distance, depTime) -> false;
+
+    private final SpeedyGraph graph;
+    private final int lanes;
+    private final double[] cost;
+    private final double[] time;
+    private final double[] distance;
+    private final long[] changedLanes;
+    private final double[] key;
+    private final boolean[] queued;
+    private final int[] iterationIds;
+    private int currentIteration = Integer.MIN_VALUE;
+    private final int[] reachedNodes;
+    private int reachedNodeCount = 0;
+    private int batchSize = 0;
+    private final double[] scanCost;
+    private final double[] stopCost;
+    private final SpeedyGraph.LinkIterator outLI;
+    private final SpeedyGraph.LinkIterator inLI;
+    private final NodeMinHeap pq;
+
+    /**
+     * @param graph graph providing the link costs
+     * @param lanes maximum number of start nodes per batch (at most 64)
+     */
+    public BatchLeastCostPathTree(SpeedyGraph graph, int lanes) {
+        if (lanes < 1 || lanes > Long.SIZE) {
+            throw new IllegalArgumentException("Number of lanes must be between 1 and " + Long.SIZE + ", got " + lanes);
+        }
+        this.graph = graph;
+        this.lanes = lanes;
+        this.cost = new double[graph.nodeCount * lanes];
+        this.time = new double[graph.nodeCount * lanes];
+        this.distance = new double[graph.nodeCount * lanes];
+        this.changedLanes = new long[graph.nodeCount];
+        this.key = new double[graph.nodeCount];
+        this.queued = new boolean[graph.nodeCount];
+        this.iterationIds = new int[graph.nodeCount];
+        Arrays.fill(this.iterationIds, this.currentIteration);
+        this.reachedNodes = new int[graph.nodeCount];
+        this.scanCost = new double[lanes];
+        this.stopCost = new double[lanes];
+        this.pq = new NodeMinHeap(graph.nodeCount, node -> this.key[node], (node, k) -> this.key[node] = k);
+        this.outLI = graph.getOutLinkIterator();
+        this.inLI = graph.getInLinkIterator();
+    }
+
+    public void calculate(int[] startNodes, double startTime, boolean fwd) {
+        this.calculate(startNodes, startTime, NO_STOP, fwd);
+    }
+
+    public void calculate(int[] startNodes, double startTime, LeastCostPathTree3.StopCriterion stopCriterion, boolean fwd) {
+        if (startNodes.length > this.lanes) {
+            throw new IllegalArgumentException("Got " + startNodes.length + " start nodes but only " + this.lanes + " lanes.");
+        }
+        SpeedyGraph.LinkIterator LI = fwd ? this.outLI : this.inLI;
+
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.iterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+        this.reachedNodeCount = 0;
+        this.batchSize = startNodes.length;
+
+        this.pq.clear();
+        Arrays.fill(this.stopCost, Double.POSITIVE_INFINITY);
+        double maxStopCost = Double.POSITIVE_INFINITY;
+        for (int lane = 0; lane < startNodes.length; lane++) {
+            int startNode = startNodes[lane];
+            reach(startNode);
+            int index = startNode * this.lanes + lane;
+            this.cost[index] = 0.;
+            this.time[index] = startTime;
+            this.distance[index] = 0.;
+            this.changedLanes[startNode] |= 1L << lane;
+            if (!this.queued[startNode]) {
+                this.key[startNode] = 0.;
+                this.queued[startNode] = true;
+                this.pq.insert(startNode);
+            }
+        }
+
+        while (!this.pq.isEmpty()) {
+            final int nodeIdx = this.pq.poll();
+            final double nodeKey = this.key[nodeIdx];
+            if (nodeKey >= maxStopCost) {
+                // all lanes are stopped, nothing left to expand
+                break;
+            }
+            this.queued[nodeIdx] = false;
+            long changed = this.changedLanes[nodeIdx];
+            this.changedLanes[nodeIdx] = 0L;
+
+            // only lanes which improved since the last scan (and are not stopped) need to be relaxed
+            int base = nodeIdx * this.lanes;
+            boolean any = false;
+            long deferred = 0L;
+            double deferredKey = Double.POSITIVE_INFINITY;
+            for (int lane = 0; lane < this.lanes; lane++) {
+                double c = Double.POSITIVE_INFINITY;
+                double laneCost = this.cost[base + lane];
+                if ((changed & (1L << lane)) != 0 && laneCost < this.stopCost[lane]) {
+                    if (!stopCriterion.stop(nodeIdx, this.time[base + lane], laneCost, this.distance[base + lane], startTime)) {
+                        c = laneCost;
+                        any = true;
+                    } else if (laneCost <= nodeKey) {
+                        // labels up to the current key are final, so the lane does not need to expand beyond this cost
+                        this.stopCost[lane] = laneCost;
+                        maxStopCost = maxStopCost(this.stopCost, startNodes.length);
+                    } else {
+                        // check again once the label is final
+                        deferred |= 1L << lane;
+                        deferredKey = Math.min(deferredKey, laneCost);
+                    }
+                }
+                this.scanCost[lane] = c;
+            }
+            if (deferred != 0L) {
+                this.changedLanes[nodeIdx] |= deferred;
+                this.key[nodeIdx] = deferredKey;
+                this.queued[nodeIdx] = true;
+                this.pq.insert(nodeIdx);
+            }
+            if (!any) {
+                continue;
+            }
+
+            LI.reset(nodeIdx);
+            while (LI.next()) {
+                int linkIdx = LI.getLinkIndex();
+                int nextNode = fwd ? LI.getToNodeIndex() : LI.getFromNodeIndex();
+                double linkCost = this.graph.getLinkDisutility(linkIdx);
+                double linkTime = this.graph.getLinkTime(linkIdx);
+                double linkLength = this.graph.getLinkLength(linkIdx);
+                reach(nextNode);
+
+                int nextBase = nextNode * this.lanes;
+                long improved = 0L;
+                double minCost = Double.POSITIVE_INFINITY;
+                for (int lane = 0; lane < this.lanes; lane++) {
+                    double newCost = this.scanCost[lane] + linkCost;
+                    if (newCost < this.cost[nextBase + lane]) {
+                        this.cost[nextBase + lane] = newCost;
+                        this.time[nextBase + lane] = this.time[base + lane] + linkTime;
+                        this.distance[nextBase + lane] = this.distance[base + lane] + linkLength;
+                        improved |= 1L << lane;
+                        minCost = Math.min(minCost, newCost);
+                    }
+                }
+
+                if (improved != 0L) {
+                    this.changedLanes[nextNode] |= improved;
+                    if (!this.queued[nextNode]) {
+                        this.key[nextNode] = minCost;
+                        this.queued[nextNode] = true;
+                        this.pq.insert(nextNode);
+                    } else if (minCost < this.key[nextNode]) {
+                        this.pq.decreaseKey(nextNode, minCost);
+                    }
+                }
+            }
+        }
+
+        if (stopCriterion != NO_STOP) {
+            trimLanes(stopCriterion, startTime, LI, fwd);
+        }
+    }
+
+    private static double maxStopCost(double[] stopCost, int batchSize) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int lane = 0; lane < batchSize; lane++) {
+            max = Math.max(max, stopCost[lane]);
+        }
+        return max;
+    }
+
+    // Reproduces the results of a single tree which stops at the first settled node meeting the stop criterion.
+    // The lowest cost at which a lane meets the criterion is the cost of that node: all nodes below that cost are
+    // exact, as their least-cost paths only pass nodes which do not meet the criterion. Labels at or above that cost
+    // are replaced by the tentative costs a single tree would have, i.e. relaxed from the nodes below that cost only.
+    private void trimLanes(LeastCostPathTree3.StopCriterion stopCriterion, double startTime, SpeedyGraph.LinkIterator LI, boolean fwd) {
+        double[] stopCost = this.stopCost;
+        Arrays.fill(stopCost, Double.POSITIVE_INFINITY);
+        boolean anyStop = false;
+        for (int i = 0; i < this.reachedNodeCount; i++) {
+            int nodeIdx = this.reachedNodes[i];
+            int base = nodeIdx * this.lanes;
+            for (int lane = 0; lane < this.batchSize; lane++) {
+                double c = this.cost[base + lane];
+                if (c < stopCost[lane] && stopCriterion.stop(nodeIdx, this.time[base + lane], c, this.distance[base + lane], startTime)) {
+                    stopCost[lane] = c;
+                    anyStop = true;
+                }
+            }
+        }
+        if (!anyStop) {
+            return;
+        }
+
+        // clear labels at or beyond the stop
+        for (int i = 0; i < this.reachedNodeCount; i++) {
+            int base = this.reachedNodes[i] * this.lanes;
+            for (int lane = 0; lane < this.batchSize; lane++) {
+                if (this.cost[base + lane] >= stopCost[lane]) {
+                    this.cost[base + lane] = Double.POSITIVE_INFINITY;
+                    this.time[base + lane] = Double.POSITIVE_INFINITY;
+                    this.distance[base + lane] = Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+
+        // relax again from the nodes before the stop. Cleared nodes only receive costs at or above the stop cost, so
+        // they are never used as a source and a single pass is sufficient.
+        for (int i = 0; i < this.reachedNodeCount; i++) {
+            int nodeIdx = this.reachedNodes[i];
+            int base = nodeIdx * this.lanes;
+            boolean any = false;
+            for (int lane = 0; lane < this.batchSize; lane++) {
+                if (this.cost[base + lane] < stopCost[lane]) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                continue;
+            }
+
+            LI.reset(nodeIdx);
+            while (LI.next()) {
+                int linkIdx = LI.getLinkIndex();
+                int nextBase = (fwd ? LI.getToNodeIndex() : LI.getFromNodeIndex()) * this.lanes;
+                double linkCost = this.graph.getLinkDisutility(linkIdx);
+                for (int lane = 0; lane < this.batchSize; lane++) {
+                    double c = this.cost[base + lane];
+                    if (c < stopCost[lane] && c + linkCost < this.cost[nextBase + lane]) {
+                        this.cost[nextBase + lane] = c + linkCost;
+                        this.time[nextBase + lane] = this.time[base + lane] + this.graph.getLinkTime(linkIdx);
+                        this.distance[nextBase + lane] = this.distance[base + lane] + this.graph.getLinkLength(linkIdx);
+                    }
+                }
+            }
+        }
+    }
+
+    // initialises all lanes of a node the first time it is reached in the current iteration
+    private void reach(int nodeIdx) {
+        if (this.iterationIds[nodeIdx] != this.currentIteration) {
+            this.iterationIds[nodeIdx] = this.currentIteration;
+            this.reachedNodes[this.reachedNodeCount++] = nodeIdx;
+            int base = nodeIdx * this.lanes;
+            Arrays.fill(this.cost, base, base + this.lanes, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.time, base, base + this.lanes, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.distance, base, base + this.lanes, Double.POSITIVE_INFINITY);
+            this.changedLanes[nodeIdx] = 0L;
+            this.queued[nodeIdx] = false;
+        }
+    }
+
+    /**
+     * @return the number of start nodes of the last calculation
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public double getCost(int lane, int nodeIndex) {
+        if (this.iterationIds[nodeIndex] == this.currentIteration) {
+            return this.cost[nodeIndex * this.lanes + lane];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    public double getTime(int lane, int nodeIndex) {
+        if (this.iterationIds[nodeIndex] == this.currentIteration) {
+            return this.time[nodeIndex * this.lanes + lane];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    public double getDistance(int lane, int nodeIndex) {
+        if (this.iterationIds[nodeIndex] == this.currentIteration) {
+            return this.distance[nodeIndex * this.lanes + lane];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the number of nodes reached by at least one lane in the last calculation. Together with
+     * {@link #getReachedNode(int)}, this allows to visit only the part of the graph covered by bounded trees.
+     */
+    public int getReachedNodeCount() {
+        return this.reachedNodeCount;
+    }
+
+    public int getReachedNode(int i) {
+        return this.reachedNodes[i];
+    }
+
+    /**
+     * Splits the given nodes into batches of nearby nodes, by sorting them along a Z-order curve of their coordinates.
+     *
+     * @return node indices of each batch
+     */
+    public static List<int[]> createBatches(SpeedyGraph graph, Collection<Id<Node>> nodes, int batchSize) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Id<Node> nodeId : nodes) {
+            Coord coord = graph.getNode(nodeId.index()).getCoord();
+            minX = Math.min(minX, coord.getX());
+            minY = Math.min(minY, coord.getY());
+            maxX = Math.max(maxX, coord.getX());
+            maxY = Math.max(maxY, coord.getY());
+        }
+        double scale = 32767. / Math.max(1., Math.max(maxX - minX, maxY - minY));
+
+        // z-order code in the upper bits, node index in the lower bits
+        long[] sorted = new long[nodes.size()];
+        int i = 0;
+        for (Id<Node> nodeId : nodes) {
+            Coord coord = graph.getNode(nodeId.index()).getCoord();
+            long z = interleave((int) ((coord.getX() - minX) * scale)) | (interleave((int) ((coord.getY() - minY) * scale)) << 1);
+            sorted[i++] = (z << 32) | nodeId.index();
+        }
+        Arrays.sort(sorted);
+
+        List<int[]> batches = new ArrayList<>((sorted.length + batchSize - 1) / batchSize);
+        for (int start = 0; start < sorted.length; start += batchSize) {
+            int[] batch = new int[Math.min(batchSize, sorted.length - start)];
+            for (int j = 0; j < batch.length; j++) {
+                batch[j] = (int) sorted[start + j];
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    // spreads the lower 16 bits of value to the even bits of the result
+    private static long interleave(int value) {
+        long x = value & 0xFFFFL;
+        x = (x | (x << 8)) & 0x00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0FL;
+        x = (x | (x << 2)) & 0x33333333L;
+        x = (x | (x << 1)) & 0x55555555L;
+        return x;
+    }
+}
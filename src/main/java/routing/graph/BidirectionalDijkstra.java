@@ -0,0 +1,218 @@
+package routing.graph;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bidirectional point-to-point least-cost-path search upon a {@link SpeedyGraph}. A forward search from the origin
+ * (using the out-links) and a backward search from the destination (using the in-links) are expanded alternately,
+ * always on the side with the lower minimum cost. The search stops as soon as the sum of both minimum costs reaches the
+ * cheapest connection found so far, so only about the nodes within half the path cost around each end are settled.
+ * <p>
+ * By default, the link disutilities stored in the graph are used (i.e. evaluated at time 0). Alternatively, a
+ * {@link TravelDisutility} can be provided, which is then evaluated for each visited link with the start time, person
+ * and vehicle of the request. In both cases, the disutility must not depend on the time of day, and travel times are
+ * taken from the graph.
+ * <p>
+ * All required memory is pre-allocated in the constructor. This makes the implementation NOT thread-safe.
+ */
+public class BidirectionalDijkstra implements LeastCostPathCalculator {
+
+    private final SpeedyGraph graph;
+    private final TravelDisutility td;
+    private final double[] fwdCost;
+    private final double[] bwdCost;
+    private final int[] fwdComingFromLink;
+    private final int[] bwdComingFromLink;
+    private final int[] fwdIterationIds;
+    private final int[] bwdIterationIds;
+    private int currentIteration = Integer.MIN_VALUE;
+    private final SpeedyGraph.LinkIterator outLI;
+    private final SpeedyGraph.LinkIterator inLI;
+    private final NodeMinHeap fwdPQ;
+    private final NodeMinHeap bwdPQ;
+
+    private double startTime;
+    private Person person;
+    private Vehicle vehicle;
+
+    public BidirectionalDijkstra(SpeedyGraph graph) {
+        this(graph, null);
+    }
+
+    public BidirectionalDijkstra(SpeedyGraph graph, TravelDisutility td) {
+        this.graph = graph;
+        this.td = td;
+        this.fwdCost = new double[graph.nodeCount];
+        this.bwdCost = new double[graph.nodeCount];
+        this.fwdComingFromLink = new int[graph.nodeCount];
+        this.bwdComingFromLink = new int[graph.nodeCount];
+        this.fwdIterationIds = new int[graph.nodeCount];
+        this.bwdIterationIds = new int[graph.nodeCount];
+        Arrays.fill(this.fwdIterationIds, this.currentIteration);
+        Arrays.fill(this.bwdIterationIds, this.currentIteration);
+        this.fwdPQ = new NodeMinHeap(graph.nodeCount, this::getFwdCost, (node, cost) -> this.fwdCost[node] = cost);
+        this.bwdPQ = new NodeMinHeap(graph.nodeCount, this::getBwdCost, (node, cost) -> this.bwdCost[node] = cost);
+        this.outLI = graph.getOutLinkIterator();
+        this.inLI = graph.getInLinkIterator();
+    }
+
+    @Override
+    public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+        int startNode = fromNode.getId().index();
+        int endNode = toNode.getId().index();
+        this.startTime = starttime;
+        this.person = person;
+        this.vehicle = vehicle;
+
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.fwdIterationIds, this.currentIteration);
+            Arrays.fill(this.bwdIterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+
+        this.fwdPQ.clear();
+        this.bwdPQ.clear();
+        setFwd(startNode, 0., -1);
+        setBwd(endNode, 0., -1);
+        this.fwdPQ.insert(startNode);
+        this.bwdPQ.insert(endNode);
+
+        double bestCost = startNode == endNode ? 0. : Double.POSITIVE_INFINITY;
+        int meetingNode = startNode == endNode ? startNode : -1;
+
+        while (true) {
+            double fwdMin = this.fwdPQ.isEmpty() ? Double.POSITIVE_INFINITY : getFwdCost(this.fwdPQ.peek());
+            double bwdMin = this.bwdPQ.isEmpty() ? Double.POSITIVE_INFINITY : getBwdCost(this.bwdPQ.peek());
+            if (fwdMin + bwdMin >= bestCost) {
+                break;
+            }
+
+            boolean fwd = fwdMin <= bwdMin;
+            NodeMinHeap pq = fwd ? this.fwdPQ : this.bwdPQ;
+            SpeedyGraph.LinkIterator LI = fwd ? this.outLI : this.inLI;
+
+            final int nodeIdx = pq.poll();
+            double currCost = fwd ? getFwdCost(nodeIdx) : getBwdCost(nodeIdx);
+
+            LI.reset(nodeIdx);
+            while (LI.next()) {
+                int linkIdx = LI.getLinkIndex();
+                int nextNode = fwd ? LI.getToNodeIndex() : LI.getFromNodeIndex();
+
+                double oldCost = fwd ? getFwdCost(nextNode) : getBwdCost(nextNode);
+                double newCost = currCost + getLinkDisutility(linkIdx);
+
+                if (Double.isFinite(oldCost)) {
+                    if (newCost < oldCost) {
+                        pq.decreaseKey(nextNode, newCost);
+                        if (fwd) {
+                            this.fwdComingFromLink[nextNode] = linkIdx;
+                        } else {
+                            this.bwdComingFromLink[nextNode] = linkIdx;
+                        }
+                    } else {
+                        continue;
+                    }
+                } else {
+                    if (fwd) {
+                        setFwd(nextNode, newCost, linkIdx);
+                    } else {
+                        setBwd(nextNode, newCost, linkIdx);
+                    }
+                    pq.insert(nextNode);
+                }
+
+                // check whether the two searches meet at this node
+                double otherCost = fwd ? getBwdCost(nextNode) : getFwdCost(nextNode);
+                if (newCost + otherCost < bestCost) {
+                    bestCost = newCost + otherCost;
+                    meetingNode = nextNode;
+                }
+            }
+        }
+
+        if (meetingNode < 0) {
+            return null;
+        }
+        return constructPath(startNode, endNode, meetingNode, bestCost);
+    }
+
+    private Path constructPath(int startNode, int endNode, int meetingNode, double cost) {
+        List<Link> links = new ArrayList<>();
+        double travelTime = 0.;
+
+        // forward part, from the meeting node back to the origin
+        int nodeIdx = meetingNode;
+        while (nodeIdx != startNode) {
+            int linkIdx = this.fwdComingFromLink[nodeIdx];
+            Link link = this.graph.getLink(linkIdx);
+            links.add(link);
+            travelTime += this.graph.getLinkTime(linkIdx);
+            nodeIdx = link.getFromNode().getId().index();
+        }
+        Collections.reverse(links);
+
+        // backward part, from the meeting node on to the destination
+        nodeIdx = meetingNode;
+        while (nodeIdx != endNode) {
+            int linkIdx = this.bwdComingFromLink[nodeIdx];
+            Link link = this.graph.getLink(linkIdx);
+            links.add(link);
+            travelTime += this.graph.getLinkTime(linkIdx);
+            nodeIdx = link.getToNode().getId().index();
+        }
+
+        List<Node> nodes = new ArrayList<>(links.size() + 1);
+        nodes.add(this.graph.getNode(startNode));
+        for (Link link : links) {
+            nodes.add(link.getToNode());
+        }
+
+        return new Path(nodes, links, travelTime, cost);
+    }
+
+    private double getLinkDisutility(int linkIdx) {
+        if (this.td == null) {
+            return this.graph.getLinkDisutility(linkIdx);
+        }
+        return this.td.getLinkTravelDisutility(this.graph.getLink(linkIdx), this.startTime, this.person, this.vehicle);
+    }
+
+    private double getFwdCost(int nodeIndex) {
+        if (this.fwdIterationIds[nodeIndex] == this.currentIteration) {
+            return this.fwdCost[nodeIndex];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double getBwdCost(int nodeIndex) {
+        if (this.bwdIterationIds[nodeIndex] == this.currentIteration) {
+            return this.bwdCost[nodeIndex];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void setFwd(int nodeIndex, double cost, int linkIdx) {
+        this.fwdCost[nodeIndex] = cost;
+        this.fwdComingFromLink[nodeIndex] = linkIdx;
+        this.fwdIterationIds[nodeIndex] = this.currentIteration;
+    }
+
+    private void setBwd(int nodeIndex, double cost, int linkIdx) {
+        this.bwdCost[nodeIndex] = cost;
+        this.bwdComingFromLink[nodeIndex] = linkIdx;
+        this.bwdIterationIds[nodeIndex] = this.currentIteration;
+    }
+}
@@ -0,0 +1,386 @@
+package routing.graph;
+
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy built upon a {@link SpeedyGraph}, using the link disutilities stored in the graph.
+ * <p>
+ * Nodes are contracted one after the other in the order of their (lazily updated) edge difference. When a node is
+ * contracted, a shortcut edge is added between each pair of its remaining neighbours unless a local witness search
+ * finds a path of at most the same cost avoiding the node. Each shortcut remembers the two edges it replaces, so
+ * paths found with {@link ContractionHierarchyRouter} can be unpacked to the original links.
+ * <p>
+ * The edges (original links and shortcuts) are finally stored in two compact adjacency arrays: the upward out-edges
+ * of each node for the forward search, and the upward in-edges of each node for the backward search.
+ * <p>
+ * The hierarchy is only valid for the disutility the graph was built with. It is read-only after construction, so a
+ * single instance can be shared by multiple routers running in different threads.
+ */
+public class ContractionHierarchy {
+
+    private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+    private final static int WITNESS_SETTLED_LIMIT = 100;
+
+    final SpeedyGraph graph;
+    final int nodeCount;
+
+    // edges: original links (child1 = link index, child2 = -1) and shortcuts (child1, child2 = replaced edges)
+    private int edgeCount = 0;
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private double[] edgeCost;
+    private int[] edgeChild1;
+    private int[] edgeChild2;
+
+    // upward adjacency (compressed), used by the query
+    private final int[] rank;
+    private final int[] fwdFirst;
+    private final int[] fwdEdges;
+    private final int[] bwdFirst;
+    private final int[] bwdEdges;
+
+    // temporary data, only used during contraction
+    private int[][] outEdges;
+    private int[] outCount;
+    private int[][] inEdges;
+    private int[] inCount;
+    private boolean[] contracted;
+    private int[] contractedNeighbours;
+    private int[] level;
+    private double[] witnessCost;
+    private int[] witnessIterationIds;
+    private int witnessIteration = 0;
+    private NodeMinHeap witnessPQ;
+
+    public ContractionHierarchy(SpeedyGraph graph) {
+        this.graph = graph;
+        this.nodeCount = graph.nodeCount;
+
+        int capacity = Math.max(16, graph.linkCount * 2);
+        this.edgeFrom = new int[capacity];
+        this.edgeTo = new int[capacity];
+        this.edgeCost = new double[capacity];
+        this.edgeChild1 = new int[capacity];
+        this.edgeChild2 = new int[capacity];
+
+        this.outEdges = new int[nodeCount][];
+        this.outCount = new int[nodeCount];
+        this.inEdges = new int[nodeCount][];
+        this.inCount = new int[nodeCount];
+        this.contracted = new boolean[nodeCount];
+        this.contractedNeighbours = new int[nodeCount];
+        this.level = new int[nodeCount];
+        this.witnessCost = new double[nodeCount];
+        this.witnessIterationIds = new int[nodeCount];
+        this.witnessPQ = new NodeMinHeap(nodeCount, this::getWitnessCost, (node, cost) -> this.witnessCost[node] = cost);
+
+        // original links
+        for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+            if (graph.getLink(linkIdx) != null) {
+                int fromNode = graph.getLink(linkIdx).getFromNode().getId().index();
+                int toNode = graph.getLink(linkIdx).getToNode().getId().index();
+                if (fromNode != toNode) {
+                    addEdge(fromNode, toNode, graph.getLinkDisutility(linkIdx), linkIdx, -1);
+                }
+            }
+        }
+        int originalEdgeCount = this.edgeCount;
+
+        // contract nodes
+        log.info("Contracting " + nodeCount + " nodes...");
+        this.rank = new int[nodeCount];
+        double[] priority = new double[nodeCount];
+        NodeMinHeap queue = new NodeMinHeap(nodeCount, node -> priority[node], (node, p) -> priority[node] = p);
+        for (int node = 0; node < nodeCount; node++) {
+            priority[node] = contract(node, true);
+            queue.insert(node);
+        }
+
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+
+            // lazy update: only contract the node if it is still (one of) the most attractive
+            double newPriority = contract(node, true);
+            if (!queue.isEmpty() && newPriority > priority[queue.peek()]) {
+                priority[node] = newPriority;
+                queue.insert(node);
+                continue;
+            }
+
+            contract(node, false);
+            this.contracted[node] = true;
+            this.rank[node] = order++;
+
+            for (int i = 0; i < this.outCount[node]; i++) {
+                updateNeighbour(node, this.edgeTo[this.outEdges[node][i]]);
+            }
+            for (int i = 0; i < this.inCount[node]; i++) {
+                updateNeighbour(node, this.edgeFrom[this.inEdges[node][i]]);
+            }
+
+            if (order % 100000 == 0) {
+                log.info("Contracted " + order + " / " + nodeCount + " nodes. Shortcuts: " + (this.edgeCount - originalEdgeCount));
+            }
+        }
+        log.info("Finished contraction. Original edges: " + originalEdgeCount + ", shortcuts: " + (this.edgeCount - originalEdgeCount));
+
+        // build upward adjacency arrays
+        this.fwdFirst = new int[nodeCount + 1];
+        this.bwdFirst = new int[nodeCount + 1];
+        for (int e = 0; e < this.edgeCount; e++) {
+            if (this.rank[this.edgeFrom[e]] < this.rank[this.edgeTo[e]]) {
+                this.fwdFirst[this.edgeFrom[e] + 1]++;
+            } else {
+                this.bwdFirst[this.edgeTo[e] + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            this.fwdFirst[node + 1] += this.fwdFirst[node];
+            this.bwdFirst[node + 1] += this.bwdFirst[node];
+        }
+        this.fwdEdges = new int[this.fwdFirst[nodeCount]];
+        this.bwdEdges = new int[this.bwdFirst[nodeCount]];
+        int[] fwdPos = Arrays.copyOf(this.fwdFirst, nodeCount);
+        int[] bwdPos = Arrays.copyOf(this.bwdFirst, nodeCount);
+        for (int e = 0; e < this.edgeCount; e++) {
+            if (this.rank[this.edgeFrom[e]] < this.rank[this.edgeTo[e]]) {
+                this.fwdEdges[fwdPos[this.edgeFrom[e]]++] = e;
+            } else {
+                this.bwdEdges[bwdPos[this.edgeTo[e]]++] = e;
+            }
+        }
+
+        // free temporary data
+        this.outEdges = null;
+        this.outCount = null;
+        this.inEdges = null;
+        this.inCount = null;
+        this.contracted = null;
+        this.contractedNeighbours = null;
+        this.level = null;
+        this.witnessCost = null;
+        this.witnessIterationIds = null;
+        this.witnessPQ = null;
+    }
+
+    // Contracts the node (or only counts the required shortcuts if simulate is true) and returns its priority
+    private double contract(int node, boolean simulate) {
+        int shortcuts = 0;
+        int removedEdges = 0;
+
+        for (int i = 0; i < this.inCount[node]; i++) {
+            int inEdge = this.inEdges[node][i];
+            int fromNode = this.edgeFrom[inEdge];
+            if (this.contracted[fromNode]) {
+                continue;
+            }
+            removedEdges++;
+
+            // maximum cost of all shortcuts starting at fromNode
+            double maxCost = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < this.outCount[node]; j++) {
+                int outEdge = this.outEdges[node][j];
+                int toNode = this.edgeTo[outEdge];
+                if (!this.contracted[toNode] && toNode != fromNode) {
+                    maxCost = Math.max(maxCost, this.edgeCost[inEdge] + this.edgeCost[outEdge]);
+                }
+            }
+            if (maxCost < 0.) {
+                continue;
+            }
+
+            witnessSearch(fromNode, node, maxCost);
+
+            for (int j = 0; j < this.outCount[node]; j++) {
+                int outEdge = this.outEdges[node][j];
+                int toNode = this.edgeTo[outEdge];
+                if (this.contracted[toNode] || toNode == fromNode) {
+                    continue;
+                }
+                double cost = this.edgeCost[inEdge] + this.edgeCost[outEdge];
+                if (getWitnessCost(toNode) > cost) {
+                    shortcuts++;
+                    if (!simulate) {
+                        addEdge(fromNode, toNode, cost, inEdge, outEdge);
+                    }
+                }
+            }
+        }
+        for (int j = 0; j < this.outCount[node]; j++) {
+            if (!this.contracted[this.edgeTo[this.outEdges[node][j]]]) {
+                removedEdges++;
+            }
+        }
+
+        return 2 * (shortcuts - removedEdges) + this.contractedNeighbours[node] + this.level[node];
+    }
+
+    private void updateNeighbour(int contractedNode, int neighbour) {
+        if (this.contracted[neighbour]) {
+            return;
+        }
+        this.contractedNeighbours[neighbour]++;
+        this.level[neighbour] = Math.max(this.level[neighbour], this.level[contractedNode] + 1);
+
+        // remove edges to contracted nodes, so later witness searches and contractions do not need to skip them
+        int count = 0;
+        for (int i = 0; i < this.outCount[neighbour]; i++) {
+            int edge = this.outEdges[neighbour][i];
+            if (!this.contracted[this.edgeTo[edge]]) {
+                this.outEdges[neighbour][count++] = edge;
+            }
+        }
+        this.outCount[neighbour] = count;
+        count = 0;
+        for (int i = 0; i < this.inCount[neighbour]; i++) {
+            int edge = this.inEdges[neighbour][i];
+            if (!this.contracted[this.edgeFrom[edge]]) {
+                this.inEdges[neighbour][count++] = edge;
+            }
+        }
+        this.inCount[neighbour] = count;
+    }
+
+    // Dijkstra from the start node among not-contracted nodes, avoiding the node to contract
+    private void witnessSearch(int startNode, int ignoredNode, double maxCost) {
+        this.witnessIteration++;
+        if (this.witnessIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.witnessIterationIds, 0);
+            this.witnessIteration = 1;
+        }
+        this.witnessPQ.clear();
+        setWitnessCost(startNode, 0.);
+        this.witnessPQ.insert(startNode);
+
+        int settled = 0;
+        while (!this.witnessPQ.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+            int nodeIdx = this.witnessPQ.poll();
+            double currCost = getWitnessCost(nodeIdx);
+            if (currCost > maxCost) {
+                break;
+            }
+            settled++;
+
+            for (int i = 0; i < this.outCount[nodeIdx]; i++) {
+                int edge = this.outEdges[nodeIdx][i];
+                int nextNode = this.edgeTo[edge];
+                if (nextNode == ignoredNode || this.contracted[nextNode]) {
+                    continue;
+                }
+                double newCost = currCost + this.edgeCost[edge];
+                double oldCost = getWitnessCost(nextNode);
+                if (Double.isFinite(oldCost)) {
+                    if (newCost < oldCost) {
+                        this.witnessPQ.decreaseKey(nextNode, newCost);
+                    }
+                } else {
+                    setWitnessCost(nextNode, newCost);
+                    this.witnessPQ.insert(nextNode);
+                }
+            }
+        }
+    }
+
+    private double getWitnessCost(int node) {
+        if (this.witnessIterationIds[node] == this.witnessIteration) {
+            return this.witnessCost[node];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void setWitnessCost(int node, double cost) {
+        this.witnessCost[node] = cost;
+        this.witnessIterationIds[node] = this.witnessIteration;
+    }
+
+    private void addEdge(int fromNode, int toNode, double cost, int child1, int child2) {
+        if (this.edgeCount == this.edgeFrom.length) {
+            int capacity = this.edgeFrom.length * 2;
+            this.edgeFrom = Arrays.copyOf(this.edgeFrom, capacity);
+            this.edgeTo = Arrays.copyOf(this.edgeTo, capacity);
+            this.edgeCost = Arrays.copyOf(this.edgeCost, capacity);
+            this.edgeChild1 = Arrays.copyOf(this.edgeChild1, capacity);
+            this.edgeChild2 = Arrays.copyOf(this.edgeChild2, capacity);
+        }
+        int e = this.edgeCount++;
+        this.edgeFrom[e] = fromNode;
+        this.edgeTo[e] = toNode;
+        this.edgeCost[e] = cost;
+        this.edgeChild1[e] = child1;
+        this.edgeChild2[e] = child2;
+
+        this.outEdges[fromNode] = append(this.outEdges[fromNode], this.outCount[fromNode]++, e);
+        this.inEdges[toNode] = append(this.inEdges[toNode], this.inCount[toNode]++, e);
+    }
+
+    private static int[] append(int[] array, int size, int value) {
+        if (array == null) {
+            array = new int[4];
+        } else if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+
+    int getRank(int node) {
+        return this.rank[node];
+    }
+
+    int getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    int getFwdFirst(int node) {
+        return this.fwdFirst[node];
+    }
+
+    int getFwdEnd(int node) {
+        return this.fwdFirst[node + 1];
+    }
+
+    int getFwdEdge(int i) {
+        return this.fwdEdges[i];
+    }
+
+    int getBwdFirst(int node) {
+        return this.bwdFirst[node];
+    }
+
+    int getBwdEnd(int node) {
+        return this.bwdFirst[node + 1];
+    }
+
+    int getBwdEdge(int i) {
+        return this.bwdEdges[i];
+    }
+
+    int getEdgeFrom(int edge) {
+        return this.edgeFrom[edge];
+    }
+
+    int getEdgeTo(int edge) {
+        return this.edgeTo[edge];
+    }
+
+    double getEdgeCost(int edge) {
+        return this.edgeCost[edge];
+    }
+
+    boolean isShortcut(int edge) {
+        return this.edgeChild2[edge] >= 0;
+    }
+
+    int getChild1(int edge) {
+        return this.edgeChild1[edge];
+    }
+
+    int getChild2(int edge) {
+        return this.edgeChild2[edge];
+    }
+}
@@ -0,0 +1,192 @@
+package routing.graph;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point-to-point query on a {@link ContractionHierarchy}. A forward search from the origin only follows edges to
+ * higher-ranked nodes, a backward search from the destination only follows (reversed) edges from higher-ranked nodes.
+ * Each search stops once its minimum cost reaches the best connection found. The resulting shortcuts are unpacked
+ * recursively, so the returned path consists of the original network links.
+ * <p>
+ * Costs are the disutilities stored in the underlying {@link SpeedyGraph}; the start time, person and vehicle of the
+ * request are ignored. Travel times are taken from the graph.
+ * <p>
+ * All required memory is pre-allocated in the constructor. This makes the implementation NOT thread-safe, but
+ * multiple routers can share the same hierarchy.
+ */
+public class ContractionHierarchyRouter implements LeastCostPathCalculator {
+
+    private final ContractionHierarchy ch;
+    private final double[] fwdCost;
+    private final double[] bwdCost;
+    private final int[] fwdComingFromEdge;
+    private final int[] bwdComingFromEdge;
+    private final int[] fwdIterationIds;
+    private final int[] bwdIterationIds;
+    private int currentIteration = Integer.MIN_VALUE;
+    private final NodeMinHeap fwdPQ;
+    private final NodeMinHeap bwdPQ;
+
+    public ContractionHierarchyRouter(ContractionHierarchy ch) {
+        this.ch = ch;
+        int nodeCount = ch.nodeCount;
+        this.fwdCost = new double[nodeCount];
+        this.bwdCost = new double[nodeCount];
+        this.fwdComingFromEdge = new int[nodeCount];
+        this.bwdComingFromEdge = new int[nodeCount];
+        this.fwdIterationIds = new int[nodeCount];
+        this.bwdIterationIds = new int[nodeCount];
+        Arrays.fill(this.fwdIterationIds, this.currentIteration);
+        Arrays.fill(this.bwdIterationIds, this.currentIteration);
+        this.fwdPQ = new NodeMinHeap(nodeCount, this::getFwdCost, (node, cost) -> this.fwdCost[node] = cost);
+        this.bwdPQ = new NodeMinHeap(nodeCount, this::getBwdCost, (node, cost) -> this.bwdCost[node] = cost);
+    }
+
+    @Override
+    public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+        int startNode = fromNode.getId().index();
+        int endNode = toNode.getId().index();
+
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.fwdIterationIds, this.currentIteration);
+            Arrays.fill(this.bwdIterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+
+        this.fwdPQ.clear();
+        this.bwdPQ.clear();
+        setFwd(startNode, 0., -1);
+        setBwd(endNode, 0., -1);
+        this.fwdPQ.insert(startNode);
+        this.bwdPQ.insert(endNode);
+
+        double bestCost = startNode == endNode ? 0. : Double.POSITIVE_INFINITY;
+        int meetingNode = startNode == endNode ? startNode : -1;
+
+        while (true) {
+            double fwdMin = this.fwdPQ.isEmpty() ? Double.POSITIVE_INFINITY : getFwdCost(this.fwdPQ.peek());
+            double bwdMin = this.bwdPQ.isEmpty() ? Double.POSITIVE_INFINITY : getBwdCost(this.bwdPQ.peek());
+            if (fwdMin >= bestCost && bwdMin >= bestCost) {
+                break;
+            }
+
+            boolean fwd = fwdMin <= bwdMin;
+            NodeMinHeap pq = fwd ? this.fwdPQ : this.bwdPQ;
+            int nodeIdx = pq.poll();
+            double currCost = fwd ? getFwdCost(nodeIdx) : getBwdCost(nodeIdx);
+
+            int first = fwd ? this.ch.getFwdFirst(nodeIdx) : this.ch.getBwdFirst(nodeIdx);
+            int end = fwd ? this.ch.getFwdEnd(nodeIdx) : this.ch.getBwdEnd(nodeIdx);
+            for (int i = first; i < end; i++) {
+                int edge = fwd ? this.ch.getFwdEdge(i) : this.ch.getBwdEdge(i);
+                int nextNode = fwd ? this.ch.getEdgeTo(edge) : this.ch.getEdgeFrom(edge);
+
+                double oldCost = fwd ? getFwdCost(nextNode) : getBwdCost(nextNode);
+                double newCost = currCost + this.ch.getEdgeCost(edge);
+
+                if (Double.isFinite(oldCost)) {
+                    if (newCost < oldCost) {
+                        pq.decreaseKey(nextNode, newCost);
+                        if (fwd) {
+                            this.fwdComingFromEdge[nextNode] = edge;
+                        } else {
+                            this.bwdComingFromEdge[nextNode] = edge;
+                        }
+                    } else {
+                        continue;
+                    }
+                } else {
+                    if (fwd) {
+                        setFwd(nextNode, newCost, edge);
+                    } else {
+                        setBwd(nextNode, newCost, edge);
+                    }
+                    pq.insert(nextNode);
+                }
+
+                // check whether the two searches meet at this node
+                double otherCost = fwd ? getBwdCost(nextNode) : getFwdCost(nextNode);
+                if (newCost + otherCost < bestCost) {
+                    bestCost = newCost + otherCost;
+                    meetingNode = nextNode;
+                }
+            }
+        }
+
+        if (meetingNode < 0) {
+            return null;
+        }
+
+        // collect edges of the upward paths and unpack them
+        List<Integer> fwdEdges = new ArrayList<>();
+        for (int nodeIdx = meetingNode; nodeIdx != startNode; ) {
+            int edge = this.fwdComingFromEdge[nodeIdx];
+            fwdEdges.add(edge);
+            nodeIdx = this.ch.getEdgeFrom(edge);
+        }
+        List<Link> links = new ArrayList<>();
+        for (int i = fwdEdges.size() - 1; i >= 0; i--) {
+            unpack(fwdEdges.get(i), links);
+        }
+        for (int nodeIdx = meetingNode; nodeIdx != endNode; ) {
+            int edge = this.bwdComingFromEdge[nodeIdx];
+            unpack(edge, links);
+            nodeIdx = this.ch.getEdgeTo(edge);
+        }
+
+        double travelTime = 0.;
+        List<Node> nodes = new ArrayList<>(links.size() + 1);
+        nodes.add(this.ch.graph.getNode(startNode));
+        for (Link link : links) {
+            travelTime += this.ch.graph.getLinkTime(link.getId().index());
+            nodes.add(link.getToNode());
+        }
+
+        return new Path(nodes, links, travelTime, bestCost);
+    }
+
+    private void unpack(int edge, List<Link> links) {
+        if (this.ch.isShortcut(edge)) {
+            unpack(this.ch.getChild1(edge), links);
+            unpack(this.ch.getChild2(edge), links);
+        } else {
+            links.add(this.ch.graph.getLink(this.ch.getChild1(edge)));
+        }
+    }
+
+    private double getFwdCost(int nodeIndex) {
+        if (this.fwdIterationIds[nodeIndex] == this.currentIteration) {
+            return this.fwdCost[nodeIndex];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double getBwdCost(int nodeIndex) {
+        if (this.bwdIterationIds[nodeIndex] == this.currentIteration) {
+            return this.bwdCost[nodeIndex];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void setFwd(int nodeIndex, double cost, int edge) {
+        this.fwdCost[nodeIndex] = cost;
+        this.fwdComingFromEdge[nodeIndex] = edge;
+        this.fwdIterationIds[nodeIndex] = this.currentIteration;
+    }
+
+    private void setBwd(int nodeIndex, double cost, int edge) {
+        this.bwdCost[nodeIndex] = cost;
+        this.bwdComingFromEdge[nodeIndex] = edge;
+        this.bwdIterationIds[nodeIndex] = this.currentIteration;
+    }
+}
@@ -0,0 +1,135 @@
+package routing.graph;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Landmarks and their least-cost distances to and from all nodes of a {@link SpeedyGraph}, used as lower bounds by
+ * the {@link AltRouter} (A*, landmarks and triangle inequality).
+ * <p>
+ * Landmarks are selected one after the other as the node farthest away from all previously selected landmarks.
+ * Distances are stored as floats, rounded down, so the bounds remain admissible.
+ * <p>
+ * The bounds are valid for any disutility which is, for every link, at least as large as the disutility the graph was
+ * built with. For example, landmarks computed with a {@link routing.disutility.JibeDisutility} without ambience and
+ * stress costs can be used for all JibeDisutilities with non-negative marginal costs of ambience and stress.
+ * <p>
+ * The tables are read-only after construction, so a single instance can be shared by multiple routers running in
+ * different threads.
+ */
+public class Landmarks {
+
+    private final static Logger log = Logger.getLogger(Landmarks.class);
+
+    private final int nodeCount;
+    private final int[] landmarks;
+    private final float[][] fromLandmark; // cost from landmark to node
+    private final float[][] toLandmark; // cost from node to landmark
+
+    public Landmarks(SpeedyGraph graph, int landmarkCount) {
+        this.nodeCount = graph.nodeCount;
+        this.landmarks = new int[landmarkCount];
+        this.fromLandmark = new float[landmarkCount][];
+        this.toLandmark = new float[landmarkCount][];
+
+        LeastCostPathTree3 tree = new LeastCostPathTree3(graph);
+
+        // minimum cost from any selected landmark, used to find the next landmark
+        double[] minCost = new double[nodeCount];
+        int startNode = -1;
+        for (int node = 0; node < nodeCount; node++) {
+            if (graph.getNode(node) != null) {
+                minCost[node] = Double.POSITIVE_INFINITY;
+                if (startNode < 0) {
+                    startNode = node;
+                }
+            } else {
+                minCost[node] = -1;
+            }
+        }
+        if (startNode < 0) {
+            throw new IllegalArgumentException("Cannot select landmarks for a graph without nodes.");
+        }
+
+        // first landmark: farthest node from an arbitrary start node
+        tree.calculate(startNode, 0., true);
+        int landmark = farthestNode(tree, startNode);
+
+        for (int k = 0; k < landmarkCount; k++) {
+            this.landmarks[k] = landmark;
+            log.info("Landmark " + (k + 1) + " / " + landmarkCount + ": node " + graph.getNode(landmark).getId());
+
+            tree.calculate(landmark, 0., true);
+            this.fromLandmark[k] = toFloatArray(tree);
+            for (int node = 0; node < nodeCount; node++) {
+                if (minCost[node] >= 0) {
+                    minCost[node] = Math.min(minCost[node], tree.getCost(node));
+                }
+            }
+
+            tree.calculate(landmark, 0., false);
+            this.toLandmark[k] = toFloatArray(tree);
+
+            // next landmark: reachable node with the largest cost from all selected landmarks
+            double maxCost = -1;
+            for (int node = 0; node < nodeCount; node++) {
+                if (Double.isFinite(minCost[node]) && minCost[node] > maxCost) {
+                    maxCost = minCost[node];
+                    landmark = node;
+                }
+            }
+        }
+    }
+
+    private int farthestNode(LeastCostPathTree3 tree, int defaultNode) {
+        int farthest = defaultNode;
+        double maxCost = -1;
+        for (int i = 0; i < tree.getReachedNodeCount(); i++) {
+            int node = tree.getReachedNode(i);
+            if (tree.getCost(node) > maxCost) {
+                maxCost = tree.getCost(node);
+                farthest = node;
+            }
+        }
+        return farthest;
+    }
+
+    private float[] toFloatArray(LeastCostPathTree3 tree) {
+        float[] result = new float[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            double cost = tree.getCost(node);
+            float value = (float) cost;
+            if (value > cost) {
+                value = Math.nextDown(value);
+            }
+            result[node] = value;
+        }
+        return result;
+    }
+
+    public int getLandmarkCount() {
+        return this.landmarks.length;
+    }
+
+    /**
+     * @return a lower bound of the least cost from node to target. As all distances are rounded down, the subtracted
+     * distance is increased by one ulp.
+     */
+    double getLowerBound(int node, int target) {
+        double bound = 0.;
+        for (int k = 0; k < this.landmarks.length; k++) {
+            // d(L,target) - d(L,node)
+            float toTarget = this.fromLandmark[k][target];
+            float toNode = this.fromLandmark[k][node];
+            if (toTarget != Float.POSITIVE_INFINITY && toNode != Float.POSITIVE_INFINITY) {
+                bound = Math.max(bound, (double) toTarget - toNode - Math.ulp(toNode));
+            }
+            // d(node,L) - d(target,L)
+            float fromNode = this.toLandmark[k][node];
+            float fromTarget = this.toLandmark[k][target];
+            if (fromNode != Float.POSITIVE_INFINITY && fromTarget != Float.POSITIVE_INFINITY) {
+                bound = Math.max(bound, (double) fromNode - fromTarget - Math.ulp(fromTarget));
+            }
+        }
+        return bound;
+    }
+}
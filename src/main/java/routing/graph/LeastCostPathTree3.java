@@ -1,6 +1,5 @@
 package routing.graph;
 
-import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.utils.misc.OptionalTime;
 
 import java.util.Arrays;
@@ -21,6 +20,10 @@ public class LeastCostPathTree3 {
     private final SpeedyGraph graph;
     private final double[] data; // 3 entries per node: time, cost, distance
     private final int[] comingFrom;
+    private final int[] iterationIds;
+    private int currentIteration = Integer.MIN_VALUE;
+    private final int[] reachedNodes;
+    private int reachedNodeCount = 0;
     private final SpeedyGraph.LinkIterator outLI;
     private final SpeedyGraph.LinkIterator inLI;
     private final NodeMinHeap pq;
@@ -29,6 +32,9 @@ public class LeastCostPathTree3 {
         this.graph = graph;
         this.data = new double[graph.nodeCount * 3];
         this.comingFrom = new int[graph.nodeCount];
+        this.iterationIds = new int[graph.nodeCount];
+        Arrays.fill(this.iterationIds, this.currentIteration);
+        this.reachedNodes = new int[graph.nodeCount];
         this.pq = new NodeMinHeap(graph.nodeCount, this::getCost, this::setCost);
         this.outLI = graph.getOutLinkIterator();
         this.inLI = graph.getInLinkIterator();
@@ -42,8 +48,13 @@ public class LeastCostPathTree3 {
 
         SpeedyGraph.LinkIterator LI = fwd ? this.outLI : this.inLI;
 
-        Arrays.fill(this.data, Double.POSITIVE_INFINITY);
-        Arrays.fill(this.comingFrom, -1);
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.iterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+        this.reachedNodeCount = 0;
 
         setData(startNode, 0, startTime, 0);
 
@@ -52,8 +63,7 @@ public class LeastCostPathTree3 {
 
         while (!this.pq.isEmpty()) {
             final int nodeIdx = this.pq.poll();
-            OptionalTime currOptionalTime = getTime(nodeIdx);
-            double currTime = currOptionalTime.orElseThrow(() -> new RuntimeException("Undefined Time"));
+            double currTime = getTimeRaw(nodeIdx);
             double currCost = getCost(nodeIdx);
             double currDistance = getDistance(nodeIdx);
 
@@ -64,21 +74,21 @@ public class LeastCostPathTree3 {
             LI.reset(nodeIdx);
             while (LI.next()) {
                 int linkIdx = LI.getLinkIndex();
-                Link link = this.graph.getLink(linkIdx);
                 int nextNode = fwd ? LI.getToNodeIndex() : LI.getFromNodeIndex();
 
                 double oldCost = getCost(nextNode);
                 double newTime = currTime + this.graph.getLinkTime(linkIdx);
                 double newCost = currCost + this.graph.getLinkDisutility(linkIdx);
+                double newDistance = currDistance + this.graph.getLinkLength(linkIdx);
 
                 if (Double.isFinite(oldCost)) {
                     if (newCost < oldCost) {
                         this.pq.decreaseKey(nextNode, newCost);
-                        setData(nextNode, newCost, newTime, currDistance + link.getLength());
+                        setData(nextNode, newCost, newTime, newDistance);
                         this.comingFrom[nextNode] = nodeIdx;
                     }
                 } else {
-                    setData(nextNode, newCost, newTime, currDistance + link.getLength());
+                    setData(nextNode, newCost, newTime, newDistance);
                     this.pq.insert(nextNode);
                     this.comingFrom[nextNode] = nodeIdx;
                 }
@@ -87,10 +97,16 @@ public class LeastCostPathTree3 {
     }
 
     public double getCost(int nodeIndex) {
-        return this.data[nodeIndex * 3];
+        if (this.iterationIds[nodeIndex] == this.currentIteration) {
+            return this.data[nodeIndex * 3];
+        }
+        return Double.POSITIVE_INFINITY;
     }
 
     public OptionalTime getTime(int nodeIndex) {
+        if (this.iterationIds[nodeIndex] != this.currentIteration) {
+            return OptionalTime.undefined();
+        }
         double time = this.data[nodeIndex * 3 + 1];
         if (Double.isInfinite(time)) {
             return OptionalTime.undefined();
@@ -98,8 +114,15 @@ public class LeastCostPathTree3 {
         return OptionalTime.defined(time);
     }
 
+    private double getTimeRaw(int nodeIndex) {
+        return this.data[nodeIndex * 3 + 1];
+    }
+
     public double getDistance(int nodeIndex) {
-        return this.data[nodeIndex * 3 + 2];
+        if (this.iterationIds[nodeIndex] == this.currentIteration) {
+            return this.data[nodeIndex * 3 + 2];
+        }
+        return Double.POSITIVE_INFINITY;
     }
 
     private void setCost(int nodeIndex, double cost) {
@@ -111,10 +134,29 @@ public class LeastCostPathTree3 {
         this.data[index] = cost;
         this.data[index + 1] = time;
         this.data[index + 2] = distance;
+        if (this.iterationIds[nodeIndex] != this.currentIteration) {
+            this.iterationIds[nodeIndex] = this.currentIteration;
+            this.reachedNodes[this.reachedNodeCount++] = nodeIndex;
+        }
+    }
+
+    /**
+     * @return the number of nodes that received a cost in the last calculation. Together with {@link #getReachedNode(int)},
+     * this allows to visit only the part of the graph covered by a bounded tree instead of all nodes.
+     */
+    public int getReachedNodeCount() {
+        return this.reachedNodeCount;
+    }
+
+    public int getReachedNode(int i) {
+        return this.reachedNodes[i];
     }
 
     public int getComingFrom(int nodeIndex) {
-        return this.comingFrom[nodeIndex];
+        if (this.iterationIds[nodeIndex] == this.currentIteration) {
+            return this.comingFrom[nodeIndex];
+        }
+        return -1;
     }
 
     public interface StopCriterion {
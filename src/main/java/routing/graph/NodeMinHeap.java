@@ -45,13 +45,11 @@ class NodeMinHeap {
 	}
 
 	void decreaseKey(int node, double cost) {
-		int i;
-		for (i = 0; i < this.size; i++) {
-			if (this.heap[i] == node) {
-				break;
-			}
+		int i = this.pos[node];
+		if (i >= this.size || this.heap[i] != node) {
+			throw new IllegalArgumentException("node " + node + " is not part of the heap.");
 		}
-		if (this.costGetter.getCost(this.heap[i]) < cost) {
+		if (this.costGetter.getCost(node) < cost) {
 			throw new IllegalArgumentException("existing cost is already smaller than new cost.");
 		}
 
@@ -0,0 +1,357 @@
+package routing.graph;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Multi-criteria label-setting search upon a {@link SpeedyGraph}, returning the Pareto set of routes between two nodes
+ * for several additive, non-negative link cost criteria (e.g. the components of a
+ * {@link routing.disutility.JibeDisutility}, see {@link routing.disutility.JibeDisutility#getLinkComponents}).
+ * Every route minimising a non-negative weighted sum of the criteria is part of the Pareto set.
+ * <p>
+ * Before each search, one backward tree per criterion is calculated from the destination. These exact lower bounds
+ * direct the search (labels are expanded in the order of their cost plus bound, summed over all criteria) and prune
+ * labels which cannot lead to a new Pareto-optimal route.
+ * <p>
+ * Optionally, labels are discarded if their costs are within a factor of (1 + epsilon) of an existing label at the
+ * same node, which keeps the number of labels manageable on large networks. As Pareto sets can grow large, the search
+ * stops after a maximum number of labels and returns the routes found so far.
+ * <p>
+ * All memory is allocated in the constructor or grown as required and re-used. This makes the implementation NOT
+ * thread-safe.
+ */
+public class ParetoRouter {
+
+    private final static Logger log = Logger.getLogger(ParetoRouter.class);
+
+    private final SpeedyGraph graph;
+    private final int criteriaCount;
+    private final double[][] linkCosts;
+    private final LeastCostPathTree3[] boundTrees;
+    private final double epsilon;
+    private final int maxLabels;
+    private final SpeedyGraph.LinkIterator outLI;
+
+    // labels, costs are stored in blocks of criteriaCount values
+    private int labelCount;
+    private double[] labelCost;
+    private double[] labelKey;
+    private int[] labelNode;
+    private int[] labelPred;
+    private int[] labelLink;
+    private int[] labelNextAtNode;
+    private boolean[] labelDead;
+
+    private final int[] nodeFirstLabel;
+    private final int[] nodeIterationIds;
+    private int currentIteration = Integer.MIN_VALUE;
+
+    private int[] heap;
+    private int heapSize;
+
+    private boolean complete;
+
+    public ParetoRouter(SpeedyGraph graph, double[][] linkCosts) {
+        this(graph, linkCosts, 0., 1_000_000);
+    }
+
+    /**
+     * @param graph graph providing the topology and travel times
+     * @param linkCosts non-negative link costs, indexed by criterion and link index
+     * @param epsilon relative tolerance for discarding similar labels (0 for the exact Pareto set)
+     * @param maxLabels maximum number of labels per search
+     */
+    public ParetoRouter(SpeedyGraph graph, double[][] linkCosts, double epsilon, int maxLabels) {
+        this.graph = graph;
+        this.criteriaCount = linkCosts.length;
+        this.linkCosts = linkCosts;
+        this.epsilon = epsilon;
+        this.maxLabels = maxLabels;
+        this.outLI = graph.getOutLinkIterator();
+
+        this.boundTrees = new LeastCostPathTree3[criteriaCount];
+        for (int c = 0; c < criteriaCount; c++) {
+            double[] weights = new double[criteriaCount];
+            weights[c] = 1.;
+            this.boundTrees[c] = new LeastCostPathTree3(graph.reweight(linkCosts, weights));
+        }
+
+        this.nodeFirstLabel = new int[graph.nodeCount];
+        this.nodeIterationIds = new int[graph.nodeCount];
+        Arrays.fill(this.nodeIterationIds, this.currentIteration);
+
+        int capacity = 1024;
+        this.labelCost = new double[capacity * criteriaCount];
+        this.labelKey = new double[capacity];
+        this.labelNode = new int[capacity];
+        this.labelPred = new int[capacity];
+        this.labelLink = new int[capacity];
+        this.labelNextAtNode = new int[capacity];
+        this.labelDead = new boolean[capacity];
+        this.heap = new int[capacity];
+    }
+
+    /**
+     * @return the Pareto-optimal routes, sorted by the cost of the first criterion. Empty if there is no route.
+     */
+    public List<Route> calcParetoRoutes(Node fromNode, Node toNode) {
+        int startNode = fromNode.getId().index();
+        int endNode = toNode.getId().index();
+
+        for (LeastCostPathTree3 tree : this.boundTrees) {
+            tree.calculate(endNode, 0., false);
+        }
+        if (!Double.isFinite(this.boundTrees[0].getCost(startNode))) {
+            this.complete = true;
+            return Collections.emptyList();
+        }
+
+        this.currentIteration++;
+        if (this.currentIteration == Integer.MAX_VALUE) {
+            // reset iteration as we overflow
+            Arrays.fill(this.nodeIterationIds, this.currentIteration);
+            this.currentIteration = Integer.MIN_VALUE;
+        }
+        this.labelCount = 0;
+        this.heapSize = 0;
+        this.complete = true;
+
+        double[] newCost = new double[this.criteriaCount];
+        addLabel(startNode, -1, -1, newCost, bound(startNode, newCost));
+
+        while (this.heapSize > 0) {
+            int label = poll();
+            if (this.labelDead[label]) {
+                continue;
+            }
+            int nodeIdx = this.labelNode[label];
+            if (nodeIdx == endNode) {
+                continue;
+            }
+            if (this.labelCount >= this.maxLabels) {
+                log.warn("Reached maximum of " + this.maxLabels + " labels from node " + fromNode.getId() +
+                        " to node " + toNode.getId() + ". The returned Pareto set is incomplete.");
+                this.complete = false;
+                break;
+            }
+
+            this.outLI.reset(nodeIdx);
+            while (this.outLI.next()) {
+                int linkIdx = this.outLI.getLinkIndex();
+                int nextNode = this.outLI.getToNodeIndex();
+                if (!Double.isFinite(this.boundTrees[0].getCost(nextNode))) {
+                    continue;
+                }
+                boolean usable = true;
+                for (int c = 0; c < this.criteriaCount; c++) {
+                    newCost[c] = this.labelCost[label * this.criteriaCount + c] + this.linkCosts[c][linkIdx];
+                    usable &= Double.isFinite(newCost[c]);
+                }
+                if (!usable) {
+                    continue;
+                }
+                double key = bound(nextNode, newCost);
+                if (prunedByTarget(endNode, nextNode, newCost) || dominatedAtNode(nextNode, newCost)) {
+                    continue;
+                }
+                addLabel(nextNode, label, linkIdx, newCost, key);
+            }
+        }
+
+        List<Route> routes = new ArrayList<>();
+        if (this.nodeIterationIds[endNode] == this.currentIteration) {
+            for (int label = this.nodeFirstLabel[endNode]; label >= 0; label = this.labelNextAtNode[label]) {
+                if (!this.labelDead[label]) {
+                    routes.add(createRoute(label, fromNode));
+                }
+            }
+        }
+        routes.sort(Comparator.comparingDouble(route -> route.getCosts()[0]));
+        return routes;
+    }
+
+    /**
+     * @return false if the last search stopped at the maximum number of labels
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    // sum over all criteria of the cost plus the lower bound to the destination
+    private double bound(int nodeIdx, double[] cost) {
+        double key = 0.;
+        for (int c = 0; c < this.criteriaCount; c++) {
+            key += cost[c] + this.boundTrees[c].getCost(nodeIdx);
+        }
+        return key;
+    }
+
+    // a label cannot lead to a new Pareto-optimal route if its costs plus bounds are dominated at the destination
+    private boolean prunedByTarget(int endNode, int nodeIdx, double[] cost) {
+        if (this.nodeIterationIds[endNode] != this.currentIteration) {
+            return false;
+        }
+        for (int label = this.nodeFirstLabel[endNode]; label >= 0; label = this.labelNextAtNode[label]) {
+            if (this.labelDead[label]) {
+                continue;
+            }
+            boolean dominated = true;
+            for (int c = 0; c < this.criteriaCount && dominated; c++) {
+                double bounded = cost[c] + this.boundTrees[c].getCost(nodeIdx);
+                dominated = this.labelCost[label * this.criteriaCount + c] <= bounded * (1. + this.epsilon);
+            }
+            if (dominated) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // returns true if the costs are (epsilon-)dominated by a label at the node, and removes labels dominated by them
+    private boolean dominatedAtNode(int nodeIdx, double[] cost) {
+        if (this.nodeIterationIds[nodeIdx] != this.currentIteration) {
+            return false;
+        }
+        for (int label = this.nodeFirstLabel[nodeIdx]; label >= 0; label = this.labelNextAtNode[label]) {
+            if (this.labelDead[label]) {
+                continue;
+            }
+            boolean existingDominates = true;
+            boolean newDominates = true;
+            for (int c = 0; c < this.criteriaCount; c++) {
+                double existing = this.labelCost[label * this.criteriaCount + c];
+                existingDominates &= existing <= cost[c] * (1. + this.epsilon);
+                newDominates &= cost[c] <= existing;
+            }
+            if (existingDominates) {
+                return true;
+            }
+            if (newDominates) {
+                // labels are kept in the list, but skipped everywhere and when polled
+                this.labelDead[label] = true;
+            }
+        }
+        return false;
+    }
+
+    private void addLabel(int nodeIdx, int pred, int linkIdx, double[] cost, double key) {
+        if (this.labelCount == this.labelNode.length) {
+            growLabels();
+        }
+        int label = this.labelCount++;
+        System.arraycopy(cost, 0, this.labelCost, label * this.criteriaCount, this.criteriaCount);
+        this.labelKey[label] = key;
+        this.labelNode[label] = nodeIdx;
+        this.labelPred[label] = pred;
+        this.labelLink[label] = linkIdx;
+        this.labelDead[label] = false;
+        if (this.nodeIterationIds[nodeIdx] != this.currentIteration) {
+            this.nodeIterationIds[nodeIdx] = this.currentIteration;
+            this.nodeFirstLabel[nodeIdx] = -1;
+        }
+        this.labelNextAtNode[label] = this.nodeFirstLabel[nodeIdx];
+        this.nodeFirstLabel[nodeIdx] = label;
+        insert(label);
+    }
+
+    private void growLabels() {
+        int capacity = this.labelNode.length * 2;
+        this.labelCost = Arrays.copyOf(this.labelCost, capacity * this.criteriaCount);
+        this.labelKey = Arrays.copyOf(this.labelKey, capacity);
+        this.labelNode = Arrays.copyOf(this.labelNode, capacity);
+        this.labelPred = Arrays.copyOf(this.labelPred, capacity);
+        this.labelLink = Arrays.copyOf(this.labelLink, capacity);
+        this.labelNextAtNode = Arrays.copyOf(this.labelNextAtNode, capacity);
+        this.labelDead = Arrays.copyOf(this.labelDead, capacity);
+    }
+
+    private Route createRoute(int label, Node fromNode) {
+        double[] costs = Arrays.copyOfRange(this.labelCost, label * this.criteriaCount, (label + 1) * this.criteriaCount);
+        List<Link> links = new ArrayList<>();
+        double travelTime = 0.;
+        for (int l = label; this.labelPred[l] >= 0; l = this.labelPred[l]) {
+            int linkIdx = this.labelLink[l];
+            links.add(this.graph.getLink(linkIdx));
+            travelTime += this.graph.getLinkTime(linkIdx);
+        }
+        Collections.reverse(links);
+
+        List<Node> nodes = new ArrayList<>(links.size() + 1);
+        nodes.add(fromNode);
+        for (Link link : links) {
+            nodes.add(link.getToNode());
+        }
+        return new Route(new LeastCostPathCalculator.Path(nodes, links, travelTime, costs[0]), costs);
+    }
+
+    // binary min-heap of labels, ordered by their key
+
+    private void insert(int label) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+        }
+        int i = this.heapSize++;
+        double key = this.labelKey[label];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (this.labelKey[this.heap[parent]] <= key) {
+                break;
+            }
+            this.heap[i] = this.heap[parent];
+            i = parent;
+        }
+        this.heap[i] = label;
+    }
+
+    private int poll() {
+        int result = this.heap[0];
+        int last = this.heap[--this.heapSize];
+        double key = this.labelKey[last];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= this.heapSize) {
+                break;
+            }
+            if (child + 1 < this.heapSize && this.labelKey[this.heap[child + 1]] < this.labelKey[this.heap[child]]) {
+                child++;
+            }
+            if (this.labelKey[this.heap[child]] >= key) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            i = child;
+        }
+        this.heap[i] = last;
+        return result;
+    }
+
+    /**
+     * A Pareto-optimal route. The travel cost of the path is the cost of the first criterion.
+     */
+    public static class Route {
+        private final LeastCostPathCalculator.Path path;
+        private final double[] costs;
+
+        Route(LeastCostPathCalculator.Path path, double[] costs) {
+            this.path = path;
+            this.costs = costs;
+        }
+
+        public LeastCostPathCalculator.Path getPath() {
+            return path;
+        }
+
+        public double[] getCosts() {
+            return costs;
+        }
+    }
+}
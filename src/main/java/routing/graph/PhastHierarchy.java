@@ -0,0 +1,136 @@
+package routing.graph;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Preprocessed data for one-to-all (and all-to-one) trees with {@link PhastTree}, based on a
+ * {@link ContractionHierarchy} (PHAST: Hardware-Accelerated Shortest path Trees, Delling et al. 2011).
+ * <p>
+ * Nodes are renumbered by descending contraction rank. For each node, the downward edges used by the linear sweep are
+ * stored contiguously in this order, so a complete tree is calculated by scanning a few arrays from start to end
+ * instead of maintaining a priority queue over all nodes.
+ * <p>
+ * Besides the cost, the travel time, length and number of original links are summed up for each edge (including
+ * shortcuts), as well as any additional per-link values (e.g. travel attributes), so these can be reported for the
+ * least-cost path to each node without unpacking it.
+ * <p>
+ * This class is read-only after construction, so a single instance can be shared by multiple trees running in
+ * different threads.
+ */
+public class PhastHierarchy {
+
+    private final static Logger log = Logger.getLogger(PhastHierarchy.class);
+
+    final ContractionHierarchy ch;
+    final int nodeCount;
+    final int valueCount;
+
+    // node index at each position (descending rank) and position of each node index
+    final int[] order;
+    final int[] position;
+
+    // forward sweep: for each position, the downward edges arriving at the node
+    final int[] fwdSweepFirst;
+    final int[] fwdSweepNode;
+    final int[] fwdSweepEdge;
+    final double[] fwdSweepCost;
+
+    // backward sweep: for each position, the upward edges leaving the node
+    final int[] bwdSweepFirst;
+    final int[] bwdSweepNode;
+    final int[] bwdSweepEdge;
+    final double[] bwdSweepCost;
+
+    // path totals of each edge
+    final double[] edgeTime;
+    final double[] edgeLength;
+    final int[] edgeLinks;
+    final double[] edgeValues;
+
+    public PhastHierarchy(ContractionHierarchy ch) {
+        this(ch, null);
+    }
+
+    /**
+     * @param ch contraction hierarchy, built for the disutility the trees should minimise
+     * @param linkValues additional per-link values summed along the least-cost paths, indexed by value and link index
+     *                   (may be null)
+     */
+    public PhastHierarchy(ContractionHierarchy ch, double[][] linkValues) {
+        this.ch = ch;
+        this.nodeCount = ch.nodeCount;
+        this.valueCount = linkValues == null ? 0 : linkValues.length;
+
+        this.order = new int[nodeCount];
+        this.position = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            int pos = nodeCount - 1 - ch.getRank(node);
+            this.order[pos] = node;
+            this.position[node] = pos;
+        }
+
+        // path totals, shortcuts are always added after the edges they replace
+        int edgeCount = ch.getEdgeCount();
+        SpeedyGraph graph = ch.graph;
+        this.edgeTime = new double[edgeCount];
+        this.edgeLength = new double[edgeCount];
+        this.edgeLinks = new int[edgeCount];
+        this.edgeValues = new double[edgeCount * valueCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int child1 = ch.getChild1(e);
+            if (ch.isShortcut(e)) {
+                int child2 = ch.getChild2(e);
+                this.edgeTime[e] = this.edgeTime[child1] + this.edgeTime[child2];
+                this.edgeLength[e] = this.edgeLength[child1] + this.edgeLength[child2];
+                this.edgeLinks[e] = this.edgeLinks[child1] + this.edgeLinks[child2];
+                for (int i = 0; i < valueCount; i++) {
+                    this.edgeValues[e * valueCount + i] = this.edgeValues[child1 * valueCount + i] + this.edgeValues[child2 * valueCount + i];
+                }
+            } else {
+                this.edgeTime[e] = graph.getLinkTime(child1);
+                this.edgeLength[e] = graph.getLinkLength(child1);
+                this.edgeLinks[e] = 1;
+                for (int i = 0; i < valueCount; i++) {
+                    this.edgeValues[e * valueCount + i] = linkValues[i][child1];
+                }
+            }
+        }
+
+        // downward edges arriving at each node are stored by the hierarchy as backward edges of their head
+        this.fwdSweepFirst = new int[nodeCount + 1];
+        this.bwdSweepFirst = new int[nodeCount + 1];
+        for (int pos = 0; pos < nodeCount; pos++) {
+            int node = this.order[pos];
+            this.fwdSweepFirst[pos + 1] = this.fwdSweepFirst[pos] + ch.getBwdEnd(node) - ch.getBwdFirst(node);
+            this.bwdSweepFirst[pos + 1] = this.bwdSweepFirst[pos] + ch.getFwdEnd(node) - ch.getFwdFirst(node);
+        }
+        this.fwdSweepNode = new int[this.fwdSweepFirst[nodeCount]];
+        this.fwdSweepEdge = new int[this.fwdSweepFirst[nodeCount]];
+        this.fwdSweepCost = new double[this.fwdSweepFirst[nodeCount]];
+        this.bwdSweepNode = new int[this.bwdSweepFirst[nodeCount]];
+        this.bwdSweepEdge = new int[this.bwdSweepFirst[nodeCount]];
+        this.bwdSweepCost = new double[this.bwdSweepFirst[nodeCount]];
+        for (int pos = 0; pos < nodeCount; pos++) {
+            int node = this.order[pos];
+            int j = this.fwdSweepFirst[pos];
+            for (int i = ch.getBwdFirst(node); i < ch.getBwdEnd(node); i++, j++) {
+                int edge = ch.getBwdEdge(i);
+                this.fwdSweepNode[j] = this.position[ch.getEdgeFrom(edge)];
+                this.fwdSweepEdge[j] = edge;
+                this.fwdSweepCost[j] = ch.getEdgeCost(edge);
+            }
+            j = this.bwdSweepFirst[pos];
+            for (int i = ch.getFwdFirst(node); i < ch.getFwdEnd(node); i++, j++) {
+                int edge = ch.getFwdEdge(i);
+                this.bwdSweepNode[j] = this.position[ch.getEdgeTo(edge)];
+                this.bwdSweepEdge[j] = edge;
+                this.bwdSweepCost[j] = ch.getEdgeCost(edge);
+            }
+        }
+        log.info("Prepared PHAST sweep over " + nodeCount + " nodes and " + this.fwdSweepNode.length + " downward edges.");
+    }
+
+    public int getValueCount() {
+        return this.valueCount;
+    }
+}
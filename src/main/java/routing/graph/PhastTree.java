@@ -0,0 +1,210 @@
+package routing.graph;
+
+import org.matsim.api.core.v01.network.Link;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One-to-all (or all-to-one) least-cost-path tree upon a {@link PhastHierarchy}, covering all nodes of the graph.
+ * <p>
+ * Each tree runs a Dijkstra search on the upward edges of the hierarchy from the start node only, followed by one
+ * linear sweep over all nodes in descending rank, which relaxes the downward edges of each node. The sweep reads the
+ * arrays of the hierarchy and writes the results of this tree in the same (sequential) order, which is typically much
+ * faster than a Dijkstra search over the full network. Unlike {@link LeastCostPathTree3}, there is no stop criterion.
+ * <p>
+ * Costs are the disutilities stored in the {@link SpeedyGraph} the hierarchy was built upon, travel times are taken
+ * from the graph.
+ * <p>
+ * All required memory is pre-allocated in the constructor. This makes the implementation NOT thread-safe, but
+ * multiple trees can share the same hierarchy.
+ */
+public class PhastTree {
+
+    private final PhastHierarchy phast;
+    private final ContractionHierarchy ch;
+    private final int nodeCount;
+    private final int valueCount;
+
+    // results, indexed by position in the hierarchy
+    private final double[] cost;
+    private final double[] time;
+    private final double[] distance;
+    private final int[] linksUsed;
+    private final double[] values;
+    private final int[] comingFromEdge;
+    private final NodeMinHeap pq;
+
+    private boolean fwd = true;
+
+    public PhastTree(PhastHierarchy phast) {
+        this.phast = phast;
+        this.ch = phast.ch;
+        this.nodeCount = phast.nodeCount;
+        this.valueCount = phast.valueCount;
+        this.cost = new double[nodeCount];
+        this.time = new double[nodeCount];
+        this.distance = new double[nodeCount];
+        this.linksUsed = new int[nodeCount];
+        this.values = new double[nodeCount * valueCount];
+        this.comingFromEdge = new int[nodeCount];
+        this.pq = new NodeMinHeap(nodeCount, pos -> this.cost[pos], (pos, c) -> this.cost[pos] = c);
+    }
+
+    /**
+     * @param startNode node index of the tree's root
+     * @param fwd true for paths from the start node to all nodes, false for paths from all nodes to the start node
+     */
+    public void calculate(int startNode, boolean fwd) {
+        this.fwd = fwd;
+        Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+
+        int startPos = this.phast.position[startNode];
+        setData(startPos, 0., 0., 0., 0, -1);
+        for (int i = 0; i < this.valueCount; i++) {
+            this.values[startPos * this.valueCount + i] = 0.;
+        }
+
+        upwardSearch(startPos);
+
+        if (fwd) {
+            sweep(this.phast.fwdSweepFirst, this.phast.fwdSweepNode, this.phast.fwdSweepEdge, this.phast.fwdSweepCost);
+        } else {
+            sweep(this.phast.bwdSweepFirst, this.phast.bwdSweepNode, this.phast.bwdSweepEdge, this.phast.bwdSweepCost);
+        }
+    }
+
+    // Dijkstra search on the upward (forward) or upward-reversed (backward) edges of the hierarchy
+    private void upwardSearch(int startPos) {
+        this.pq.clear();
+        this.pq.insert(startPos);
+        while (!this.pq.isEmpty()) {
+            int pos = this.pq.poll();
+            int node = this.phast.order[pos];
+            int first = this.fwd ? this.ch.getFwdFirst(node) : this.ch.getBwdFirst(node);
+            int end = this.fwd ? this.ch.getFwdEnd(node) : this.ch.getBwdEnd(node);
+            for (int i = first; i < end; i++) {
+                int edge = this.fwd ? this.ch.getFwdEdge(i) : this.ch.getBwdEdge(i);
+                int nextPos = this.phast.position[this.fwd ? this.ch.getEdgeTo(edge) : this.ch.getEdgeFrom(edge)];
+                double newCost = this.cost[pos] + this.ch.getEdgeCost(edge);
+                double oldCost = this.cost[nextPos];
+                if (Double.isFinite(oldCost)) {
+                    if (newCost < oldCost) {
+                        this.pq.decreaseKey(nextPos, newCost);
+                        relax(nextPos, pos, edge, newCost);
+                    }
+                } else {
+                    relax(nextPos, pos, edge, newCost);
+                    this.pq.insert(nextPos);
+                }
+            }
+        }
+    }
+
+    // linear sweep in descending rank, the other end of each edge always has a higher rank and is therefore final
+    private void sweep(int[] first, int[] sweepNode, int[] sweepEdge, double[] sweepCost) {
+        for (int pos = 0; pos < this.nodeCount; pos++) {
+            double best = this.cost[pos];
+            int bestEntry = -1;
+            for (int i = first[pos]; i < first[pos + 1]; i++) {
+                double newCost = this.cost[sweepNode[i]] + sweepCost[i];
+                if (newCost < best) {
+                    best = newCost;
+                    bestEntry = i;
+                }
+            }
+            if (bestEntry >= 0) {
+                relax(pos, sweepNode[bestEntry], sweepEdge[bestEntry], best);
+            }
+        }
+    }
+
+    private void relax(int pos, int fromPos, int edge, double newCost) {
+        setData(pos, newCost, this.time[fromPos] + this.phast.edgeTime[edge],
+                this.distance[fromPos] + this.phast.edgeLength[edge],
+                this.linksUsed[fromPos] + this.phast.edgeLinks[edge], edge);
+        for (int i = 0; i < this.valueCount; i++) {
+            this.values[pos * this.valueCount + i] = this.values[fromPos * this.valueCount + i] + this.phast.edgeValues[edge * this.valueCount + i];
+        }
+    }
+
+    private void setData(int pos, double cost, double time, double distance, int linksUsed, int edge) {
+        this.cost[pos] = cost;
+        this.time[pos] = time;
+        this.distance[pos] = distance;
+        this.linksUsed[pos] = linksUsed;
+        this.comingFromEdge[pos] = edge;
+    }
+
+    public double getCost(int nodeIndex) {
+        return this.cost[this.phast.position[nodeIndex]];
+    }
+
+    public double getTime(int nodeIndex) {
+        int pos = this.phast.position[nodeIndex];
+        return Double.isFinite(this.cost[pos]) ? this.time[pos] : Double.POSITIVE_INFINITY;
+    }
+
+    public double getDistance(int nodeIndex) {
+        int pos = this.phast.position[nodeIndex];
+        return Double.isFinite(this.cost[pos]) ? this.distance[pos] : Double.POSITIVE_INFINITY;
+    }
+
+    public int getLinksUsed(int nodeIndex) {
+        int pos = this.phast.position[nodeIndex];
+        return Double.isFinite(this.cost[pos]) ? this.linksUsed[pos] : 0;
+    }
+
+    public double getValue(int nodeIndex, int valueIndex) {
+        int pos = this.phast.position[nodeIndex];
+        return Double.isFinite(this.cost[pos]) ? this.values[pos * this.valueCount + valueIndex] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the indices of the links of the least-cost path between the start node and the given node, in travel
+     * direction (empty if the node was not reached)
+     */
+    public int[] getLinkIndices(int nodeIndex) {
+        int pos = this.phast.position[nodeIndex];
+        if (!Double.isFinite(this.cost[pos])) {
+            return new int[0];
+        }
+        List<Integer> edges = new ArrayList<>();
+        for (int edge = this.comingFromEdge[pos]; edge >= 0; edge = this.comingFromEdge[pos]) {
+            edges.add(edge);
+            pos = this.phast.position[this.fwd ? this.ch.getEdgeFrom(edge) : this.ch.getEdgeTo(edge)];
+        }
+        int[] links = new int[this.linksUsed[this.phast.position[nodeIndex]]];
+        int count = 0;
+        if (this.fwd) {
+            for (int i = edges.size() - 1; i >= 0; i--) {
+                count = unpack(edges.get(i), links, count);
+            }
+        } else {
+            for (int edge : edges) {
+                count = unpack(edge, links, count);
+            }
+        }
+        return links;
+    }
+
+    public List<Link> getLinks(int nodeIndex) {
+        int[] linkIndices = getLinkIndices(nodeIndex);
+        List<Link> links = new ArrayList<>(linkIndices.length);
+        for (int linkIdx : linkIndices) {
+            links.add(this.ch.graph.getLink(linkIdx));
+        }
+        return links;
+    }
+
+    private int unpack(int edge, int[] links, int count) {
+        if (this.ch.isShortcut(edge)) {
+            count = unpack(this.ch.getChild1(edge), links, count);
+            return unpack(this.ch.getChild2(edge), links, count);
+        } else {
+            links[count] = this.ch.getChild1(edge);
+            return count + 1;
+        }
+    }
+}
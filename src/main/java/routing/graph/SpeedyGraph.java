@@ -42,6 +42,8 @@ public class SpeedyGraph {
      *   - 1 int: link length * 100
      *   - 1 int: freespeed-traveltime * 100
      *   = total 6 int per link = 24 bytes per link
+     * - linkLength, linkDisutility, linkTime
+     *   - 3 double per link = 24 bytes per link
      * - links
      *   - 1 object-pointer per link
      *   = 1 int or 1 long per link (depending on 32 or 64bit JVM) = 4 or 8 bytes per link
@@ -52,7 +54,7 @@ public class SpeedyGraph {
     private final static int NODE_SIZE = 2;
     private final static int LINK_SIZE = 6;
 
-    private final static double TIME_VALUE = 0.;
+    final static double TIME_VALUE = 0.;
 
     private final TravelDisutility td;
     private final TravelTime tt;
@@ -61,12 +63,13 @@ public class SpeedyGraph {
 
     final int nodeCount;
     final int linkCount;
-    private final int[] nodeData;
-    private final int[] linkData;
-    private final double[] linkDisutility;
-    private final double[] linkTime;
-    private final Link[] links;
-    private final Node[] nodes;
+    final int[] nodeData;
+    final int[] linkData;
+    final double[] linkLength;
+    final double[] linkDisutility;
+    final double[] linkTime;
+    final Link[] links;
+    final Node[] nodes;
 
     public SpeedyGraph(Network network, TravelTime tt, TravelDisutility td, Person person, Vehicle veh) {
         this.nodeCount = Id.getNumberOfIds(Node.class);
@@ -77,6 +80,7 @@ public class SpeedyGraph {
         this.links = new Link[linkCount];
         this.nodes = new Node[nodeCount];
 
+        this.linkLength = new double[linkCount];
         this.linkDisutility = new double[linkCount];
         this.linkTime = new double[linkCount];
         this.td = td;
@@ -95,6 +99,49 @@ public class SpeedyGraph {
         }
     }
 
+    // used by SpeedyGraphReader to restore a graph from a binary image, and by reweight
+    SpeedyGraph(int[] nodeData, int[] linkData, double[] linkLength, double[] linkDisutility, double[] linkTime,
+                Link[] links, Node[] nodes) {
+        this.nodeCount = nodes.length;
+        this.linkCount = links.length;
+        this.nodeData = nodeData;
+        this.linkData = linkData;
+        this.linkLength = linkLength;
+        this.linkDisutility = linkDisutility;
+        this.linkTime = linkTime;
+        this.links = links;
+        this.nodes = nodes;
+        this.td = null;
+        this.tt = null;
+        this.person = null;
+        this.vehicle = null;
+    }
+
+    /**
+     * Creates a graph with the same nodes, links and travel times, but with each link's disutility computed as the
+     * weighted sum of the given components, e.g. from {@link routing.disutility.JibeDisutility#getLinkComponents}.
+     * This allows deriving graphs for many parameter sets without evaluating the disutility again for every link.
+     *
+     * @param linkComponents per-link component values, indexed by component and link index
+     * @param weights weight of each component
+     */
+    public SpeedyGraph reweight(double[][] linkComponents, double[] weights) {
+        if (linkComponents.length != weights.length) {
+            throw new IllegalArgumentException("Got " + linkComponents.length + " components but " + weights.length + " weights.");
+        }
+        double[] disutility = new double[this.linkCount];
+        for (int linkIdx = 0; linkIdx < this.linkCount; linkIdx++) {
+            if (this.links[linkIdx] != null) {
+                double sum = 0.;
+                for (int k = 0; k < weights.length; k++) {
+                    sum += weights[k] * linkComponents[k][linkIdx];
+                }
+                disutility[linkIdx] = sum;
+            }
+        }
+        return new SpeedyGraph(this.nodeData, this.linkData, this.linkLength, disutility, this.linkTime, this.links, this.nodes);
+    }
+
     private void addLink(Link link) {
         int fromNodeIdx = link.getFromNode().getId().index();
         int toNodeIdx = link.getToNode().getId().index();
@@ -105,6 +152,7 @@ public class SpeedyGraph {
         this.linkData[base + 3] = toNodeIdx;
         this.linkData[base + 4] = (int) Math.round(link.getLength() * 100.0);
         this.linkData[base + 5] = (int) Math.round(link.getLength() / link.getFreespeed() * 100.0);
+        this.linkLength[linkIdx] = link.getLength();
 
         if(this.td != null) {
             this.linkDisutility[linkIdx] = td.getLinkTravelDisutility(link,TIME_VALUE,person,vehicle);
@@ -161,6 +209,7 @@ public class SpeedyGraph {
         return this.links[index];
     }
 
+    double getLinkLength(int index) {return this.linkLength[index];}
     public double getLinkDisutility(int index) {return this.linkDisutility[index];}
     double getLinkTime(int index) {return this.linkTime[index];}
 
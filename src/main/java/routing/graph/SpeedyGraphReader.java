@@ -0,0 +1,200 @@
+package routing.graph;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Restores a {@link SpeedyGraph} from an image written by {@link SpeedyGraphWriter}. The graph data is memory-mapped
+ * and copied into the graph's arrays, so no travel times or disutilities have to be evaluated.
+ * <p>
+ * The image refers to nodes and links by their id index. It can therefore only be used with a network containing
+ * exactly the same nodes and links, read such that all ids get the same index as when the image was written
+ * (which is the case if the same network file is read at the same point of the run). Otherwise, an
+ * {@link IOException} is thrown, as well as if the image was written with a different fingerprint of the travel time
+ * and disutility.
+ */
+public final class SpeedyGraphReader {
+
+    private final static Logger log = Logger.getLogger(SpeedyGraphReader.class);
+
+    // number of links whose travel time and disutility are re-evaluated to check an image in readOrBuild
+    private final static int CHECKED_LINKS = 1000;
+
+    private SpeedyGraphReader() {
+    }
+
+    public static SpeedyGraph read(String filename, Network network) throws IOException {
+        return read(filename, network, null);
+    }
+
+    /**
+     * @param fingerprint expected fingerprint of the image (see {@link SpeedyGraphWriter#write(SpeedyGraph, String, String)}),
+     *                    or null to accept any
+     */
+    public static SpeedyGraph read(String filename, Network network, String fingerprint) throws IOException {
+        log.info("Reading graph image from " + filename);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(16);
+            while (start.hasRemaining()) {
+                if (channel.read(start) < 0) {
+                    throw new IOException("Unexpected end of file " + filename);
+                }
+            }
+            start.flip();
+            if (start.getInt() != SpeedyGraphWriter.MAGIC) {
+                throw new IOException("File " + filename + " is not a graph image.");
+            }
+            int version = start.getInt();
+            if (version != SpeedyGraphWriter.VERSION) {
+                throw new IOException("Unsupported graph image version " + version + " in " + filename);
+            }
+            long dataOffset = start.getLong();
+
+            // the stream must not be closed, as this would close the channel as well. Reading ahead into the graph
+            // data is fine, as it is mapped at absolute offsets
+            DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            String storedFingerprint = header.readUTF();
+            if (fingerprint != null && !fingerprint.equals(storedFingerprint)) {
+                throw new IOException("Graph image " + filename + " was built with different travel times or disutilities ("
+                        + storedFingerprint + ").");
+            }
+            int storedNodeCount = header.readInt();
+            int storedLinkCount = header.readInt();
+
+            int graphNodes = header.readInt();
+            if (graphNodes != network.getNodes().size()) {
+                throw new IOException("Graph image " + filename + " has " + graphNodes + " nodes, network has " + network.getNodes().size());
+            }
+            for (int i = 0; i < graphNodes; i++) {
+                int index = header.readInt();
+                Node node = network.getNodes().get(Id.createNodeId(header.readUTF()));
+                if (node == null || node.getId().index() != index) {
+                    throw new IOException("Nodes of graph image " + filename + " do not match the network.");
+                }
+            }
+            int graphLinks = header.readInt();
+            if (graphLinks != network.getLinks().size()) {
+                throw new IOException("Graph image " + filename + " has " + graphLinks + " links, network has " + network.getLinks().size());
+            }
+            for (int i = 0; i < graphLinks; i++) {
+                int index = header.readInt();
+                Link link = network.getLinks().get(Id.createLinkId(header.readUTF()));
+                if (link == null || link.getId().index() != index) {
+                    throw new IOException("Links of graph image " + filename + " do not match the network.");
+                }
+            }
+
+            // more ids may have been created since the image was written, these are not part of the graph
+            int nodeCount = Math.max(storedNodeCount, Id.getNumberOfIds(Node.class));
+            int linkCount = Math.max(storedLinkCount, Id.getNumberOfIds(Link.class));
+
+            int[] nodeData = new int[nodeCount * 2];
+            int[] linkData = new int[linkCount * 6];
+            double[] linkLength = new double[linkCount];
+            double[] linkDisutility = new double[linkCount];
+            double[] linkTime = new double[linkCount];
+            Arrays.fill(nodeData, -1);
+            Arrays.fill(linkData, -1);
+
+            long offset = dataOffset;
+            long nodeDataBytes = (long) storedNodeCount * 2 * Integer.BYTES;
+            long linkDataBytes = (long) storedLinkCount * 6 * Integer.BYTES;
+            long linkValueBytes = (long) storedLinkCount * Double.BYTES;
+            map(channel, offset, nodeDataBytes).asIntBuffer().get(nodeData, 0, storedNodeCount * 2);
+            offset += nodeDataBytes;
+            map(channel, offset, linkDataBytes).asIntBuffer().get(linkData, 0, storedLinkCount * 6);
+            offset += linkDataBytes;
+            map(channel, offset, linkValueBytes).asDoubleBuffer().get(linkLength, 0, storedLinkCount);
+            offset += linkValueBytes;
+            map(channel, offset, linkValueBytes).asDoubleBuffer().get(linkDisutility, 0, storedLinkCount);
+            offset += linkValueBytes;
+            map(channel, offset, linkValueBytes).asDoubleBuffer().get(linkTime, 0, storedLinkCount);
+
+            Node[] nodes = new Node[nodeCount];
+            for (Node node : network.getNodes().values()) {
+                nodes[node.getId().index()] = node;
+            }
+            Link[] links = new Link[linkCount];
+            for (Link link : network.getLinks().values()) {
+                links[link.getId().index()] = link;
+            }
+
+            return new SpeedyGraph(nodeData, linkData, linkLength, linkDisutility, linkTime, links, nodes);
+        }
+    }
+
+    /**
+     * Reads the graph image if it exists and matches the network and the fingerprint of the travel time and
+     * disutility. Otherwise, the graph is built from the network and written to the given file for the next run.
+     * The fingerprint must identify all parameters of the travel time and disutility. In addition, the travel times
+     * and disutilities of a sample of links are re-evaluated, to detect images built from the same network file with
+     * other link attributes.
+     */
+    public static SpeedyGraph readOrBuild(String filename, Network network, TravelTime tt, TravelDisutility td,
+                                          Person person, Vehicle veh, String fingerprint) {
+        if (new File(filename).exists()) {
+            try {
+                SpeedyGraph graph = read(filename, network, fingerprint);
+                if (matches(graph, network, tt, td, person, veh)) {
+                    return graph;
+                }
+                log.warn("Graph image " + filename + " was built with different travel times or disutilities. Rebuilding...");
+            } catch (IOException e) {
+                log.warn("Cannot use graph image " + filename + ": " + e.getMessage() + " Rebuilding...");
+            }
+        }
+        SpeedyGraph graph = new SpeedyGraph(network, tt, td, person, veh);
+        try {
+            SpeedyGraphWriter.write(graph, filename, fingerprint);
+        } catch (IOException e) {
+            log.warn("Could not write graph image " + filename + ": " + e.getMessage());
+        }
+        return graph;
+    }
+
+    private static boolean matches(SpeedyGraph graph, Network network, TravelTime tt, TravelDisutility td,
+                                   Person person, Vehicle veh) {
+        int step = Math.max(1, network.getLinks().size() / CHECKED_LINKS);
+        Iterator<? extends Link> links = network.getLinks().values().iterator();
+        for (int i = 0; links.hasNext(); i++) {
+            Link link = links.next();
+            if (i % step != 0) {
+                continue;
+            }
+            int linkIdx = link.getId().index();
+            double disutility = td == null ? 0. : td.getLinkTravelDisutility(link, SpeedyGraph.TIME_VALUE, person, veh);
+            double time = tt == null ? 0. : tt.getLinkTravelTime(link, SpeedyGraph.TIME_VALUE, person, veh);
+            if (Double.compare(disutility, graph.getLinkDisutility(linkIdx)) != 0
+                    || Double.compare(time, graph.getLinkTime(linkIdx)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Graph image is too large to be memory-mapped.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+    }
+}
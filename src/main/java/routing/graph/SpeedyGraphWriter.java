@@ -0,0 +1,133 @@
+package routing.graph;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a built {@link SpeedyGraph} into a binary image that can be memory-mapped by {@link SpeedyGraphReader}, so
+ * the link disutilities and travel times do not have to be evaluated again on the next run.
+ *
+ * File layout (all values big-endian, as used by {@link java.io.DataOutputStream} and {@link ByteBuffer}):
+ * - int: magic number (0x53504752, "SPGR")
+ * - int: format version
+ * - long: byte offset of the graph data
+ * - fingerprint of the travel time and disutility the graph was built with ({@link DataOutputStream#writeUTF(String)})
+ * - int: node count, int: link count (i.e. the sizes of the id index space when the graph was built)
+ * - int: number of nodes in the graph, followed by their index and id ({@link DataOutputStream#writeUTF(String)})
+ * - int: number of links in the graph, followed by their index and id
+ * - zero padding up to the offset of the graph data (a multiple of 8 bytes)
+ * - nodeData and linkData (ints), linkLength, linkDisutility and linkTime (doubles)
+ */
+public final class SpeedyGraphWriter {
+
+    private final static Logger log = Logger.getLogger(SpeedyGraphWriter.class);
+
+    final static int MAGIC = 0x53504752;
+    final static int VERSION = 2;
+
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private SpeedyGraphWriter() {
+    }
+
+    public static void write(SpeedyGraph graph, String filename) throws IOException {
+        write(graph, filename, "");
+    }
+
+    /**
+     * @param fingerprint identifies the travel time and disutility of the graph (e.g. their type and parameters), so
+     *                    that images built with others are detected by {@link SpeedyGraphReader#readOrBuild}
+     */
+    public static void write(SpeedyGraph graph, String filename, String fingerprint) throws IOException {
+        log.info("Writing graph image to " + filename);
+
+        ByteArrayOutputStream idBytes = new ByteArrayOutputStream();
+        DataOutputStream ids = new DataOutputStream(idBytes);
+        ids.writeUTF(fingerprint);
+        ids.writeInt(graph.nodeCount);
+        ids.writeInt(graph.linkCount);
+        int graphNodes = 0;
+        for (Node node : graph.nodes) {
+            if (node != null) graphNodes++;
+        }
+        ids.writeInt(graphNodes);
+        for (int i = 0; i < graph.nodeCount; i++) {
+            if (graph.nodes[i] != null) {
+                ids.writeInt(i);
+                ids.writeUTF(graph.nodes[i].getId().toString());
+            }
+        }
+        int graphLinks = 0;
+        for (Link link : graph.links) {
+            if (link != null) graphLinks++;
+        }
+        ids.writeInt(graphLinks);
+        for (int i = 0; i < graph.linkCount; i++) {
+            if (graph.links[i] != null) {
+                ids.writeInt(i);
+                ids.writeUTF(graph.links[i].getId().toString());
+            }
+        }
+        ids.flush();
+
+        long dataOffset = 16 + idBytes.size();
+        dataOffset = (dataOffset + 7) / 8 * 8;
+
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(dataOffset);
+        header.put(idBytes.toByteArray());
+        header.position(0);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            writeInts(channel, buffer, graph.nodeData);
+            writeInts(channel, buffer, graph.linkData);
+            writeDoubles(channel, buffer, graph.linkLength);
+            writeDoubles(channel, buffer, graph.linkDisutility);
+            writeDoubles(channel, buffer, graph.linkTime);
+        }
+        log.info("Finished writing " + filename);
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int chunk = buffer.capacity() / Integer.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunk) {
+            int length = Math.min(chunk, values.length - offset);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, offset, length);
+            buffer.limit(length * Integer.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        int chunk = buffer.capacity() / Double.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunk) {
+            int length = Math.min(chunk, values.length - offset);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, offset, length);
+            buffer.limit(length * Double.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
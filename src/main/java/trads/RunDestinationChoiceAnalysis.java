@@ -18,6 +18,7 @@ import trip.Trip;
 import java.io.IOException;
 import java.util.Set;
 
+import static trads.calculate.RouteIndicatorCalculator.Router.BIDIRECTIONAL;
 import static trip.Place.*;
 
 // SCRIPT TO ADD MAIN DISTANCES FOR ANALYZING RUBBER BANDING IN TOUR-MAKING
@@ -63,8 +64,8 @@ public class RunDestinationChoiceAnalysis {
         calc.beeline("main_beeline",MAIN, DESTINATION);
 
         // network distances (based on walk network)
-        calc.network("home", HOME, DESTINATION, null, networkWalk, null, new DistanceDisutility(), ttWalk, null,false);
-        calc.network("main", MAIN, DESTINATION, null, networkWalk, null, new DistanceDisutility(), ttWalk, null,false);
+        calc.network("home", HOME, DESTINATION, null, networkWalk, null, new DistanceDisutility(), ttWalk, null,false, BIDIRECTIONAL);
+        calc.network("main", MAIN, DESTINATION, null, networkWalk, null, new DistanceDisutility(), ttWalk, null,false, BIDIRECTIONAL);
 
         // Write results
         logger.info("Writing results to csv file...");
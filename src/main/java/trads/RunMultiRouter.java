@@ -14,6 +14,9 @@ import routing.ActiveAttributes;
 import routing.Bicycle;
 import routing.TravelAttribute;
 import routing.disutility.JibeDisutility;
+import routing.disutility.components.LinkFactors;
+import routing.graph.Landmarks;
+import routing.graph.SpeedyGraph;
 import routing.travelTime.WalkTravelTime;
 import trads.calculate.RouteIndicatorCalculator;
 import trads.io.TradsCsvWriter;
@@ -25,6 +28,8 @@ import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static trads.calculate.RouteIndicatorCalculator.Router.ALT;
+import static trads.calculate.RouteIndicatorCalculator.Router.BIDIRECTIONAL;
 import static trip.Place.DESTINATION;
 import static trip.Place.ORIGIN;
 
@@ -34,19 +39,27 @@ public class RunMultiRouter {
 
     // Parameters for MC Simulation
     private final static double MAX_MC = 0.002;
+    private final static int LANDMARKS = 16;
+
+    // Parameters for Pareto routing
+    private final static double PARETO_EPSILON = 0.01;
+    private final static int PARETO_MAX_LABELS = 1_000_000;
+
     public static void main(String[] args) throws IOException, FactoryException {
-        if (args.length != 4) {
-            throw new RuntimeException("Program requires 4 arguments: \n" +
+        if (args.length != 4 && !(args.length == 5 && args[4].equals("pareto"))) {
+            throw new RuntimeException("Program requires 4 or 5 arguments: \n" +
                     "(0) Properties file \n" +
                     "(1) Output gpkg prefix\n" +
                     "(2) Output csv file path\n" +
-                    "(3) Mode");
+                    "(3) Mode\n" +
+                    "(4) (Optional) \"pareto\" to calculate Pareto-optimal routes instead of the ambience/stress sweep");
         }
 
         Resources.initializeResources(args[0]);
         String outputPrefix = args[1];
         String outputCsv = args[2];
         String mode = args[3];
+        boolean pareto = args.length == 5;
 
         // Read network
         Network modeSpecificNetwork = NetworkUtils2.readModeSpecificNetwork(mode);
@@ -83,25 +96,46 @@ public class RunMultiRouter {
         // JIBE Attributes
         LinkedHashMap<String, TravelAttribute> jibeAttr = ActiveAttributes.getJibe(mode,veh);
 
+        // Link factors of the jibe disutility, shared by all routes
+        LinkFactors linkFactors = LinkFactors.of(modeSpecificNetwork, mode);
+
         // Run short and fast routing (for reference)
-        JibeDisutility tdShort = new JibeDisutility(mode,tt,0.,1.,0.,0.,0.,0.);
-        JibeDisutility tdFast = new JibeDisutility(mode,tt,0.0067,0.,0.,0.,0.,0.);
+        JibeDisutility tdShort = new JibeDisutility(mode,tt,linkFactors,0.,1.,0.,0.,0.,0.);
+        JibeDisutility tdFast = new JibeDisutility(mode,tt,linkFactors,0.0067,0.,0.,0.,0.,0.);
 
-        calc.network("short", ORIGIN, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, tdShort, tt, jibeAttr, true);
-        calc.network("fast", ORIGIN, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, tdFast, tt, jibeAttr, true);
+        calc.network("short", ORIGIN, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, tdShort, tt, jibeAttr, true, BIDIRECTIONAL);
+        calc.network("fast", ORIGIN, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, tdFast, tt, jibeAttr, true, BIDIRECTIONAL);
 //        calc.network("jibeAmb", ORIGIN, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new JibeDisutility(mode,tt, MAX_MC,0.), tt, jibeAttr, true);
 //        calc.network("jibeStr", ORIGIN, DESTINATION, veh, modeSpecificNetwork, modeSpecificNetwork, new JibeDisutility(mode,tt,0.,MAX_MC), tt, jibeAttr, true);
 
-        // Test different Ambience/stress values
-        double mcAmbience;
-        double mcStress;
-        for (int i = 0; i <= 10; i++) {
-            mcAmbience = MAX_MC * i / 10;
-            for (int j = 0 ; j <= 10 ; j++) {
-                mcStress = MAX_MC * j / 10;
-                JibeDisutility disutilty = new JibeDisutility(mode,tt,mcAmbience,mcStress);
-                calc.network("jibe_" + i + "_" + j,ORIGIN,DESTINATION,veh,modeSpecificNetwork,modeSpecificNetwork,disutilty,tt,jibeAttr,true);
-
+        // Per-link components of the jibe disutility, recombined into the graph for each ambience/stress value
+        JibeDisutility baseJibe = new JibeDisutility(mode,tt,linkFactors,0.,0.);
+        double[][] components = baseJibe.getLinkComponents(modeSpecificNetwork, 0., null, veh);
+        SpeedyGraph topology = new SpeedyGraph(modeSpecificNetwork, tt, null, null, veh);
+
+        if(pareto) {
+            // Pareto-optimal trade-offs between the base, ambience and stress components
+            calc.pareto("pareto",ORIGIN,DESTINATION,modeSpecificNetwork,modeSpecificNetwork,topology,
+                    components,new String[] {"base","ambience","stress"},PARETO_EPSILON,PARETO_MAX_LABELS,
+                    baseJibe,jibeAttr,true);
+        } else {
+            // Landmarks for the jibe routes, based on the jibe disutility without ambience and stress costs,
+            // which is a lower bound for all tested ambience/stress values
+            SpeedyGraph baseGraph = topology.reweight(components, JibeDisutility.getComponentWeights(0.,0.));
+            calc.setLandmarks(new Landmarks(baseGraph, LANDMARKS));
+
+            // Test different Ambience/stress values
+            double mcAmbience;
+            double mcStress;
+            for (int i = 0; i <= 10; i++) {
+                mcAmbience = MAX_MC * i / 10;
+                for (int j = 0 ; j <= 10 ; j++) {
+                    mcStress = MAX_MC * j / 10;
+                    JibeDisutility disutilty = baseJibe.withAmbienceAndStress(mcAmbience,mcStress);
+                    SpeedyGraph graph = topology.reweight(components, JibeDisutility.getComponentWeights(mcAmbience,mcStress));
+                    calc.network("jibe_" + i + "_" + j,ORIGIN,DESTINATION,veh,modeSpecificNetwork,modeSpecificNetwork,disutilty,tt,jibeAttr,true,ALT,graph);
+
+                }
             }
         }
 
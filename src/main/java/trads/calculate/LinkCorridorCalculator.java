@@ -29,7 +29,6 @@ public final class LinkCorridorCalculator {
     private LinkCorridorCalculator() {
     }
 
-    private final static int MAX_MATRIX_DIM = 25000;
     private final static Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
 
     public static final Logger log = Logger.getLogger(LinkCorridorCalculator.class);
@@ -80,9 +79,13 @@ public final class LinkCorridorCalculator {
         private final SpeedyGraph graph;
         private final double detourLimit;
         private final int[] ref;
-        private final double[][] matrix;
+        private final int[] candidates;
+        private double[][] rows = new double[0][];
+        private int startNodeIdx;
+        private int endNodeIdx;
         private final SimpleTree origTree;
         private final SimpleTree destTree;
+        private final SimpleTree iTree;
         private final Map<Trip,IdMap<Link,Double>> results;
 
         public RouteWorker(ConcurrentLinkedQueue<Trip> trips, Counter counter,
@@ -98,9 +101,10 @@ public final class LinkCorridorCalculator {
             this.graph = graph;
             this.detourLimit = detourLimit;
             this.ref = new int[graph.getNodeCount()];
-            this.matrix = new double[MAX_MATRIX_DIM+500][MAX_MATRIX_DIM+500];
+            this.candidates = new int[graph.getNodeCount()];
             this.origTree = new SimpleTree(graph);
             this.destTree = new SimpleTree(graph);
+            this.iTree = new SimpleTree(graph);
             this.results = new HashMap<>(trips.size() / Resources.instance.getInt(resources.Properties.NUMBER_OF_THREADS));
         }
 
@@ -143,41 +147,26 @@ public final class LinkCorridorCalculator {
                     int validNodes = updateReference(shortestDist * this.detourLimit);
                     log.info(tripName + ": " + shortestDist + " metres. " + validNodes + " nodes within " + this.detourLimit + " detour.");
 
-                    if (validNodes > MAX_MATRIX_DIM) {
-                        log.info(tripName + ": Reducing outer detour limit...");
-                        double[] dist = new double[validNodes];
-                        for (int i = 0; i < graph.getNodeCount(); i++) {
-                            if (ref[i] != -1) {
-                                dist[ref[i]] = origTree.getCost(i) + destTree.getCost(i);
-                            }
-                        }
-                        Arrays.sort(dist);
-                        validNodes = updateReference(dist[MAX_MATRIX_DIM-1]);
-                        log.info(tripName + ": " + shortestDist + " metres. " + validNodes + " nodes within " + dist[MAX_MATRIX_DIM-1] / shortestDist + " detour.");
-                    }
-
-                    // Updating shortest distance matrix for region
-                    log.info(tripName + ": Updating shortest cost matrix...");
-                    updateMatrix(startNodeIdx,endNodeIdx);
-                    assert shortestDist == matrix[ref[startNodeIdx]][ref[endNodeIdx]];
+                    // Shortest costs between candidate nodes are calculated on demand
+                    resetRows(startNodeIdx,endNodeIdx,validNodes);
+                    assert shortestDist == getShortestCost(ref[startNodeIdx],ref[endNodeIdx]);
 
                     // Identify & tree from all candidate nodes
                     SpeedyGraph.LinkIterator li = graph.getOutLinkIterator();
                     int c = 0;
-                    for (int i = 0; i < graph.getNodeCount(); i++) {
-                        if (ref[i] != -1) {
-                            li.reset(i);
-                            while (li.next()) {
-                                int linkIdx = li.getLinkIndex();
-                                int j = li.getToNodeIndex();
-                                if (ref[j] != -1) {
-                                    double maxDetour = getMaxDetour(i, j, graph.getLinkDisutility(linkIdx),tripName);
-                                    if (maxDetour < this.detourLimit) {
-                                        c++;
-                                        linkDetours.put(graph.getLink(linkIdx).getId(), maxDetour);
-                                        fromNodeIdxDetours.put(i, maxDetour);
-                                        toNodeIdxDetours.put(j, maxDetour);
-                                    }
+                    for (int k = 0; k < validNodes; k++) {
+                        int i = candidates[k];
+                        li.reset(i);
+                        while (li.next()) {
+                            int linkIdx = li.getLinkIndex();
+                            int j = li.getToNodeIndex();
+                            if (ref[j] != -1) {
+                                double maxDetour = getMaxDetour(i, j, graph.getLinkDisutility(linkIdx),tripName);
+                                if (maxDetour < this.detourLimit) {
+                                    c++;
+                                    linkDetours.put(graph.getLink(linkIdx).getId(), maxDetour);
+                                    fromNodeIdxDetours.put(i, maxDetour);
+                                    toNodeIdxDetours.put(j, maxDetour);
                                 }
                             }
                         }
@@ -205,27 +194,32 @@ public final class LinkCorridorCalculator {
                 double destCost = destTree.getCost(i);
                 if (origCost + destCost <= maxCost) {
                     ref[i] = refIdx;
+                    candidates[refIdx] = i;
                     refIdx++;
                 }
             }
             return refIdx;
         }
 
-        private void updateMatrix(int startNodeIdx, int endNodeIdx) {
-            for(double[] row : matrix) {
-                Arrays.fill(row,Double.NaN);
-            }
-            SimpleTree iTree = new SimpleTree(graph);
-            for (int i = 0; i < graph.getNodeCount(); i++) {
-                if (ref[i] != -1) {
-                    iTree.calculate(startNodeIdx, endNodeIdx, i, -1, true);
-                    for (int j = 0; j < graph.getNodeCount(); j++) {
-                        if (ref[j] != -1) {
-                            matrix[ref[i]][ref[j]] = iTree.getCost(j);
-                        }
-                    }
+        // Shortest costs from one candidate node to all other candidate nodes are stored as a row, calculated when
+        // first needed and kept for the whole corridor. Only the rows of nodes on the trees' paths are requested.
+        private void resetRows(int startNodeIdx, int endNodeIdx, int validNodes) {
+            this.rows = new double[validNodes][];
+            this.startNodeIdx = startNodeIdx;
+            this.endNodeIdx = endNodeIdx;
+        }
+
+        private double getShortestCost(int refA, int refB) {
+            double[] row = rows[refA];
+            if (row == null) {
+                iTree.calculate(startNodeIdx, endNodeIdx, candidates[refA], -1, true);
+                row = new double[rows.length];
+                for (int b = 0; b < rows.length; b++) {
+                    row[b] = iTree.getCost(candidates[b]);
                 }
+                rows[refA] = row;
             }
+            return row[refB];
         }
 
         private void fillGaps(SimpleTree tree, IdMap<Link, Double> linkDetours, Map<Integer, Double> nodeIdxDetours) {
@@ -268,7 +262,7 @@ public final class LinkCorridorCalculator {
                         if(refCurrIdxB != -1) {
                             double costB = destTree.getCost(currIdxB);
                             double pathDist = totalCost - costA - costB;
-                            double shortDist = matrix[refCurrIdxA][refCurrIdxB];
+                            double shortDist = getShortestCost(refCurrIdxA, refCurrIdxB);
                             double detour = pathDist / shortDist;
                             if (detour > this.detourLimit) {
                                 return detour;
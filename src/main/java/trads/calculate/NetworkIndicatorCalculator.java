@@ -1,13 +1,13 @@
 package trads.calculate;
 
 import org.matsim.core.utils.misc.Counter;
+import network.LinkSnapper;
 import routing.TravelAttribute;
 import trip.Place;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.vehicles.Vehicle;
@@ -32,13 +32,13 @@ public class NetworkIndicatorCalculator implements Runnable {
 
     private final TravelDisutility travelDisutility;
     private final Network routingNetwork;
-    private final Network xy2lNetwork;
+    private final LinkSnapper snapper;
     private final LinkedHashMap<String, TravelAttribute> additionalAttributes;
     private final boolean savePath;
 
     public NetworkIndicatorCalculator(ConcurrentLinkedQueue<Trip> trips, Counter counter, String route,
                                       Place origin, Place destination, Vehicle vehicle,
-                                      Network routingNetwork, Network xy2lNetwork,
+                                      Network routingNetwork, LinkSnapper snapper,
                                       LeastCostPathCalculator pathCalculator, TravelDisutility travelDisutility,
                                       LinkedHashMap<String, TravelAttribute> additionalAttributes, boolean savePath) {
         this.trips = trips;
@@ -48,7 +48,7 @@ public class NetworkIndicatorCalculator implements Runnable {
         this.destination = destination;
         this.vehicle = vehicle;
         this.routingNetwork = routingNetwork;
-        this.xy2lNetwork = xy2lNetwork;
+        this.snapper = snapper;
         this.pathCalculator = pathCalculator;
         this.travelDisutility = travelDisutility;
         this.additionalAttributes = additionalAttributes;
@@ -69,8 +69,8 @@ public class NetworkIndicatorCalculator implements Runnable {
             if(trip.routable(origin, destination)) {
                 Coord cOrig = trip.getCoord(origin);
                 Coord cDest = trip.getCoord(destination);
-                Node nOrig = routingNetwork.getNodes().get(NetworkUtils.getNearestLinkExactly(xy2lNetwork, cOrig).getToNode().getId());
-                Node nDest = routingNetwork.getNodes().get(NetworkUtils.getNearestLinkExactly(xy2lNetwork, cDest).getToNode().getId());
+                Node nOrig = routingNetwork.getNodes().get(snapper.getNearestLink(cOrig).getToNode().getId());
+                Node nDest = routingNetwork.getNodes().get(snapper.getNearestLink(cDest).getToNode().getId());
 
                 // Calculate least cost path
                 LeastCostPathCalculator.Path path = pathCalculator.calcLeastCostPath(nOrig, nDest, trip.getStartTime(), null, vehicle);
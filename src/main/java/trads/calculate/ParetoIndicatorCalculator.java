@@ -0,0 +1,122 @@
+package trads.calculate;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.utils.misc.Counter;
+import network.LinkSnapper;
+import routing.TravelAttribute;
+import routing.graph.ParetoRouter;
+import trip.Place;
+import trip.Trip;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParetoIndicatorCalculator implements Runnable {
+
+    private final ConcurrentLinkedQueue<Trip> trips;
+    private final Counter counter;
+    private final String route;
+
+    private final Place origin;
+    private final Place destination;
+
+    private final ParetoRouter router;
+    private final String[] componentNames;
+
+    private final TravelDisutility travelDisutility;
+    private final Network routingNetwork;
+    private final LinkSnapper snapper;
+    private final LinkedHashMap<String, TravelAttribute> additionalAttributes;
+    private final boolean savePath;
+    private final AtomicInteger maxRoutes;
+
+    public ParetoIndicatorCalculator(ConcurrentLinkedQueue<Trip> trips, Counter counter, String route,
+                                     Place origin, Place destination,
+                                     Network routingNetwork, LinkSnapper snapper,
+                                     ParetoRouter router, String[] componentNames, TravelDisutility travelDisutility,
+                                     LinkedHashMap<String, TravelAttribute> additionalAttributes, boolean savePath,
+                                     AtomicInteger maxRoutes) {
+        this.trips = trips;
+        this.counter = counter;
+        this.route = route;
+        this.origin = origin;
+        this.destination = destination;
+        this.routingNetwork = routingNetwork;
+        this.snapper = snapper;
+        this.router = router;
+        this.componentNames = componentNames;
+        this.travelDisutility = travelDisutility;
+        this.additionalAttributes = additionalAttributes;
+        this.savePath = savePath;
+        this.maxRoutes = maxRoutes;
+    }
+
+    public void run() {
+
+        while(true) {
+            Trip trip = this.trips.poll();
+            if(trip == null) {
+                return;
+            }
+
+            this.counter.incCounter();
+
+            if(trip.routable(origin, destination)) {
+                Coord cOrig = trip.getCoord(origin);
+                Coord cDest = trip.getCoord(destination);
+                Node nOrig = routingNetwork.getNodes().get(snapper.getNearestLink(cOrig).getToNode().getId());
+                Node nDest = routingNetwork.getNodes().get(snapper.getNearestLink(cDest).getToNode().getId());
+
+                // Calculate Pareto-optimal paths, sorted by the first component
+                List<ParetoRouter.Route> paretoRoutes = router.calcParetoRoutes(nOrig, nDest);
+                maxRoutes.accumulateAndGet(paretoRoutes.size(), Math::max);
+
+                for(int k = 0 ; k < paretoRoutes.size() ; k++) {
+                    String routeName = route + "_" + k;
+                    LeastCostPathCalculator.Path path = paretoRoutes.get(k).getPath();
+                    double[] costs = paretoRoutes.get(k).getCosts();
+                    Map<String,Object> results = new LinkedHashMap<>();
+
+                    // Set cost components and time
+                    for(int c = 0 ; c < componentNames.length ; c++) {
+                        results.put(componentNames[c],costs[c]);
+                    }
+                    results.put("time",path.travelTime);
+
+                    // Set distance
+                    double dist = path.links.stream().mapToDouble(Link::getLength).sum();
+                    results.put("dist",dist);
+
+                    // Set path
+                    if(savePath) {
+                        int[] edgeIDs = path.links.stream().mapToInt(l -> (int) l.getAttributes().getAttribute("edgeID")).toArray();
+                        trip.setRoutePath(routeName,nOrig.getCoord(),edgeIDs,dist,path.travelTime);
+                    }
+
+                    // Additional attributes
+                    if(additionalAttributes != null) {
+                        for (Map.Entry<String,TravelAttribute> e : additionalAttributes.entrySet()) {
+                            String name = e.getKey();
+                            Double result;
+                            try {
+                                result = path.links.stream().mapToDouble(l -> e.getValue().getTravelAttribute(l,travelDisutility)).sum();
+                            } catch (ClassCastException exception) {
+                                result = null;
+                            }
+                            results.put(name,result);
+                        }
+                    }
+                    trip.setAttributes(routeName,results);
+                }
+            }
+        }
+    }
+}
@@ -5,12 +5,14 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.facilities.ActivityFacilitiesFactory;
 import org.matsim.facilities.ActivityFacilitiesFactoryImpl;
 import org.matsim.facilities.ActivityFacility;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.routes.DefaultTransitPassengerRoute;
+import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 import trip.Trip;
 
 import java.util.*;
@@ -19,6 +21,8 @@ import java.util.stream.Collectors;
 
 public class PtIndicatorCalculator implements Runnable {
 
+    private static final Id<ActivityFacility> FACILITY_ID = Id.create(1, ActivityFacility.class);
+
     private final ConcurrentLinkedQueue<Trip> trips;
     private final String route;
     private final Counter counter;
@@ -28,9 +32,10 @@ public class PtIndicatorCalculator implements Runnable {
     private final Scenario scenario;
     private final ActivityFacilitiesFactory activityFacilitiesFactory;
     private final List<String> attributeNames;
+    private final double transferWalkMargin;
 
     public PtIndicatorCalculator(ConcurrentLinkedQueue<Trip> trips, String route, Counter counter, Place origin, Place destination,
-                                 Scenario scenario, SwissRailRaptor raptor,
+                                 Scenario scenario, SwissRailRaptor raptor, double transferWalkMargin,
                                  ActivityFacilitiesFactoryImpl activityFacilitiesFactory, List<String> attributeNames) {
         this.trips = trips;
         this.route = route;
@@ -41,6 +46,7 @@ public class PtIndicatorCalculator implements Runnable {
         this.raptor = raptor;
         this.activityFacilitiesFactory = activityFacilitiesFactory;
         this.attributeNames = attributeNames;
+        this.transferWalkMargin = transferWalkMargin;
     }
 
     public void run() {
@@ -59,10 +65,25 @@ public class PtIndicatorCalculator implements Runnable {
                 int earliestDepartureTime = Math.max(departureTime - 900, 0);
                 int latestDepartureTime = Math.min(departureTime + 900, 86399);
 
-                Facility fOrig = activityFacilitiesFactory.createActivityFacility(Id.create(1, ActivityFacility.class), cOrig);
-                Facility fDest = activityFacilitiesFactory.createActivityFacility(Id.create(1, ActivityFacility.class), cDest);
-
-                List<Leg> legs = null;//raptor.calcRoute(fOrig, fDest, earliestDepartureTime, departureTime, latestDepartureTime, null); todo: adapt to MATSim 14.0
+                Facility fOrig = activityFacilitiesFactory.createActivityFacility(FACILITY_ID, cOrig);
+                Facility fDest = activityFacilitiesFactory.createActivityFacility(FACILITY_ID, cDest);
+
+                // the raptor (and its internal search state) is re-used for all trips of this thread
+                List<RaptorRoute> routes = raptor.calcRoutes(fOrig, fDest, earliestDepartureTime, departureTime, latestDepartureTime, null, new AttributesImpl());
+                RaptorRoute bestRoute = findBestRoute(routes, departureTime);
+                List<Leg> legs = null;
+                if (bestRoute != null) {
+                    List<? extends PlanElement> planElements = RaptorUtils.convertRouteToLegs(bestRoute, transferWalkMargin);
+                    legs = new ArrayList<>();
+                    for (PlanElement element : planElements) {
+                        if (element instanceof Leg) {
+                            legs.add((Leg) element);
+                        }
+                    }
+                    if (legs.isEmpty()) {
+                        legs = null;
+                    }
+                }
 
                 int ptLegs = 0;
                 int walkLegs = 0;
@@ -125,6 +146,21 @@ public class PtIndicatorCalculator implements Runnable {
         }
     }
 
+    // Route with the lowest cost departing within the window, preferring departures closer to the trip's start time
+    private static RaptorRoute findBestRoute(List<RaptorRoute> routes, double departureTime) {
+        RaptorRoute bestRoute = null;
+        if (routes != null) {
+            for (RaptorRoute route : routes) {
+                if (bestRoute == null || route.getTotalCosts() < bestRoute.getTotalCosts() ||
+                        (route.getTotalCosts() == bestRoute.getTotalCosts() &&
+                                Math.abs(route.getDepartureTime() - departureTime) < Math.abs(bestRoute.getDepartureTime() - departureTime))) {
+                    bestRoute = route;
+                }
+            }
+        }
+        return bestRoute;
+    }
+
     private Map<String,Object> attributes(List<Object> values) {
         Map<String,Object> result = new LinkedHashMap<>();
         if(attributeNames.size() != values.size()) {
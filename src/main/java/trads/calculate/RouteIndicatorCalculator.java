@@ -1,8 +1,16 @@
 package trads.calculate;
 
+import network.LinkSnapper;
 import resources.Properties;
 import resources.Resources;
 import routing.TravelAttribute;
+import routing.graph.AltRouter;
+import routing.graph.BidirectionalDijkstra;
+import routing.graph.ContractionHierarchy;
+import routing.graph.ContractionHierarchyRouter;
+import routing.graph.Landmarks;
+import routing.graph.ParetoRouter;
+import routing.graph.SpeedyGraph;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.FastDijkstraFactory;
@@ -26,6 +34,7 @@ import trip.Trip;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RouteIndicatorCalculator {
 
@@ -33,6 +42,8 @@ public class RouteIndicatorCalculator {
     private final int numberOfThreads;
     private final Set<Trip> trips;
     private final Map<String, List<String>> allAttributeNames;
+    private Landmarks landmarks;
+    private final Map<Network, LinkSnapper> snappers = new IdentityHashMap<>();
 
     public RouteIndicatorCalculator(Set<Trip> trips) {
         this.numberOfThreads = Resources.instance.getInt(Properties.NUMBER_OF_THREADS);
@@ -40,15 +51,53 @@ public class RouteIndicatorCalculator {
         this.allAttributeNames = new LinkedHashMap<>();
     }
 
+    // Least-cost-path algorithms available for network routes. All except DIJKSTRA evaluate link costs at time 0,
+    // so DIJKSTRA must be used for time-dependent travel times (e.g. congested car travel times)
+    public enum Router {DIJKSTRA, BIDIRECTIONAL, CONTRACTION_HIERARCHY, ALT}
+
     public Map<String,List<String>> getAllAttributeNames() { return allAttributeNames; }
 
+    // Landmarks for Router.ALT, their bounds must be admissible for all disutilities routed with ALT
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    // Snapped origins and destinations are shared by all routes using the same xy2l network
+    private LinkSnapper getSnapper(Network xy2lNetwork) {
+        return snappers.computeIfAbsent(xy2lNetwork, LinkSnapper::new);
+    }
+
+    // Routes with the time-dependent DIJKSTRA, callers with time-independent costs can choose a faster router below
     public void network(String route, Place origin, Place destination, Vehicle vehicle,
                         Network network, Network xy2lNetwork,
                         TravelDisutility travelDisutility, TravelTime travelTime,
                         LinkedHashMap<String,TravelAttribute> additionalAttributes, boolean savePath) {
+        network(route, origin, destination, vehicle, network, xy2lNetwork, travelDisutility, travelTime,
+                additionalAttributes, savePath, Router.DIJKSTRA);
+    }
+
+    public void network(String route, Place origin, Place destination, Vehicle vehicle,
+                        Network network, Network xy2lNetwork,
+                        TravelDisutility travelDisutility, TravelTime travelTime,
+                        LinkedHashMap<String,TravelAttribute> additionalAttributes, boolean savePath, Router router) {
+        network(route, origin, destination, vehicle, network, xy2lNetwork, travelDisutility, travelTime,
+                additionalAttributes, savePath, router, null);
+    }
+
+    // The given graph (if not null) is used for routing instead of building one from the network. Its link
+    // disutilities must match the given travel disutility, e.g. if derived with SpeedyGraph.reweight
+    public void network(String route, Place origin, Place destination, Vehicle vehicle,
+                        Network network, Network xy2lNetwork,
+                        TravelDisutility travelDisutility, TravelTime travelTime,
+                        LinkedHashMap<String,TravelAttribute> additionalAttributes, boolean savePath, Router router,
+                        SpeedyGraph graph) {
 
         logger.info("Calculating network indicators for route " + route);
 
+        if(router == Router.ALT && landmarks == null) {
+            throw new RuntimeException("Landmarks must be set before routing with ALT!");
+        }
+
         // Specify attribute names
         List<String> attributeNames = new ArrayList<>();
 
@@ -70,12 +119,29 @@ public class RouteIndicatorCalculator {
         ConcurrentLinkedQueue<Trip> odPairsQueue = new ConcurrentLinkedQueue<>(trips);
 
         Counter counter = new Counter(route + ": Route ", " / " + trips.size());
+        if(graph == null && router != Router.DIJKSTRA) {
+            graph = new SpeedyGraph(network, travelTime, travelDisutility, null, vehicle);
+        }
+        ContractionHierarchy ch = router == Router.CONTRACTION_HIERARCHY ? new ContractionHierarchy(graph) : null;
+        LinkSnapper snapper = getSnapper(xy2lNetwork);
         Thread[] threads = new Thread[numberOfThreads];
         for (int i = 0; i < numberOfThreads; i++) {
-            LeastCostPathCalculator dijkstra = new FastDijkstraFactory(false).
-                    createPathCalculator(network, travelDisutility, travelTime);
+            LeastCostPathCalculator dijkstra;
+            switch (router) {
+                case DIJKSTRA:
+                    dijkstra = new FastDijkstraFactory(false).createPathCalculator(network, travelDisutility, travelTime);
+                    break;
+                case CONTRACTION_HIERARCHY:
+                    dijkstra = new ContractionHierarchyRouter(ch);
+                    break;
+                case ALT:
+                    dijkstra = new AltRouter(graph, landmarks);
+                    break;
+                default:
+                    dijkstra = new BidirectionalDijkstra(graph);
+            }
             NetworkIndicatorCalculator worker = new NetworkIndicatorCalculator(odPairsQueue, counter, route,
-                    origin, destination, vehicle, network, xy2lNetwork, dijkstra, travelDisutility, additionalAttributes, savePath);
+                    origin, destination, vehicle, network, snapper, dijkstra, travelDisutility, additionalAttributes, savePath);
             threads[i] = new Thread(worker, "NetworkCalculator-" + route + "-" + i);
             threads[i].start();
         }
@@ -90,6 +156,55 @@ public class RouteIndicatorCalculator {
         }
     }
 
+    // Pareto-optimal routes over the given link cost components (e.g. from JibeDisutility.getLinkComponents), stored
+    // as routes route_0, route_1, ... sorted by the first component. Trips have different numbers of routes, so
+    // attributes are written for the largest Pareto set found
+    public void pareto(String route, Place origin, Place destination,
+                       Network network, Network xy2lNetwork, SpeedyGraph graph,
+                       double[][] components, String[] componentNames, double epsilon, int maxLabels,
+                       TravelDisutility travelDisutility, LinkedHashMap<String,TravelAttribute> additionalAttributes,
+                       boolean savePath) {
+
+        logger.info("Calculating Pareto-optimal routes for route " + route);
+
+        // Specify attribute names
+        List<String> attributeNames = new ArrayList<>(List.of(componentNames));
+        attributeNames.addAll(List.of("time","dist"));
+        if(additionalAttributes != null) {
+            attributeNames.addAll(additionalAttributes.keySet());
+        }
+
+        // Do calculation
+        ConcurrentLinkedQueue<Trip> odPairsQueue = new ConcurrentLinkedQueue<>(trips);
+        AtomicInteger maxRoutes = new AtomicInteger();
+
+        Counter counter = new Counter(route + ": Route ", " / " + trips.size());
+        LinkSnapper snapper = getSnapper(xy2lNetwork);
+        Thread[] threads = new Thread[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++) {
+            ParetoRouter router = new ParetoRouter(graph, components, epsilon, maxLabels);
+            ParetoIndicatorCalculator worker = new ParetoIndicatorCalculator(odPairsQueue, counter, route,
+                    origin, destination, network, snapper, router, componentNames, travelDisutility,
+                    additionalAttributes, savePath, maxRoutes);
+            threads[i] = new Thread(worker, "ParetoCalculator-" + route + "-" + i);
+            threads[i].start();
+        }
+
+        // wait until all threads have finished
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        logger.info("Found up to " + maxRoutes.get() + " Pareto-optimal routes per trip.");
+        for (int k = 0; k < maxRoutes.get(); k++) {
+            allAttributeNames.put(route + "_" + k, attributeNames);
+        }
+    }
+
     public void pt(String route, Place origin, Place destination, Config config, String scheduleFilePath, String networkFilePath) {
 
         config.transit().setUseTransit(true);
@@ -124,7 +239,7 @@ public class RouteIndicatorCalculator {
             ActivityFacilitiesFactoryImpl activityFacilitiesFactory = new ActivityFacilitiesFactoryImpl();
 
             PtIndicatorCalculator worker = new PtIndicatorCalculator(odPairsQueue, route, counter, origin,
-                    destination, scenario,raptor, activityFacilitiesFactory, attributeNames);
+                    destination, scenario,raptor, raptorConfig.getTransferWalkMargin(), activityFacilitiesFactory, attributeNames);
             threads[i] = new Thread(worker, "PublicTransportCalculator-" + i);
             threads[i].start();
         }
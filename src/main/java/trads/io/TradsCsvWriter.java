@@ -108,7 +108,7 @@ public class TradsCsvWriter {
                     append(SEP).append(route).
                     append(SEP);
 
-            if(!trip.getUniqueRoutes().isEmpty()) {
+            if(trip.hasRoutePath(route)) {
                 builder.append(trip.getPathIndex(route));
             }
 
@@ -102,6 +102,11 @@ public class Trip {
     public int getPathIndex(String route) {
         return routePathIndices.get(route);
     }
+
+    public boolean hasRoutePath(String route) {
+        return routePathIndices.containsKey(route);
+    }
+
     public Map<String,int[]> getAllRoutePaths() {
         Map<String,int[]> result = new LinkedHashMap<>();
 
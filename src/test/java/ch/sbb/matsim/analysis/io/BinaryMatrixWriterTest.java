@@ -0,0 +1,52 @@
+package ch.sbb.matsim.analysis.io;
+
+import ch.sbb.matsim.analysis.matrix.FloatMatrix;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class BinaryMatrixWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Set<String> zones = new LinkedHashSet<>();
+        zones.add("A");
+        zones.add("B");
+        zones.add("Zone C");
+
+        FloatMatrix<String> time = new FloatMatrix<>(zones, 0);
+        FloatMatrix<String> distance = new FloatMatrix<>(zones, Float.POSITIVE_INFINITY);
+        time.set("A", "B", 120.5f);
+        time.set("Zone C", "A", 60f);
+        distance.set("B", "Zone C", 1000f);
+
+        LinkedHashMap<String, BinaryMatrixWriter.CellValue> matrices = new LinkedHashMap<>();
+        matrices.put("time", time::getByIndex);
+        matrices.put("distance", distance::getByIndex);
+
+        String filename = folder.newFile("skims.bin").getAbsolutePath();
+        BinaryMatrixWriter.write(filename, time.orig2index, time.dest2index, matrices);
+
+        BinaryMatrixReader reader = new BinaryMatrixReader(filename);
+        Assert.assertArrayEquals(new String[]{"A", "B", "Zone C"}, reader.getOrigIds());
+        Assert.assertArrayEquals(new String[]{"A", "B", "Zone C"}, reader.getDestIds());
+        Assert.assertArrayEquals(new String[]{"time", "distance"}, reader.getMatrixNames().toArray());
+
+        for (String from : zones) {
+            for (String to : zones) {
+                Assert.assertEquals(time.get(from, to), reader.get("time", from, to), 0.0);
+                Assert.assertEquals(distance.get(from, to), reader.get("distance", from, to), 0.0);
+            }
+        }
+        Assert.assertEquals(9, reader.getMatrix("time").remaining());
+    }
+}
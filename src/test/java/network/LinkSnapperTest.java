@@ -0,0 +1,67 @@
+package network;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+import java.util.Random;
+
+public class LinkSnapperTest {
+
+    @Test
+    public void testAgainstNetworkUtils() {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory nf = network.getFactory();
+        Random random = new Random(23);
+        Node[] nodes = new Node[200];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = nf.createNode(Id.createNodeId("snap_" + i), new Coord(random.nextInt(2000), random.nextInt(2000)));
+            network.addNode(nodes[i]);
+        }
+        for (int i = 0; i < 400; i++) {
+            Node from = nodes[random.nextInt(nodes.length)];
+            Node to = nodes[random.nextInt(nodes.length)];
+            if (from == to) {
+                continue;
+            }
+            network.addLink(nf.createLink(Id.createLinkId("snap_" + i), from, to));
+            // opposite links are at the same distance, the first one in link order must win
+            network.addLink(nf.createLink(Id.createLinkId("snap_r" + i), to, from));
+        }
+
+        LinkSnapper snapper = new LinkSnapper(network);
+        for (int k = 0; k < 500; k++) {
+            // integer coordinates, so some points coincide with nodes or links
+            Coord coord = new Coord(random.nextInt(2200) - 100, random.nextInt(2200) - 100);
+
+            Link expected = NetworkUtils.getNearestLinkExactly(network, coord);
+            Link link = snapper.getNearestLink(coord);
+            Assert.assertEquals(expected.getId(), link.getId());
+            Assert.assertSame(link, snapper.getNearestLink(new Coord(coord.getX(), coord.getY())));
+        }
+    }
+
+    @Test
+    public void testTieFollowsLinkOrder() {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory nf = network.getFactory();
+        Node from = nf.createNode(Id.createNodeId("tie_from"), new Coord(0, 0));
+        Node to = nf.createNode(Id.createNodeId("tie_to"), new Coord(100, 0));
+        network.addNode(from);
+        network.addNode(to);
+        // the first link in link order has the larger id string
+        network.addLink(nf.createLink(Id.createLinkId("tie_b"), from, to));
+        network.addLink(nf.createLink(Id.createLinkId("tie_a"), to, from));
+
+        Coord coord = new Coord(50, 10);
+        Link expected = NetworkUtils.getNearestLinkExactly(network, coord);
+        Assert.assertEquals(Id.createLinkId("tie_b"), expected.getId());
+        Assert.assertSame(expected, new LinkSnapper(network).getNearestLink(coord));
+    }
+}
@@ -0,0 +1,89 @@
+package network;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+import java.io.IOException;
+import java.util.Set;
+
+public class NetworkCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory nf = network.getFactory();
+        Node a = nf.createNode(Id.createNodeId("cacheA"), new Coord(0., 0.));
+        Node b = nf.createNode(Id.createNodeId("cacheB"), new Coord(100., 50., 3.));
+        a.getAttributes().putAttribute("walkCrossing", "signal");
+        network.addNode(a);
+        network.addNode(b);
+        Link ab = nf.createLink(Id.createLinkId("cacheAB"), a, b);
+        ab.setLength(112.);
+        ab.setFreespeed(8.9);
+        ab.setCapacity(600.);
+        ab.setNumberOfLanes(2.);
+        ab.setAllowedModes(Set.of("walk", "bike"));
+        ab.getAttributes().putAttribute("name", "Oxford Road");
+        ab.getAttributes().putAttribute("fwd", true);
+        ab.getAttributes().putAttribute("aadt", 1200);
+        ab.getAttributes().putAttribute("vgvi", 0.4);
+        network.addLink(ab);
+        Link ba = nf.createLink(Id.createLinkId("cacheBA"), b, a);
+        ba.setAllowedModes(Set.of("walk", "bike"));
+        ba.getAttributes().putAttribute("name", "Oxford Road");
+        network.addLink(ba);
+
+        String cachePath = folder.getRoot().getPath() + "/network.bin";
+        NetworkCache.write(network, null, cachePath, 10, 42);
+        Assert.assertNull(NetworkCache.read(cachePath, 10, 43));
+
+        Network cached = NetworkCache.read(cachePath, 10, 42);
+        Assert.assertNotNull(cached);
+        Assert.assertEquals(2, cached.getNodes().size());
+        Assert.assertEquals(2, cached.getLinks().size());
+        Assert.assertEquals(3., cached.getNodes().get(b.getId()).getCoord().getZ(), 0.);
+        Assert.assertEquals("signal", cached.getNodes().get(a.getId()).getAttributes().getAttribute("walkCrossing"));
+
+        Link cachedLink = cached.getLinks().get(ab.getId());
+        Assert.assertEquals(a.getId(), cachedLink.getFromNode().getId());
+        Assert.assertEquals(b.getId(), cachedLink.getToNode().getId());
+        Assert.assertEquals(112., cachedLink.getLength(), 0.);
+        Assert.assertEquals(8.9, cachedLink.getFreespeed(), 0.);
+        Assert.assertEquals(600., cachedLink.getCapacity(), 0.);
+        Assert.assertEquals(2., cachedLink.getNumberOfLanes(), 0.);
+        Assert.assertEquals(Set.of("walk", "bike"), cachedLink.getAllowedModes());
+        Assert.assertEquals("Oxford Road", cachedLink.getAttributes().getAttribute("name"));
+        Assert.assertEquals(true, cachedLink.getAttributes().getAttribute("fwd"));
+        Assert.assertEquals(1200, cachedLink.getAttributes().getAttribute("aadt"));
+        Assert.assertEquals(0.4, cachedLink.getAttributes().getAttribute("vgvi"));
+        Assert.assertEquals("Oxford Road", cached.getLinks().get(ba.getId()).getAttributes().getAttribute("name"));
+
+        // extracted networks store the ids of their source network first
+        Network extracted = NetworkUtils.createNetwork();
+        Node extractedA = nf.createNode(a.getId(), a.getCoord());
+        Node extractedB = nf.createNode(b.getId(), b.getCoord());
+        extracted.addNode(extractedA);
+        extracted.addNode(extractedB);
+        extracted.addLink(nf.createLink(ba.getId(), extractedB, extractedA));
+        String extractedPath = folder.getRoot().getPath() + "/network.walk.bin";
+        NetworkCache.write(extracted, network, extractedPath, 10, 42);
+
+        Network cachedExtracted = NetworkCache.read(extractedPath, 10, 42);
+        Assert.assertNotNull(cachedExtracted);
+        Assert.assertEquals(2, cachedExtracted.getNodes().size());
+        Assert.assertEquals(1, cachedExtracted.getLinks().size());
+        Assert.assertEquals(a.getId(), cachedExtracted.getLinks().get(ba.getId()).getToNode().getId());
+    }
+}
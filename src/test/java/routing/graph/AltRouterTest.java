@@ -0,0 +1,48 @@
+package routing.graph;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+import routing.disutility.DistanceDisutility;
+
+import java.util.Random;
+
+public class AltRouterTest {
+
+    @Test
+    public void testLandmarksOfLowerDisutility() {
+        Network network = RoutingTestUtils.createGridNetwork(30, new Random(23));
+        TravelTime tt = RoutingTestUtils.TRAVEL_TIME;
+
+        // landmarks computed with distance only, routing with a larger disutility
+        Landmarks landmarks = new Landmarks(new SpeedyGraph(network, tt, new DistanceDisutility(), null, null), 4);
+        TravelDisutility td = new TravelDisutility() {
+            @Override
+            public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+                return link.getLength() + 10 * tt.getLinkTravelTime(link, time, person, vehicle);
+            }
+
+            @Override
+            public double getLinkMinimumTravelDisutility(Link link) {
+                return link.getLength();
+            }
+        };
+        SpeedyGraph graph = new SpeedyGraph(network, tt, td, null, null);
+        RoutingTestUtils.assertLeastCostPaths(network, graph, new AltRouter(graph, landmarks), 100, new Random(29));
+    }
+
+    @Test
+    public void testOneWayNetwork() {
+        Network network = RoutingTestUtils.createOneWayNetwork(400, new Random(61));
+        TravelTime tt = RoutingTestUtils.TRAVEL_TIME;
+
+        // landmarks must give lower bounds in both directions, although most links are one-way
+        Landmarks landmarks = new Landmarks(new SpeedyGraph(network, tt, new DistanceDisutility(), null, null), 8);
+        SpeedyGraph graph = new SpeedyGraph(network, tt, RoutingTestUtils.createUnequalDisutility(5), null, null);
+        RoutingTestUtils.assertLeastCostPaths(network, graph, new AltRouter(graph, landmarks), 200, new Random(67));
+    }
+}
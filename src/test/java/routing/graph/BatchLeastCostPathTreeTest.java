@@ -0,0 +1,69 @@
+package routing.graph;
+
+import accessibility.decay.DecayFunction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class BatchLeastCostPathTreeTest {
+
+    @Test
+    public void testAgainstSingleTrees() {
+        assertAgainstSingleTrees(RoutingTestUtils.createGridNetwork(20, new Random(19)));
+    }
+
+    @Test
+    public void testOneWayNetwork() {
+        assertAgainstSingleTrees(RoutingTestUtils.createOneWayNetwork(300, new Random(83)));
+    }
+
+    private static void assertAgainstSingleTrees(Network network) {
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, RoutingTestUtils.createUnequalDisutility(7), null, null);
+
+        Set<Id<Node>> nodeIds = network.getNodes().keySet();
+        List<int[]> batches = BatchLeastCostPathTree.createBatches(graph, nodeIds, 8);
+        Assert.assertEquals(nodeIds.size(), batches.stream().mapToInt(b -> b.length).sum());
+
+        BatchLeastCostPathTree batchTree = new BatchLeastCostPathTree(graph, 8);
+        LeastCostPathTree3 tree = new LeastCostPathTree3(graph);
+
+        // results must match single trees for all nodes, including those beyond the stop
+        List<LeastCostPathTree3.StopCriterion> stopCriteria = List.of(
+                (node, arrTime, cost, distance, depTime) -> false,
+                (node, arrTime, cost, distance, depTime) -> cost > 2000.,
+                new DecayFunction(120., Double.NaN).getTreeStopCriterion(),
+                new DecayFunction(Double.NaN, 1500.).getTreeStopCriterion(),
+                new DecayFunction(200., 1200.).getTreeStopCriterion());
+
+        for (LeastCostPathTree3.StopCriterion stop : stopCriteria) {
+            for (int[] batch : batches.subList(0, 5)) {
+                for (boolean fwd : new boolean[]{true, false}) {
+                    batchTree.calculate(batch, 0., stop, fwd);
+                    Set<Integer> reached = IntStream.range(0, batchTree.getReachedNodeCount())
+                            .mapToObj(batchTree::getReachedNode).collect(Collectors.toSet());
+                    for (int lane = 0; lane < batch.length; lane++) {
+                        tree.calculate(batch[lane], 0., stop, fwd);
+                        for (Id<Node> nodeId : nodeIds) {
+                            int nodeIdx = nodeId.index();
+                            Assert.assertEquals(tree.getCost(nodeIdx), batchTree.getCost(lane, nodeIdx), 1e-6);
+                            Assert.assertEquals(tree.getDistance(nodeIdx), batchTree.getDistance(lane, nodeIdx), 1e-6);
+                            Assert.assertEquals(tree.getTime(nodeIdx).orElse(Double.POSITIVE_INFINITY),
+                                    batchTree.getTime(lane, nodeIdx), 1e-6);
+                            if (Double.isFinite(tree.getCost(nodeIdx))) {
+                                Assert.assertTrue(reached.contains(nodeIdx));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package routing.graph;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.TravelDisutility;
+import routing.disutility.DistanceDisutility;
+
+import java.util.Random;
+
+public class BidirectionalDijkstraTest {
+
+    @Test
+    public void testAgainstTree() {
+        Network network = RoutingTestUtils.createGridNetwork(30, new Random(3));
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, new DistanceDisutility(), null, null);
+        RoutingTestUtils.assertLeastCostPaths(network, graph, new BidirectionalDijkstra(graph), 50, new Random(5));
+        RoutingTestUtils.assertLeastCostPaths(network, graph, new BidirectionalDijkstra(graph, new DistanceDisutility()), 50, new Random(5));
+    }
+
+    @Test
+    public void testOneWayNetwork() {
+        Network network = RoutingTestUtils.createOneWayNetwork(400, new Random(43));
+        TravelDisutility td = RoutingTestUtils.createUnequalDisutility(5);
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, td, null, null);
+        RoutingTestUtils.assertLeastCostPaths(network, graph, new BidirectionalDijkstra(graph), 100, new Random(47));
+        RoutingTestUtils.assertLeastCostPaths(network, graph, new BidirectionalDijkstra(graph, td), 100, new Random(47));
+    }
+}
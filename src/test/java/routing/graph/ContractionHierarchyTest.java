@@ -0,0 +1,26 @@
+package routing.graph;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Network;
+import routing.disutility.DistanceDisutility;
+
+import java.util.Random;
+
+public class ContractionHierarchyTest {
+
+    @Test
+    public void testAgainstTree() {
+        Network network = RoutingTestUtils.createGridNetwork(30, new Random(17));
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, new DistanceDisutility(), null, null);
+        ContractionHierarchyRouter router = new ContractionHierarchyRouter(new ContractionHierarchy(graph));
+        RoutingTestUtils.assertLeastCostPaths(network, graph, router, 100, new Random(19));
+    }
+
+    @Test
+    public void testOneWayNetwork() {
+        Network network = RoutingTestUtils.createOneWayNetwork(400, new Random(53));
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, RoutingTestUtils.createUnequalDisutility(5), null, null);
+        ContractionHierarchyRouter router = new ContractionHierarchyRouter(new ContractionHierarchy(graph));
+        RoutingTestUtils.assertLeastCostPaths(network, graph, router, 200, new Random(59));
+    }
+}
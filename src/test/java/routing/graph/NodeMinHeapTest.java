@@ -0,0 +1,109 @@
+package routing.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import routing.disutility.DistanceDisutility;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+public class NodeMinHeapTest {
+
+    @Test
+    public void testPollOrderWithDecreaseKey() {
+        Random random = new Random(42);
+        int nodeCount = 1000;
+        double[] cost = new double[nodeCount];
+        NodeMinHeap heap = new NodeMinHeap(nodeCount, i -> cost[i], (i, c) -> cost[i] = c);
+
+        for (int i = 0; i < nodeCount; i++) {
+            cost[i] = 1000 * random.nextDouble();
+            heap.insert(i);
+        }
+        for (int k = 0; k < 5000; k++) {
+            int node = random.nextInt(nodeCount);
+            heap.decreaseKey(node, cost[node] * random.nextDouble());
+        }
+
+        double[] expected = cost.clone();
+        Arrays.sort(expected);
+
+        Assert.assertEquals(nodeCount, heap.size());
+        for (int i = 0; i < nodeCount; i++) {
+            Assert.assertEquals(expected[i], cost[heap.poll()], 0.0);
+        }
+        Assert.assertTrue(heap.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecreaseKeyOfPolledNode() {
+        double[] cost = {1.0, 2.0, 3.0};
+        NodeMinHeap heap = new NodeMinHeap(3, i -> cost[i], (i, c) -> cost[i] = c);
+        heap.insert(0);
+        heap.insert(1);
+        heap.insert(2);
+        int polled = heap.poll();
+        heap.decreaseKey(polled, 0.5);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPollEmpty() {
+        NodeMinHeap heap = new NodeMinHeap(1, i -> 0., (i, c) -> {});
+        heap.poll();
+    }
+
+    @Test
+    public void testTreeAgainstReferenceDijkstra() {
+        Network network = RoutingTestUtils.createGridNetwork(30, new Random(7));
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, new DistanceDisutility(), null, null);
+        LeastCostPathTree3 tree = new LeastCostPathTree3(graph);
+
+        Random random = new Random(11);
+        Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+        for (int k = 0; k < 10; k++) {
+            int startNode = nodes[random.nextInt(nodes.length)].getId().index();
+            for (boolean fwd : new boolean[]{true, false}) {
+                tree.calculate(startNode, 0., fwd);
+                double[] expected = referenceDijkstra(graph, startNode, fwd);
+                for (Node node : nodes) {
+                    int nodeIdx = node.getId().index();
+                    Assert.assertEquals(expected[nodeIdx], tree.getCost(nodeIdx), 1e-6);
+                    Assert.assertEquals(expected[nodeIdx], tree.getDistance(nodeIdx), 1e-6);
+                }
+                Assert.assertEquals(nodes.length, tree.getReachedNodeCount());
+            }
+        }
+    }
+
+    private static double[] referenceDijkstra(SpeedyGraph graph, int startNode, boolean fwd) {
+        double[] cost = new double[graph.getNodeCount()];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[graph.getNodeCount()];
+        SpeedyGraph.LinkIterator li = fwd ? graph.getOutLinkIterator() : graph.getInLinkIterator();
+        PriorityQueue<double[]> pq = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+
+        cost[startNode] = 0.;
+        pq.add(new double[]{0., startNode});
+        while (!pq.isEmpty()) {
+            int nodeIdx = (int) pq.poll()[1];
+            if (settled[nodeIdx]) {
+                continue;
+            }
+            settled[nodeIdx] = true;
+            li.reset(nodeIdx);
+            while (li.next()) {
+                int nextNode = fwd ? li.getToNodeIndex() : li.getFromNodeIndex();
+                double newCost = cost[nodeIdx] + graph.getLinkDisutility(li.getLinkIndex());
+                if (newCost < cost[nextNode]) {
+                    cost[nextNode] = newCost;
+                    pq.add(new double[]{newCost, nextNode});
+                }
+            }
+        }
+        return cost;
+    }
+}
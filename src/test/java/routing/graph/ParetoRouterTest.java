@@ -0,0 +1,74 @@
+package routing.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import routing.disutility.DistanceDisutility;
+
+import java.util.List;
+import java.util.Random;
+
+public class ParetoRouterTest {
+
+    @Test
+    public void testParetoSet() {
+        Random random = new Random(7);
+        assertParetoSets(RoutingTestUtils.createGridNetwork(12, random), random);
+    }
+
+    @Test
+    public void testOneWayNetwork() {
+        Random random = new Random(71);
+        assertParetoSets(RoutingTestUtils.createOneWayNetwork(150, random), random);
+    }
+
+    private static void assertParetoSets(Network network, Random random) {
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, new DistanceDisutility(), null, null);
+
+        int linkCount = Id.getNumberOfIds(Link.class);
+        double[][] components = new double[3][linkCount];
+        for (Link link : network.getLinks().values()) {
+            int linkIdx = link.getId().index();
+            components[0][linkIdx] = link.getLength();
+            components[1][linkIdx] = random.nextDouble() * link.getLength();
+            components[2][linkIdx] = random.nextDouble() * link.getLength();
+        }
+
+        ParetoRouter router = new ParetoRouter(graph, components);
+        Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+        for (int i = 0; i < 20; i++) {
+            Node fromNode = nodes[random.nextInt(nodes.length)];
+            Node toNode = nodes[random.nextInt(nodes.length)];
+            List<ParetoRouter.Route> routes = router.calcParetoRoutes(fromNode, toNode);
+            Assert.assertTrue(router.isComplete());
+            Assert.assertFalse(routes.isEmpty());
+
+            // no route dominates another one
+            for (ParetoRouter.Route a : routes) {
+                for (ParetoRouter.Route b : routes) {
+                    if (a != b) {
+                        double[] ca = a.getCosts();
+                        double[] cb = b.getCosts();
+                        Assert.assertFalse(ca[0] <= cb[0] && ca[1] <= cb[1] && ca[2] <= cb[2]);
+                    }
+                }
+            }
+
+            // every weighted sum of the components is minimised by one of the routes
+            for (int j = 0; j < 5; j++) {
+                double[] weights = {1., 2. * random.nextDouble(), 2. * random.nextDouble()};
+                LeastCostPathTree3 tree = new LeastCostPathTree3(graph.reweight(components, weights));
+                tree.calculate(fromNode.getId().index(), 0., true);
+                double best = Double.POSITIVE_INFINITY;
+                for (ParetoRouter.Route route : routes) {
+                    double[] costs = route.getCosts();
+                    best = Math.min(best, weights[0] * costs[0] + weights[1] * costs[1] + weights[2] * costs[2]);
+                }
+                Assert.assertEquals(tree.getCost(toNode.getId().index()), best, 1e-6);
+            }
+        }
+    }
+}
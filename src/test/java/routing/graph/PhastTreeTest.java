@@ -0,0 +1,72 @@
+package routing.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.Random;
+
+public class PhastTreeTest {
+
+    @Test
+    public void testAgainstDijkstra() {
+        assertAgainstDijkstra(RoutingTestUtils.createGridNetwork(20, new Random(13)), new Random(17));
+    }
+
+    @Test
+    public void testOneWayNetwork() {
+        assertAgainstDijkstra(RoutingTestUtils.createOneWayNetwork(300, new Random(73)), new Random(79));
+    }
+
+    private static void assertAgainstDijkstra(Network network, Random random) {
+        SpeedyGraph graph = new SpeedyGraph(network, RoutingTestUtils.TRAVEL_TIME, RoutingTestUtils.createUnequalDisutility(5), null, null);
+
+        int linkCount = Id.getNumberOfIds(Link.class);
+        double[][] values = new double[1][linkCount];
+        for (Link link : network.getLinks().values()) {
+            values[0][link.getId().index()] = link.getId().index() % 3;
+        }
+
+        PhastTree phastTree = new PhastTree(new PhastHierarchy(new ContractionHierarchy(graph), values));
+        LeastCostPathTree3 tree = new LeastCostPathTree3(graph);
+
+        Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+        for (int k = 0; k < 10; k++) {
+            int startNode = nodes[random.nextInt(nodes.length)].getId().index();
+            for (boolean fwd : new boolean[]{true, false}) {
+                phastTree.calculate(startNode, fwd);
+                tree.calculate(startNode, 0., fwd);
+                for (Node node : nodes) {
+                    int nodeIdx = node.getId().index();
+                    Assert.assertEquals(tree.getCost(nodeIdx), phastTree.getCost(nodeIdx), 1e-6);
+
+                    // totals must match the links of the returned path
+                    int[] linkIndices = phastTree.getLinkIndices(nodeIdx);
+                    Assert.assertEquals(linkIndices.length, phastTree.getLinksUsed(nodeIdx));
+                    double cost = 0.;
+                    double time = 0.;
+                    double distance = 0.;
+                    double value = 0.;
+                    int currentNode = fwd ? startNode : nodeIdx;
+                    for (int linkIdx : linkIndices) {
+                        Link link = graph.getLink(linkIdx);
+                        Assert.assertEquals(currentNode, link.getFromNode().getId().index());
+                        currentNode = link.getToNode().getId().index();
+                        cost += graph.getLinkDisutility(linkIdx);
+                        time += graph.getLinkTime(linkIdx);
+                        distance += link.getLength();
+                        value += values[0][linkIdx];
+                    }
+                    Assert.assertEquals(fwd ? nodeIdx : startNode, currentNode);
+                    Assert.assertEquals(phastTree.getCost(nodeIdx), cost, 1e-6);
+                    Assert.assertEquals(phastTree.getTime(nodeIdx), time, 1e-6);
+                    Assert.assertEquals(phastTree.getDistance(nodeIdx), distance, 1e-6);
+                    Assert.assertEquals(phastTree.getValue(nodeIdx, 0), value, 1e-6);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package routing.graph;
+
+import org.junit.Assert;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test networks and reference checks shared by the routing tests.
+ */
+final class RoutingTestUtils {
+
+    static final TravelTime TRAVEL_TIME = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+
+    private RoutingTestUtils() {
+    }
+
+    /**
+     * Grid of size x size nodes, connected to their neighbours by links in both directions with random lengths and speeds.
+     */
+    static Network createGridNetwork(int size, Random random) {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory nf = network.getFactory();
+        Node[][] grid = new Node[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                grid[x][y] = nf.createNode(Id.createNodeId("heap_" + x + "_" + y), new Coord(100 * x, 100 * y));
+                network.addNode(grid[x][y]);
+            }
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size) {
+                    addLink(network, grid[x][y], grid[x + 1][y], random);
+                    addLink(network, grid[x + 1][y], grid[x][y], random);
+                }
+                if (y + 1 < size) {
+                    addLink(network, grid[x][y], grid[x][y + 1], random);
+                    addLink(network, grid[x][y + 1], grid[x][y], random);
+                }
+            }
+        }
+        return network;
+    }
+
+    private static void addLink(Network network, Node fromNode, Node toNode, Random random) {
+        Id<Link> linkId = Id.createLinkId(fromNode.getId() + "-" + toNode.getId());
+        Link link = network.getFactory().createLink(linkId, fromNode, toNode);
+        link.setLength(100 + 400 * random.nextDouble());
+        link.setFreespeed(1 + 5 * random.nextDouble());
+        link.setCapacity(2000);
+        network.addLink(link);
+    }
+
+    /**
+     * Randomly placed nodes, each connected to its nearest neighbours. Most links are one-way, the others have different
+     * lengths and speeds in each direction, and some node pairs are connected by parallel links. A one-way ring through
+     * all nodes in random order keeps the network strongly connected.
+     */
+    static Network createOneWayNetwork(int nodeCount, Random random) {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory nf = network.getFactory();
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = nf.createNode(Id.createNodeId("oneway_" + i), new Coord(3000 * random.nextDouble(), 3000 * random.nextDouble()));
+            network.addNode(nodes[i]);
+        }
+
+        List<Node> ring = new ArrayList<>(Arrays.asList(nodes));
+        Collections.shuffle(ring, random);
+        for (int i = 0; i < nodeCount; i++) {
+            addOneWayLink(network, ring.get(i), ring.get((i + 1) % nodeCount), random);
+        }
+
+        for (Node node : nodes) {
+            Node[] neighbours = nodes.clone();
+            Arrays.sort(neighbours, Comparator.comparingDouble(n -> CoordUtils.calcEuclideanDistance(node.getCoord(), n.getCoord())));
+            for (int k = 1; k <= 3; k++) {
+                double type = random.nextDouble();
+                if (type < 0.6) {
+                    addOneWayLink(network, node, neighbours[k], random);
+                } else if (type < 0.9) {
+                    addOneWayLink(network, node, neighbours[k], random);
+                    addOneWayLink(network, neighbours[k], node, random);
+                } else {
+                    addOneWayLink(network, node, neighbours[k], random);
+                    addOneWayLink(network, node, neighbours[k], random);
+                }
+            }
+        }
+        return network;
+    }
+
+    private static void addOneWayLink(Network network, Node fromNode, Node toNode, Random random) {
+        Id<Link> linkId = Id.createLinkId("oneway_" + fromNode.getId() + "-" + toNode.getId() + "_" + network.getLinks().size());
+        Link link = network.getFactory().createLink(linkId, fromNode, toNode);
+        double distance = CoordUtils.calcEuclideanDistance(fromNode.getCoord(), toNode.getCoord());
+        link.setLength(Math.max(1., distance * (1. + random.nextDouble())));
+        link.setFreespeed(1 + 5 * random.nextDouble());
+        link.setCapacity(2000);
+        network.addLink(link);
+    }
+
+    /**
+     * Disutility of at least the link length, with a factor of up to 2 depending on the link, so that it is neither
+     * proportional to the length nor to the travel time.
+     */
+    static TravelDisutility createUnequalDisutility(int factorCount) {
+        return new TravelDisutility() {
+            @Override
+            public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+                return link.getLength() * (1. + (link.getId().index() % factorCount) / (factorCount - 1.));
+            }
+
+            @Override
+            public double getLinkMinimumTravelDisutility(Link link) {
+                return link.getLength();
+            }
+        };
+    }
+
+    /**
+     * Compares the paths of the router between random node pairs with the costs of a least cost path tree. The path must
+     * consist of connected links of the network, and its cost and travel time must be the sum over these links.
+     */
+    static void assertLeastCostPaths(Network network, SpeedyGraph graph, LeastCostPathCalculator router, int pairs, Random random) {
+        LeastCostPathTree3 tree = new LeastCostPathTree3(graph);
+        Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+        for (int k = 0; k < pairs; k++) {
+            Node fromNode = nodes[random.nextInt(nodes.length)];
+            Node toNode = nodes[random.nextInt(nodes.length)];
+            tree.calculate(fromNode.getId().index(), 0., true);
+
+            LeastCostPathCalculator.Path path = router.calcLeastCostPath(fromNode, toNode, 0., null, null);
+            Assert.assertEquals(tree.getCost(toNode.getId().index()), path.travelCost, 1e-6);
+            Assert.assertEquals(path.links.size() + 1, path.nodes.size());
+            Assert.assertEquals(fromNode, path.nodes.get(0));
+            Assert.assertEquals(toNode, path.nodes.get(path.nodes.size() - 1));
+
+            double cost = 0.;
+            double time = 0.;
+            for (int i = 0; i < path.links.size(); i++) {
+                Link link = path.links.get(i);
+                Assert.assertSame(network.getLinks().get(link.getId()), link);
+                Assert.assertEquals(path.nodes.get(i), link.getFromNode());
+                Assert.assertEquals(path.nodes.get(i + 1), link.getToNode());
+                cost += graph.getLinkDisutility(link.getId().index());
+                time += graph.getLinkTime(link.getId().index());
+            }
+            Assert.assertEquals(path.travelCost, cost, 1e-6);
+            Assert.assertEquals(path.travelTime, time, 1e-6);
+        }
+    }
+}
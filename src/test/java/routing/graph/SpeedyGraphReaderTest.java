@@ -0,0 +1,71 @@
+package routing.graph;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.TravelTime;
+import routing.disutility.DistanceDisutility;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class SpeedyGraphReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Network network = RoutingTestUtils.createGridNetwork(20, new Random(31));
+        TravelTime tt = RoutingTestUtils.TRAVEL_TIME;
+        SpeedyGraph graph = new SpeedyGraph(network, tt, new DistanceDisutility(), null, null);
+
+        String filename = folder.newFile("graph.bin").getPath();
+        SpeedyGraphWriter.write(graph, filename);
+        SpeedyGraph restored = SpeedyGraphReader.read(filename, network);
+
+        Assert.assertEquals(graph.getNodeCount(), restored.getNodeCount());
+        LeastCostPathTree3 tree = new LeastCostPathTree3(graph);
+        LeastCostPathTree3 restoredTree = new LeastCostPathTree3(restored);
+        for (int startNode = 0; startNode < graph.getNodeCount(); startNode += 37) {
+            tree.calculate(startNode, 0., true);
+            restoredTree.calculate(startNode, 0., true);
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                Assert.assertEquals(tree.getCost(node), restoredTree.getCost(node), 0.);
+                Assert.assertEquals(tree.getTime(node).seconds(), restoredTree.getTime(node).seconds(), 0.);
+            }
+        }
+        for (int link = 0; link < graph.linkCount; link++) {
+            Assert.assertSame(graph.getLink(link), restored.getLink(link));
+        }
+    }
+
+    @Test
+    public void testRebuildWithDifferentDisutility() throws IOException {
+        Network network = RoutingTestUtils.createGridNetwork(10, new Random(37));
+        TravelTime tt = RoutingTestUtils.TRAVEL_TIME;
+        String filename = folder.newFile("graph.bin").getPath();
+        SpeedyGraphReader.readOrBuild(filename, network, tt, new DistanceDisutility(), null, null, "short");
+
+        SpeedyGraph graph = SpeedyGraphReader.readOrBuild(filename, network, tt, null, null, null, "none");
+        for (int link = 0; link < graph.linkCount; link++) {
+            Assert.assertEquals(0., graph.getLinkDisutility(link), 0.);
+        }
+    }
+
+    @Test
+    public void testRebuildWithDifferentFingerprint() throws IOException {
+        Network network = RoutingTestUtils.createGridNetwork(10, new Random(41));
+        TravelTime tt = RoutingTestUtils.TRAVEL_TIME;
+        String filename = folder.newFile("graph.bin").getPath();
+        SpeedyGraphReader.readOrBuild(filename, network, tt, new DistanceDisutility(), null, null, "walk|jibe|0.5");
+        Assert.assertNotNull(SpeedyGraphReader.read(filename, network, "walk|jibe|0.5"));
+        try {
+            SpeedyGraphReader.read(filename, network, "walk|jibe|0.6");
+            Assert.fail("Image with a different fingerprint must not be read.");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package routing.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.TravelTime;
+import routing.disutility.DistanceDisutility;
+
+import java.util.Random;
+
+public class SpeedyGraphTest {
+
+    @Test
+    public void testReweight() {
+        Network network = RoutingTestUtils.createGridNetwork(10, new Random(41));
+        TravelTime tt = RoutingTestUtils.TRAVEL_TIME;
+        SpeedyGraph graph = new SpeedyGraph(network, tt, new DistanceDisutility(), null, null);
+
+        int linkCount = Id.getNumberOfIds(Link.class);
+        double[] length = new double[linkCount];
+        double[] time = new double[linkCount];
+        for (Link link : network.getLinks().values()) {
+            length[link.getId().index()] = link.getLength();
+            time[link.getId().index()] = tt.getLinkTravelTime(link, 0., null, null);
+        }
+        SpeedyGraph reweighted = graph.reweight(new double[][] {length, time}, new double[] {0.5, 2.});
+
+        for (Link link : network.getLinks().values()) {
+            int linkIdx = link.getId().index();
+            Assert.assertEquals(link.getLength(), graph.getLinkDisutility(linkIdx), 0.);
+            Assert.assertEquals(0.5 * length[linkIdx] + 2. * time[linkIdx], reweighted.getLinkDisutility(linkIdx), 1e-9);
+            Assert.assertEquals(graph.getLinkTime(linkIdx), reweighted.getLinkTime(linkIdx), 0.);
+            Assert.assertSame(link, reweighted.getLink(linkIdx));
+        }
+    }
+}